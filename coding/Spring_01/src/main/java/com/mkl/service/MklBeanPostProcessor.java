@@ -1,46 +1,45 @@
 package com.mkl.service;
 
+import com.spring.ApplyTo;
 import com.spring.BeanPostProcessor;
 import com.spring.Component;
+import com.spring.MethodInterceptor;
+import com.spring.MethodInvocation;
+import com.spring.ProxyFactory;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import java.util.logging.Logger;
 
 /**
  * @author Mengkaili
  * @since 2021/5/28
  */
 @Component("MklBeanPostProcessor")
+@ApplyTo(names = "userService")
 public class MklBeanPostProcessor implements BeanPostProcessor {
 
+    // 每个bean、每次调用都会经过这里，只在调试时输出
+    private static final Logger LOGGER = Logger.getLogger(MklBeanPostProcessor.class.getName());
 
     @Override
     public Object postProcessBeforeInitialization(Object bean, String beanName) {
-        System.out.println("初始化前");
-        if (beanName.equals("userService")) {
-            ((UserServiceImpl)bean).setName("lalala");
-        }
+        LOGGER.fine("初始化前");
+        ((UserServiceImpl)bean).setName("lalala");
 
         return bean;
     }
 
     @Override
     public Object postProcessAfterInitialization(Object bean, String beanName) {
-        System.out.println("初始化后");
-        if (beanName.equals("userService")) {
+        LOGGER.fine("初始化后");
 
-            Object instance = Proxy.newProxyInstance(MklBeanPostProcessor.class.getClassLoader(), bean.getClass().getInterfaces(), new InvocationHandler() {
-                @Override
-                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-                    System.out.println("代理逻辑");
-                    return method.invoke(bean, args);
-                }
-            });
+        Object instance = ProxyFactory.getProxy(bean, new MethodInterceptor() {
+            @Override
+            public Object invoke(MethodInvocation invocation) throws Throwable {
+                LOGGER.fine("代理逻辑");
+                return invocation.proceed();
+            }
+        });
 
-            return instance;
-
-        }
-        return bean;
+        return instance;
     }
 }
@@ -0,0 +1,295 @@
+package com.spring;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 把事件分发给ApplicationListener。监听器在扫描完成后按BeanDefinition登记，
+ * 每种事件类型第一次发布时算好要通知的监听器，之后发布只需要查表，不加锁；
+ * 获取监听器可能创建bean，所以在ClassValue.computeValue之外进行，还在创建中的监听器收不到这次的事件
+ *
+ * @author Mengkaili
+ * @since 2021/7/2
+ */
+public class ApplicationEventMulticaster {
+
+    private static final Dispatcher[] NO_DISPATCHERS = new Dispatcher[0];
+
+    private final MiniApplicationContext context;
+    private final Map<String, ListenerRegistration> registrations = new ConcurrentHashMap<>();
+    // 每个监听器只有一个分发器，RING_BUFFER模式的消费线程也只有一个
+    private final ConcurrentHashMap<String, Dispatcher> dispatchers = new ConcurrentHashMap<>();
+    // 事件类型 -> 分发表，监听器变化时整个换掉
+    private volatile ClassValue<DispatchTable> dispatchTables = newDispatchTables();
+    private volatile ExecutorService batchExecutor;
+
+    public ApplicationEventMulticaster(MiniApplicationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * 登记一个bean，不是ApplicationListener时忽略；监听器实例在第一次分发事件时才获取
+     */
+    public void registerListener(String beanName, BeanDefinition beanDefinition) {
+        Class<?> clazz = beanDefinition.getClazz();
+        if (!ApplicationListener.class.isAssignableFrom(clazz)) {
+            return;
+        }
+        registrations.put(beanName, new ListenerRegistration(beanName, clazz, resolveEventType(clazz)));
+        dispatchTables = newDispatchTables();
+    }
+
+    public void removeListener(String beanName) {
+        if (registrations.remove(beanName) == null) {
+            return;
+        }
+        dispatchTables = newDispatchTables();
+        Dispatcher dispatcher = dispatchers.remove(beanName);
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+    }
+
+    public void multicastEvent(Object event) {
+        DispatchTable table = dispatchTables.get(event.getClass());
+        Dispatcher[] dispatchers = table.dispatchers;
+        if (dispatchers == null) {
+            dispatchers = resolveDispatchers(table);
+        }
+        for (Dispatcher dispatcher : dispatchers) {
+            dispatcher.dispatch(event);
+        }
+    }
+
+    // computeValue里只匹配登记信息，不获取bean
+    private ClassValue<DispatchTable> newDispatchTables() {
+        return new ClassValue<DispatchTable>() {
+            @Override
+            protected DispatchTable computeValue(Class<?> eventType) {
+                return new DispatchTable(matchRegistrations(eventType));
+            }
+        };
+    }
+
+    private ListenerRegistration[] matchRegistrations(Class<?> eventType) {
+        List<ListenerRegistration> matched = new ArrayList<>();
+        for (ListenerRegistration registration : registrations.values()) {
+            if (registration.eventType.isAssignableFrom(eventType)) {
+                matched.add(registration);
+            }
+        }
+        // 同步的监听器按Order依次调用
+        matched.sort((a, b) -> Integer.compare(a.order, b.order));
+        return matched.toArray(new ListenerRegistration[0]);
+    }
+
+    /**
+     * 获取分发表里的监听器。监听器自己还在创建中时(比如初始化时发布了事件)跳过它，
+     * 这时拿到的只是提前暴露的半成品，不能缓存；跳过了监听器的分发表不保存，下次发布再解析
+     */
+    private Dispatcher[] resolveDispatchers(DispatchTable table) {
+        if (table.registrations.length == 0) {
+            table.dispatchers = NO_DISPATCHERS;
+            return NO_DISPATCHERS;
+        }
+        List<Dispatcher> resolved = new ArrayList<>(table.registrations.length);
+        for (ListenerRegistration registration : table.registrations) {
+            Dispatcher dispatcher = dispatchers.get(registration.beanName);
+            if (dispatcher == null && context.isSingletonInCreation(registration.beanName)) {
+                continue;
+            }
+            resolved.add(dispatcher != null ? dispatcher : getDispatcher(registration));
+        }
+        Dispatcher[] result = resolved.toArray(NO_DISPATCHERS);
+        if (result.length == table.registrations.length) {
+            table.dispatchers = result;
+        }
+        return result;
+    }
+
+    private Dispatcher getDispatcher(ListenerRegistration registration) {
+        Dispatcher dispatcher = dispatchers.get(registration.beanName);
+        if (dispatcher != null) {
+            return dispatcher;
+        }
+        // 获取监听器时可能创建bean，bean又可能发布事件，不能放在computeIfAbsent里
+        Dispatcher created = createDispatcher(registration);
+        dispatcher = dispatchers.putIfAbsent(registration.beanName, created);
+        if (dispatcher != null) {
+            created.close();
+            return dispatcher;
+        }
+        return created;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Dispatcher createDispatcher(ListenerRegistration registration) {
+        ApplicationListener<Object> listener = (ApplicationListener<Object>) context.getBean(registration.beanName);
+        EventDispatch eventDispatch = registration.clazz.getDeclaredAnnotation(EventDispatch.class);
+        EventDispatch.Mode mode = eventDispatch == null ? EventDispatch.Mode.SYNC : eventDispatch.value();
+        switch (mode) {
+            case BATCH:
+                return new BatchDispatcher(listener, eventDispatch.batchSize(), getBatchExecutor());
+            case RING_BUFFER:
+                return new RingBufferDispatcher(new EventRingBuffer(eventDispatch.capacity(), listener::onApplicationEvent,
+                        "mini-spring-event-" + registration.beanName));
+            default:
+                return new SyncDispatcher(listener);
+        }
+    }
+
+    private ExecutorService getBatchExecutor() {
+        ExecutorService executor = batchExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = batchExecutor;
+                if (executor == null) {
+                    AtomicInteger threadNumber = new AtomicInteger();
+                    executor = Executors.newCachedThreadPool(runnable -> {
+                        Thread thread = new Thread(runnable, "mini-spring-event-batch-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    batchExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    // 沿着类层次找到ApplicationListener<E>的E，找不到时监听所有事件
+    private static Class<?> resolveEventType(Class<?> clazz) {
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Type type : current.getGenericInterfaces()) {
+                if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == ApplicationListener.class) {
+                    Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+                    if (argument instanceof Class) {
+                        return (Class<?>) argument;
+                    }
+                    if (argument instanceof ParameterizedType) {
+                        return (Class<?>) ((ParameterizedType) argument).getRawType();
+                    }
+                }
+            }
+        }
+        return Object.class;
+    }
+
+    private static class DispatchTable {
+
+        private final ListenerRegistration[] registrations;
+        // 所有监听器都获取到之后才赋值
+        private volatile Dispatcher[] dispatchers;
+
+        DispatchTable(ListenerRegistration[] registrations) {
+            this.registrations = registrations;
+        }
+    }
+
+    private static class ListenerRegistration {
+
+        private final String beanName;
+        private final Class<?> clazz;
+        private final Class<?> eventType;
+        private final int order;
+
+        ListenerRegistration(String beanName, Class<?> clazz, Class<?> eventType) {
+            this.beanName = beanName;
+            this.clazz = clazz;
+            this.eventType = eventType;
+            Order order = clazz.getDeclaredAnnotation(Order.class);
+            this.order = order == null ? Integer.MAX_VALUE : order.value();
+        }
+    }
+
+    private interface Dispatcher {
+
+        void dispatch(Object event);
+
+        default void close() {
+        }
+    }
+
+    private static class SyncDispatcher implements Dispatcher {
+
+        private final ApplicationListener<Object> listener;
+
+        SyncDispatcher(ApplicationListener<Object> listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void dispatch(Object event) {
+            listener.onApplicationEvent(event);
+        }
+    }
+
+    private static class BatchDispatcher implements Dispatcher {
+
+        private final ApplicationListener<Object> listener;
+        private final int batchSize;
+        private final ExecutorService executor;
+        private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>();
+        // 同一时间只有一个处理任务，队列从空变成非空时才提交
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        BatchDispatcher(ApplicationListener<Object> listener, int batchSize, ExecutorService executor) {
+            this.listener = listener;
+            this.batchSize = batchSize;
+            this.executor = executor;
+        }
+
+        @Override
+        public void dispatch(Object event) {
+            queue.offer(event);
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            Object event;
+            for (int i = 0; i < batchSize && (event = queue.poll()) != null; i++) {
+                try {
+                    listener.onApplicationEvent(event);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+            scheduled.set(false);
+            // 清掉标记之后再检查一次，避免和发布方同时错过提交
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+    }
+
+    private static class RingBufferDispatcher implements Dispatcher {
+
+        private final EventRingBuffer ringBuffer;
+
+        RingBufferDispatcher(EventRingBuffer ringBuffer) {
+            this.ringBuffer = ringBuffer;
+        }
+
+        @Override
+        public void dispatch(Object event) {
+            ringBuffer.publish(event);
+        }
+
+        @Override
+        public void close() {
+            ringBuffer.stop();
+        }
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.spring;
+
+/**
+ * @author Mengkaili
+ * @since 2021/7/2
+ */
+public interface ApplicationEventPublisher {
+
+    /**
+     * 发布事件，任意对象都可以作为事件，不需要继承特定的类
+     */
+    void publishEvent(Object event);
+
+}
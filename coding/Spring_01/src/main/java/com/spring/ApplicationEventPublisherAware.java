@@ -0,0 +1,11 @@
+package com.spring;
+
+/**
+ * @author Mengkaili
+ * @since 2021/7/2
+ */
+public interface ApplicationEventPublisherAware {
+
+    void setApplicationEventPublisher(ApplicationEventPublisher publisher);
+
+}
@@ -0,0 +1,13 @@
+package com.spring;
+
+/**
+ * 事件监听器，注册成bean即可，监听的事件类型取自泛型参数，事件的子类也会收到
+ *
+ * @author Mengkaili
+ * @since 2021/7/2
+ */
+public interface ApplicationListener<E> {
+
+    void onApplicationEvent(E event);
+
+}
@@ -0,0 +1,24 @@
+package com.spring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在BeanPostProcessor上，声明它只处理哪些bean
+ * bean的类型是types中任意一个的子类型，或者beanName在names中，就会经过这个BeanPostProcessor
+ * 不加这个注解表示处理所有bean
+ *
+ * @author Mengkaili
+ * @since 2021/6/15
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface ApplyTo {
+
+    Class<?>[] types() default {};
+
+    String[] names() default {};
+
+}
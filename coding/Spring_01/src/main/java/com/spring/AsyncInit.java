@@ -0,0 +1,18 @@
+package com.spring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在单例bean上，afterPropertiesSet和之后的BeanPostProcessor放到后台线程执行，
+ * 容器启动不等它完成，只有注入或获取它的地方才会等待
+ *
+ * @author Mengkaili
+ * @since 2021/6/30
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface AsyncInit {
+}
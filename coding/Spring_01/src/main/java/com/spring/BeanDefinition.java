@@ -1,5 +1,8 @@
 package com.spring;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * @author Mengkaili
@@ -9,6 +12,16 @@ public class BeanDefinition {
 
     private Class clazz;
     private String scope;
+    private boolean lazy;
+    private boolean asyncInit;
+    private boolean beanPostProcessor;
+    // 启动时按ApplyTo筛选好的BeanPostProcessor，为空时创建bean跳过这一步
+    private List<String> postProcessorNames = new ArrayList<>();
+    private BeanPostProcessor[] postProcessors = new BeanPostProcessor[0];
+    // Autowired属性名 -> 属性类型
+    private LinkedHashMap<String, String> injectionPoints = new LinkedHashMap<>();
+    // 第一次创建bean时解析，之后复用
+    private volatile InjectionMetadata injectionMetadata;
 
 
     public Class getClazz() {
@@ -26,4 +39,60 @@ public class BeanDefinition {
     public void setScope(String scope) {
         this.scope = scope;
     }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public boolean isAsyncInit() {
+        return asyncInit;
+    }
+
+    public void setAsyncInit(boolean asyncInit) {
+        this.asyncInit = asyncInit;
+    }
+
+    public boolean isBeanPostProcessor() {
+        return beanPostProcessor;
+    }
+
+    public void setBeanPostProcessor(boolean beanPostProcessor) {
+        this.beanPostProcessor = beanPostProcessor;
+    }
+
+    public List<String> getPostProcessorNames() {
+        return postProcessorNames;
+    }
+
+    public void setPostProcessorNames(List<String> postProcessorNames) {
+        this.postProcessorNames = postProcessorNames;
+    }
+
+    public BeanPostProcessor[] getPostProcessors() {
+        return postProcessors;
+    }
+
+    public void setPostProcessors(BeanPostProcessor[] postProcessors) {
+        this.postProcessors = postProcessors;
+    }
+
+    public LinkedHashMap<String, String> getInjectionPoints() {
+        return injectionPoints;
+    }
+
+    public void setInjectionPoints(LinkedHashMap<String, String> injectionPoints) {
+        this.injectionPoints = injectionPoints;
+    }
+
+    public InjectionMetadata getInjectionMetadata() {
+        return injectionMetadata;
+    }
+
+    public void setInjectionMetadata(InjectionMetadata injectionMetadata) {
+        this.injectionMetadata = injectionMetadata;
+    }
 }
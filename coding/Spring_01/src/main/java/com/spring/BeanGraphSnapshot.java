@@ -0,0 +1,311 @@
+package com.spring;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * 解析完成的bean定义图，用二进制格式保存到文件里
+ * 每个组件类和它的父类、接口都记录class文件的CRC32，类型索引和BeanPostProcessor的匹配都依赖这些类型，
+ * 读取时逐个校验，有任何变化就放弃快照重新扫描
+ *
+ * @author Mengkaili
+ * @since 2021/6/23
+ */
+public class BeanGraphSnapshot {
+
+    private static final int MAGIC = 0x4D534E50;
+    private static final int VERSION = 2;
+
+    private String configClassName;
+    // 组件列表的指纹，组件增加或者删除时会变化
+    private long discoveryFingerprint;
+    private List<BeanRecord> beans = new ArrayList<>();
+    // 组件类的父类和接口 -> class文件的CRC32
+    private Map<String, Long> typeChecksums = new LinkedHashMap<>();
+    private Map<String, List<String>> typeIndex = new LinkedHashMap<>();
+    private Map<String, Set<String>> dependencyGraph = new LinkedHashMap<>();
+    private List<String> creationOrder = new ArrayList<>();
+    private List<String> cyclicBeans = new ArrayList<>();
+    private List<String> postProcessorNames = new ArrayList<>();
+
+    public static class BeanRecord {
+
+        private String beanName;
+        private String className;
+        private long checksum;
+        private String scope;
+        private boolean lazy;
+        private boolean beanPostProcessor;
+        private LinkedHashMap<String, String> injectionPoints = new LinkedHashMap<>();
+        private List<String> postProcessorNames = new ArrayList<>();
+
+        public BeanRecord() {
+        }
+
+        public BeanRecord(String beanName, BeanDefinition beanDefinition, long checksum) {
+            this.beanName = beanName;
+            this.className = beanDefinition.getClazz().getName();
+            this.checksum = checksum;
+            this.scope = beanDefinition.getScope();
+            this.lazy = beanDefinition.isLazy();
+            this.beanPostProcessor = beanDefinition.isBeanPostProcessor();
+            this.injectionPoints = beanDefinition.getInjectionPoints();
+            this.postProcessorNames = beanDefinition.getPostProcessorNames();
+        }
+
+        public String getBeanName() {
+            return beanName;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getScope() {
+            return scope;
+        }
+
+        public boolean isLazy() {
+            return lazy;
+        }
+
+        public boolean isBeanPostProcessor() {
+            return beanPostProcessor;
+        }
+
+        public LinkedHashMap<String, String> getInjectionPoints() {
+            return injectionPoints;
+        }
+
+        public List<String> getPostProcessorNames() {
+            return postProcessorNames;
+        }
+    }
+
+    /**
+     * 读取快照，文件不存在、格式不对、或者和当前的类对不上时返回null
+     */
+    public static BeanGraphSnapshot read(File file, Class<?> configClass, long discoveryFingerprint) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            BeanGraphSnapshot snapshot = new BeanGraphSnapshot();
+            snapshot.configClassName = in.readUTF();
+            snapshot.discoveryFingerprint = in.readLong();
+            if (!snapshot.configClassName.equals(configClass.getName())
+                    || snapshot.discoveryFingerprint != discoveryFingerprint) {
+                return null;
+            }
+
+            ClassLoader classLoader = configClass.getClassLoader();
+            int beanCount = in.readInt();
+            for (int i = 0; i < beanCount; i++) {
+                BeanRecord record = new BeanRecord();
+                record.beanName = in.readUTF();
+                record.className = in.readUTF();
+                record.checksum = in.readLong();
+                if (record.checksum != checksum(classLoader, record.className)) {
+                    return null;
+                }
+                record.scope = in.readUTF();
+                record.lazy = in.readBoolean();
+                record.beanPostProcessor = in.readBoolean();
+                int injectionPointCount = in.readInt();
+                for (int j = 0; j < injectionPointCount; j++) {
+                    record.injectionPoints.put(in.readUTF(), in.readUTF());
+                }
+                record.postProcessorNames = readList(in);
+                snapshot.beans.add(record);
+            }
+            if (checksum(classLoader, configClass.getName()) != in.readLong()) {
+                return null;
+            }
+            int checksumCount = in.readInt();
+            for (int i = 0; i < checksumCount; i++) {
+                String typeName = in.readUTF();
+                long checksum = in.readLong();
+                if (checksum != checksum(classLoader, typeName)) {
+                    return null;
+                }
+                snapshot.typeChecksums.put(typeName, checksum);
+            }
+
+            int typeCount = in.readInt();
+            for (int i = 0; i < typeCount; i++) {
+                snapshot.typeIndex.put(in.readUTF(), readList(in));
+            }
+            int graphCount = in.readInt();
+            for (int i = 0; i < graphCount; i++) {
+                snapshot.dependencyGraph.put(in.readUTF(), new LinkedHashSet<>(readList(in)));
+            }
+            snapshot.creationOrder = readList(in);
+            snapshot.cyclicBeans = readList(in);
+            snapshot.postProcessorNames = readList(in);
+            return snapshot;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void write(File file, Class<?> configClass) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        ClassLoader classLoader = configClass.getClassLoader();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(configClassName);
+            out.writeLong(discoveryFingerprint);
+
+            out.writeInt(beans.size());
+            for (BeanRecord record : beans) {
+                out.writeUTF(record.beanName);
+                out.writeUTF(record.className);
+                out.writeLong(record.checksum);
+                out.writeUTF(record.scope);
+                out.writeBoolean(record.lazy);
+                out.writeBoolean(record.beanPostProcessor);
+                out.writeInt(record.injectionPoints.size());
+                for (Map.Entry<String, String> injectionPoint : record.injectionPoints.entrySet()) {
+                    out.writeUTF(injectionPoint.getKey());
+                    out.writeUTF(injectionPoint.getValue());
+                }
+                writeList(out, record.postProcessorNames);
+            }
+            out.writeLong(checksum(classLoader, configClass.getName()));
+            out.writeInt(typeChecksums.size());
+            for (Map.Entry<String, Long> entry : typeChecksums.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+
+            out.writeInt(typeIndex.size());
+            for (Map.Entry<String, List<String>> entry : typeIndex.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeList(out, entry.getValue());
+            }
+            out.writeInt(dependencyGraph.size());
+            for (Map.Entry<String, Set<String>> entry : dependencyGraph.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeList(out, entry.getValue());
+            }
+            writeList(out, creationOrder);
+            writeList(out, cyclicBeans);
+            writeList(out, postProcessorNames);
+        }
+    }
+
+    /**
+     * class文件内容的CRC32，找不到class文件时返回-1
+     */
+    public static long checksum(ClassLoader classLoader, String className) {
+        try (InputStream inputStream = classLoader.getResourceAsStream(className.replace('.', '/') + ".class")) {
+            if (inputStream == null) {
+                return -1;
+            }
+            CRC32 crc32 = new CRC32();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                crc32.update(buffer, 0, read);
+            }
+            return crc32.getValue();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static List<String> readList(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(in.readUTF());
+        }
+        return list;
+    }
+
+    private static void writeList(DataOutputStream out, Collection<String> list) throws IOException {
+        out.writeInt(list.size());
+        for (String value : list) {
+            out.writeUTF(value);
+        }
+    }
+
+    public void setConfigClassName(String configClassName) {
+        this.configClassName = configClassName;
+    }
+
+    public void setDiscoveryFingerprint(long discoveryFingerprint) {
+        this.discoveryFingerprint = discoveryFingerprint;
+    }
+
+    public List<BeanRecord> getBeans() {
+        return beans;
+    }
+
+    public Map<String, Long> getTypeChecksums() {
+        return typeChecksums;
+    }
+
+    public Map<String, List<String>> getTypeIndex() {
+        return typeIndex;
+    }
+
+    public void setTypeIndex(Map<String, List<String>> typeIndex) {
+        this.typeIndex = typeIndex;
+    }
+
+    public Map<String, Set<String>> getDependencyGraph() {
+        return dependencyGraph;
+    }
+
+    public void setDependencyGraph(Map<String, Set<String>> dependencyGraph) {
+        this.dependencyGraph = dependencyGraph;
+    }
+
+    public List<String> getCreationOrder() {
+        return creationOrder;
+    }
+
+    public void setCreationOrder(List<String> creationOrder) {
+        this.creationOrder = creationOrder;
+    }
+
+    public List<String> getCyclicBeans() {
+        return cyclicBeans;
+    }
+
+    public void setCyclicBeans(List<String> cyclicBeans) {
+        this.cyclicBeans = cyclicBeans;
+    }
+
+    public List<String> getPostProcessorNames() {
+        return postProcessorNames;
+    }
+
+    public void setPostProcessorNames(List<String> postProcessorNames) {
+        this.postProcessorNames = postProcessorNames;
+    }
+
+}
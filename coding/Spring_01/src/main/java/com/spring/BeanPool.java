@@ -0,0 +1,59 @@
+package com.spring;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * pooled作用域的bean池，固定数量的槽位，借出和归还都只用CAS，不加锁
+ *
+ * @author Mengkaili
+ * @since 2021/6/10
+ */
+public class BeanPool {
+
+    private final AtomicReferenceArray<Object> slots;
+
+    public BeanPool(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("池子的大小必须大于0: " + size);
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * 取出一个空闲的实例，池子空了返回null
+     */
+    public Object poll() {
+        int size = slots.length();
+        // 每个线程从随机位置开始找，减少多个线程争抢同一个槽位
+        int start = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            Object instance = slots.get(index);
+            if (instance != null && slots.compareAndSet(index, instance, null)) {
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 放回一个实例，池子满了返回false，由调用方丢弃
+     */
+    public boolean offer(Object instance) {
+        int size = slots.length();
+        int start = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            if (slots.get(index) == null && slots.compareAndSet(index, null, instance)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return slots.length();
+    }
+
+}
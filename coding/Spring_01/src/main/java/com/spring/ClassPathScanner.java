@@ -0,0 +1,318 @@
+package com.spring;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 没有组件索引时扫描类路径：递归遍历目录和jar包，多个类文件并行解析，
+ * 直接从字节码里判断有没有Component注解，只有确认是组件的类才会被加载
+ *
+ * @author Mengkaili
+ * @since 2021/6/28
+ */
+public class ClassPathScanner {
+
+    private static final String COMPONENT_DESCRIPTOR = "L" + Component.class.getName().replace('.', '/') + ";";
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    private final ClassLoader classLoader;
+
+    public ClassPathScanner(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * 扫描包下(包括子包)所有的类，返回标注了Component的类名，按类名排序
+     */
+    public List<String> findComponentClassNames(String... basePackages) throws IOException {
+        List<ClassFile> classFiles = findClassFiles(basePackages);
+        try {
+            return classFiles.parallelStream()
+                    .filter(ClassFile::isComponent)
+                    .map(classFile -> classFile.className)
+                    .sorted()
+                    .distinct()
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 包下(包括子包)所有类的类名，不读取类文件内容，按类名排序
+     */
+    public List<String> findClassNames(String... basePackages) throws IOException {
+        TreeSet<String> classNames = new TreeSet<>();
+        for (ClassFile classFile : findClassFiles(basePackages)) {
+            classNames.add(classFile.className);
+        }
+        return new ArrayList<>(classNames);
+    }
+
+    private List<ClassFile> findClassFiles(String... basePackages) throws IOException {
+        List<ClassFile> classFiles = new ArrayList<>();
+        for (String basePackage : basePackages) {
+            String path = basePackage.replace('.', '/');
+            // 同一个包可能分布在多个目录和jar包里
+            Enumeration<URL> resources = classLoader.getResources(path);
+            while (resources.hasMoreElements()) {
+                URL resource = resources.nextElement();
+                if ("file".equals(resource.getProtocol())) {
+                    collectFromDirectory(toPath(resource), basePackage, classFiles);
+                } else if ("jar".equals(resource.getProtocol())) {
+                    collectFromJar(resource, path, classFiles);
+                }
+            }
+        }
+        return classFiles;
+    }
+
+    private static Path toPath(URL resource) throws IOException {
+        try {
+            return Paths.get(resource.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void collectFromDirectory(Path directory, String basePackage, List<ClassFile> classFiles) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) paths::iterator) {
+                String fileName = file.toString();
+                if (fileName.endsWith(".class") && Files.isRegularFile(file)) {
+                    // 类名由相对于包目录的路径得出，和目录本身在哪里无关
+                    String relative = directory.relativize(file).toString();
+                    String className = basePackage + "." + relative.substring(0, relative.length() - ".class".length())
+                            .replace(File.separatorChar, '.');
+                    classFiles.add(new ClassFile(className, () -> Files.newInputStream(file)));
+                }
+            }
+        }
+    }
+
+    private void collectFromJar(URL resource, String path, List<ClassFile> classFiles) throws IOException {
+        URLConnection connection = resource.openConnection();
+        if (!(connection instanceof JarURLConnection)) {
+            return;
+        }
+        // JarFile由URLConnection缓存，这里不能关闭
+        JarFile jarFile = ((JarURLConnection) connection).getJarFile();
+        String prefix = path + "/";
+        for (JarEntry entry : Collections.list(jarFile.entries())) {
+            String name = entry.getName();
+            if (name.startsWith(prefix) && name.endsWith(".class")) {
+                String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+                classFiles.add(new ClassFile(className, () -> jarFile.getInputStream(entry)));
+            }
+        }
+    }
+
+    private static final class ClassFile {
+
+        private final String className;
+        private final Callable<InputStream> opener;
+
+        ClassFile(String className, Callable<InputStream> opener) {
+            this.className = className;
+            this.opener = opener;
+        }
+
+        boolean isComponent() {
+            try (InputStream inputStream = opener.call()) {
+                return hasComponentAnnotation(readAllBytes(inputStream));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (Exception e) {
+                throw new UncheckedIOException(new IOException(className, e));
+            }
+        }
+    }
+
+    static byte[] readAllBytes(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(4096);
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, n);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 按class文件格式解析，只看类本身的RuntimeVisibleAnnotations属性，接口和抽象类不算组件
+     */
+    static boolean hasComponentAnnotation(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != 0xCAFEBABE) {
+            return false;
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        String[] utf8 = readConstantPool(in, new ArrayList<>());
+
+        int accessFlags = in.readUnsignedShort();
+        if ((accessFlags & (ACC_INTERFACE | ACC_ABSTRACT)) != 0) {
+            return false;
+        }
+        in.skipBytes(4);
+        in.skipBytes(in.readUnsignedShort() * 2);
+        // 字段和方法
+        for (int member = 0; member < 2; member++) {
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                in.skipBytes(6);
+                skipAttributes(in);
+            }
+        }
+
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String name = utf8[in.readUnsignedShort()];
+            int length = in.readInt();
+            if (!RUNTIME_VISIBLE_ANNOTATIONS.equals(name)) {
+                in.skipBytes(length);
+                continue;
+            }
+            int annotationCount = in.readUnsignedShort();
+            for (int j = 0; j < annotationCount; j++) {
+                if (COMPONENT_DESCRIPTOR.equals(utf8[in.readUnsignedShort()])) {
+                    return true;
+                }
+                skipElementValuePairs(in);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * class文件常量池里引用的类(CONSTANT_Class)，数组类型保留描述符的形式
+     */
+    static Set<String> referencedClassNames(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != 0xCAFEBABE) {
+            return Collections.emptySet();
+        }
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        List<Integer> classNameIndexes = new ArrayList<>();
+        String[] utf8 = readConstantPool(in, classNameIndexes);
+        Set<String> classNames = new LinkedHashSet<>();
+        for (int index : classNameIndexes) {
+            classNames.add(utf8[index].replace('/', '.'));
+        }
+        return classNames;
+    }
+
+    /**
+     * 读取常量池，只保留UTF8常量，CONSTANT_Class指向的UTF8常量下标放进classNameIndexes
+     */
+    private static String[] readConstantPool(DataInputStream in, List<Integer> classNameIndexes) throws IOException {
+        int constantPoolCount = in.readUnsignedShort();
+        String[] utf8 = new String[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:
+                    utf8[i] = in.readUTF();
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    in.skipBytes(4);
+                    break;
+                case 5:
+                case 6:
+                    // long和double占两个位置
+                    in.skipBytes(8);
+                    i++;
+                    break;
+                case 7:
+                    classNameIndexes.add(in.readUnsignedShort());
+                    break;
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    in.skipBytes(2);
+                    break;
+                case 15:
+                    in.skipBytes(3);
+                    break;
+                default:
+                    throw new IOException("未知的常量池类型: " + tag);
+            }
+        }
+        return utf8;
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            in.skipBytes(2);
+            in.skipBytes(in.readInt());
+        }
+    }
+
+    private static void skipElementValuePairs(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            in.skipBytes(2);
+            skipElementValue(in);
+        }
+    }
+
+    private static void skipElementValue(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 'e':
+                in.skipBytes(4);
+                break;
+            case '@':
+                in.skipBytes(2);
+                skipElementValuePairs(in);
+                break;
+            case '[':
+                int count = in.readUnsignedShort();
+                for (int i = 0; i < count; i++) {
+                    skipElementValue(in);
+                }
+                break;
+            default:
+                // 基本类型、String和Class都是一个常量池下标
+                in.skipBytes(2);
+        }
+    }
+
+}
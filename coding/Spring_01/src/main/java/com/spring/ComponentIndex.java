@@ -0,0 +1,137 @@
+package com.spring;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * 编译期生成的组件索引，每一行是: 类名=beanName|scope|是否BeanPostProcessor|属性名:类型,属性名:类型
+ *
+ * @author Mengkaili
+ * @since 2021/6/5
+ */
+public class ComponentIndex {
+
+    public static final String INDEX_LOCATION = "META-INF/mini-spring.components";
+
+    private final List<Entry> entries;
+
+    private ComponentIndex(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * 读取classpath上所有jar/目录里的索引，一个都没有时返回null
+     */
+    public static ComponentIndex load(ClassLoader classLoader) {
+        List<Entry> entries = new ArrayList<>();
+        try {
+            Enumeration<URL> resources = classLoader.getResources(INDEX_LOCATION);
+            if (!resources.hasMoreElements()) {
+                return null;
+            }
+            while (resources.hasMoreElements()) {
+                try (InputStream inputStream = resources.nextElement().openStream()) {
+                    for (Map.Entry<String, String> line : read(inputStream).entrySet()) {
+                        entries.add(parse(line.getKey(), line.getValue()));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return new ComponentIndex(entries);
+    }
+
+    public List<Entry> getCandidates(String basePackage) {
+        String prefix = basePackage + ".";
+        List<Entry> candidates = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.getClassName().startsWith(prefix)) {
+                candidates.add(entry);
+            }
+        }
+        return candidates;
+    }
+
+    static Map<String, String> read(InputStream inputStream) throws IOException {
+        Properties properties = new Properties();
+        properties.load(inputStream);
+        Map<String, String> lines = new TreeMap<>();
+        for (String className : properties.stringPropertyNames()) {
+            lines.put(className, properties.getProperty(className));
+        }
+        return lines;
+    }
+
+    // 不用Properties.store，避免输出里带上时间戳，相同的源码生成相同的索引
+    static void write(Map<String, String> lines, OutputStream outputStream) throws IOException {
+        Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.ISO_8859_1);
+        for (Map.Entry<String, String> line : new TreeMap<>(lines).entrySet()) {
+            writer.write(line.getKey() + "=" + line.getValue() + "\n");
+        }
+        writer.flush();
+    }
+
+    static String format(String beanName, String scope, boolean beanPostProcessor, String injectionPoints) {
+        return beanName + "|" + scope + "|" + beanPostProcessor + "|" + injectionPoints;
+    }
+
+    private static Entry parse(String className, String value) {
+        String[] parts = value.split("\\|", -1);
+        Entry entry = new Entry();
+        entry.className = className;
+        entry.beanName = parts[0];
+        entry.scope = parts[1];
+        entry.beanPostProcessor = Boolean.parseBoolean(parts[2]);
+        if (!parts[3].isEmpty()) {
+            for (String injectionPoint : parts[3].split(",")) {
+                int separator = injectionPoint.indexOf(':');
+                entry.injectionPoints.put(injectionPoint.substring(0, separator), injectionPoint.substring(separator + 1));
+            }
+        }
+        return entry;
+    }
+
+    public static class Entry {
+
+        private String className;
+        private String beanName;
+        private String scope;
+        private boolean beanPostProcessor;
+        private LinkedHashMap<String, String> injectionPoints = new LinkedHashMap<>();
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getBeanName() {
+            return beanName;
+        }
+
+        public String getScope() {
+            return scope;
+        }
+
+        public boolean isBeanPostProcessor() {
+            return beanPostProcessor;
+        }
+
+        public LinkedHashMap<String, String> getInjectionPoints() {
+            return injectionPoints;
+        }
+    }
+
+}
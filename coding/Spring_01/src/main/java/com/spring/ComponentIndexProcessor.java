@@ -0,0 +1,137 @@
+package com.spring;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 编译期扫描Component注解，把bean的信息写入{@link ComponentIndex#INDEX_LOCATION}，
+ * 运行时容器直接读取索引，不再遍历目录、逐个加载类判断注解
+ *
+ * @author Mengkaili
+ * @since 2021/6/5
+ */
+public class ComponentIndexProcessor extends AbstractProcessor {
+
+    private final Map<String, String> entries = new LinkedHashMap<>();
+
+    private boolean previousIndexRead;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(Component.class.getName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (!previousIndexRead) {
+            // 增量编译时只有修改过的类会进入这里，先把上一次的索引读进来
+            readPreviousIndex();
+            previousIndexRead = true;
+        }
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(Component.class)) {
+            if (element.getKind() == ElementKind.CLASS) {
+                TypeElement typeElement = (TypeElement) element;
+                entries.put(processingEnv.getElementUtils().getBinaryName(typeElement).toString(), describe(typeElement));
+            }
+        }
+
+        if (roundEnv.processingOver() && !entries.isEmpty()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private String describe(TypeElement typeElement) {
+        Types types = processingEnv.getTypeUtils();
+        String beanName = typeElement.getAnnotation(Component.class).value();
+        scope scopeAnnotation = typeElement.getAnnotation(scope.class);
+        String beanScope = scopeAnnotation == null ? "singleton" : scopeAnnotation.value();
+        TypeMirror postProcessorType = processingEnv.getElementUtils().getTypeElement(BeanPostProcessor.class.getName()).asType();
+        boolean beanPostProcessor = types.isAssignable(typeElement.asType(), postProcessorType);
+
+        StringBuilder injectionPoints = new StringBuilder();
+        for (VariableElement field : ElementFilter.fieldsIn(typeElement.getEnclosedElements())) {
+            if (field.getAnnotation(Autowired.class) != null) {
+                if (injectionPoints.length() > 0) {
+                    injectionPoints.append(',');
+                }
+                injectionPoints.append(field.getSimpleName()).append(':').append(binaryName(types.erasure(field.asType())));
+            }
+        }
+        return ComponentIndex.format(beanName, beanScope, beanPostProcessor, injectionPoints.toString());
+    }
+
+    // 内部类要用Class.forName能识别的名字
+    private String binaryName(TypeMirror type) {
+        Element element = processingEnv.getTypeUtils().asElement(type);
+        if (element instanceof TypeElement) {
+            return processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString();
+        }
+        return type.toString();
+    }
+
+    private void readPreviousIndex() {
+        try {
+            FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", ComponentIndex.INDEX_LOCATION);
+            try (InputStream inputStream = resource.openInputStream()) {
+                Map<String, String> previous = ComponentIndex.read(inputStream);
+                for (Map.Entry<String, String> entry : previous.entrySet()) {
+                    // 类已经被删除，或者不再是Component的，丢弃旧的索引项
+                    TypeElement typeElement = processingEnv.getElementUtils().getTypeElement(entry.getKey().replace('$', '.'));
+                    if (typeElement != null && hasComponentAnnotation(typeElement)) {
+                        entries.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // 第一次编译，没有旧的索引
+        }
+    }
+
+    private boolean hasComponentAnnotation(TypeElement typeElement) {
+        for (AnnotationMirror annotationMirror : typeElement.getAnnotationMirrors()) {
+            Element annotationType = annotationMirror.getAnnotationType().asElement();
+            if (((TypeElement) annotationType).getQualifiedName().contentEquals(Component.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", ComponentIndex.INDEX_LOCATION);
+            try (OutputStream outputStream = resource.openOutputStream()) {
+                ComponentIndex.write(entries, outputStream);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "写入组件索引失败: " + e.getMessage());
+        }
+    }
+
+}
@@ -14,6 +14,9 @@ import java.lang.annotation.Target;
 @Target({ElementType.TYPE})
 public @interface ComponentScan {
 
-    String value();
+    /**
+     * 扫描的包，包括所有子包，可以写多个
+     */
+    String[] value();
 
 }
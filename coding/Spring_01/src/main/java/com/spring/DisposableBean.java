@@ -0,0 +1,13 @@
+package com.spring;
+
+/**
+ * thread、request等作用域结束时回调，释放bean持有的资源
+ *
+ * @author Mengkaili
+ * @since 2021/6/24
+ */
+public interface DisposableBean {
+
+    void destroy() throws Exception;
+
+}
@@ -0,0 +1,45 @@
+package com.spring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在ApplicationListener上，指定事件怎样送到这个监听器，没有这个注解时在发布事件的线程里同步调用
+ *
+ * @author Mengkaili
+ * @since 2021/7/2
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface EventDispatch {
+
+    Mode value();
+
+    /**
+     * RING_BUFFER模式的队列长度，向上取整到2的幂；队列满了发布方等待
+     */
+    int capacity() default 1024;
+
+    /**
+     * BATCH模式一次任务最多处理的事件数，处理完还有剩余时重新提交任务，让出线程
+     */
+    int batchSize() default 256;
+
+    enum Mode {
+        /**
+         * 在发布事件的线程里调用
+         */
+        SYNC,
+        /**
+         * 先放进队列，由后台线程成批处理，队列不限长度
+         */
+        BATCH,
+        /**
+         * 放进定长的环形队列，由这个监听器专用的线程处理，队列满时发布方等待
+         */
+        RING_BUFFER
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.spring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 多个发布方、一个消费线程的定长环形队列。每个槽位带一个序号，发布方CAS抢占位置，
+ * 发布和消费都不加锁，也不为每个事件创建对象；队列满时发布方等待消费线程腾出位置
+ *
+ * @author Mengkaili
+ * @since 2021/7/2
+ */
+class EventRingBuffer {
+
+    private final Object[] events;
+    // 槽位的序号等于位置时可以写入，等于位置+1时可以读取
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // 只有消费线程读写
+    private long head;
+    private final Consumer<Object> consumer;
+    private final Thread thread;
+    private volatile boolean waiting;
+    private volatile boolean running = true;
+
+    EventRingBuffer(int capacity, Consumer<Object> consumer, String threadName) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.events = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.consumer = consumer;
+        this.thread = new Thread(this::consume, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void publish(Object event) {
+        long position;
+        int index;
+        int spins = 0;
+        while (true) {
+            position = tail.get();
+            index = (int) (position & mask);
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (sequence < position) {
+                // 队列满了，先自旋，再让出CPU，最后短暂休眠
+                if (++spins > 100) {
+                    LockSupport.parkNanos(1000);
+                } else if (spins > 10) {
+                    Thread.yield();
+                }
+            }
+            // sequence > position: 位置已经被其它发布方抢走，重新读取tail
+        }
+        events[index] = event;
+        sequences.set(index, position + 1);
+        if (waiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    private void consume() {
+        while (running) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) == head + 1) {
+                Object event = events[index];
+                events[index] = null;
+                sequences.set(index, head + events.length);
+                head++;
+                try {
+                    consumer.accept(event);
+                } catch (RuntimeException e) {
+                    // 一个事件处理失败不影响后面的事件
+                    e.printStackTrace();
+                }
+                continue;
+            }
+            // 先声明自己要休眠，再检查一次，发布方写完之后一定能看到waiting
+            waiting = true;
+            if (sequences.get(index) != head + 1 && running) {
+                LockSupport.parkNanos(this, 1_000_000);
+            }
+            waiting = false;
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.spring;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 监听组件扫描目录，有class文件新增、修改、删除时只重新加载变化的类和依赖它们的bean，
+ * 不需要重新创建整个容器
+ *
+ * @author Mengkaili
+ * @since 2021/6/26
+ */
+public class HotReloader implements Closeable {
+
+    private final MiniApplicationContext context;
+    private final long quietMillis;
+    // 监听的目录 -> 它所在的编译输出根目录，用来把文件路径换算成类名
+    private final Map<WatchKey, Path[]> watchedDirectories = new ConcurrentHashMap<>();
+    private volatile Consumer<Set<String>> listener;
+    private WatchService watchService;
+    private Thread thread;
+
+    public HotReloader(MiniApplicationContext context) {
+        this(context, 200);
+    }
+
+    /**
+     * @param quietMillis 编译器一次会写好几个文件，最后一次变化之后等这么久再一起重新加载
+     */
+    public HotReloader(MiniApplicationContext context, long quietMillis) {
+        this.context = context;
+        this.quietMillis = quietMillis;
+    }
+
+    /**
+     * 每次重新加载完成后回调，参数是被重建的beanName
+     */
+    public void setListener(Consumer<Set<String>> listener) {
+        this.listener = listener;
+    }
+
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+        Map<File, String> scanDirectories = context.getScanDirectories();
+        if (scanDirectories.isEmpty()) {
+            throw new IllegalStateException("组件不在目录里，无法热加载");
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        for (Map.Entry<File, String> entry : scanDirectories.entrySet()) {
+            Path scanDirectory = entry.getKey().toPath();
+            Path classesDirectory = scanDirectory;
+            for (int i = entry.getValue().split("\\.").length; i > 0; i--) {
+                classesDirectory = classesDirectory.getParent();
+            }
+            register(scanDirectory, classesDirectory, null);
+        }
+        thread = new Thread(this::watch, "mini-spring-hot-reload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (thread == null) {
+            return;
+        }
+        watchService.close();
+        thread.interrupt();
+        thread = null;
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                // 编译输出根目录 -> 变化的类
+                Map<Path, Set<String>> changes = new LinkedHashMap<>();
+                collect(watchService.take(), changes);
+                WatchKey key;
+                while ((key = watchService.poll(quietMillis, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changes);
+                }
+                for (Map.Entry<Path, Set<String>> change : changes.entrySet()) {
+                    try {
+                        Set<String> reloadedBeans = context.reload(change.getKey().toFile(), change.getValue());
+                        Consumer<Set<String>> listener = this.listener;
+                        if (listener != null) {
+                            listener.accept(reloadedBeans);
+                        }
+                    } catch (RuntimeException | LinkageError e) {
+                        // 这一次加载失败，原来的bean还在，继续监听，修好之后再次编译即可
+                        e.printStackTrace();
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // close()
+        }
+    }
+
+    private void collect(WatchKey key, Map<Path, Set<String>> changes) {
+        Path[] directories = watchedDirectories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directories == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                continue;
+            }
+            Path path = directories[0].resolve((Path) event.context());
+            Set<String> changedClassNames = changes.computeIfAbsent(directories[1], k -> new LinkedHashSet<>());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                // 新建的包也要监听，里面已经写好的类一起加载
+                try {
+                    register(path, directories[1], changedClassNames);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            } else {
+                addClassName(path, directories[1], changedClassNames);
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+    }
+
+    private void register(Path start, final Path classesDirectory, final Set<String> changedClassNames) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirectories.put(key, new Path[]{dir, classesDirectory});
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (changedClassNames != null) {
+                    addClassName(file, classesDirectory, changedClassNames);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void addClassName(Path path, Path classesDirectory, Set<String> changedClassNames) {
+        String relative = classesDirectory.relativize(path).toString();
+        if (relative.endsWith(".class")) {
+            changedClassNames.add(relative.substring(0, relative.length() - ".class".length())
+                    .replace(File.separatorChar, '.'));
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.spring;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.Map;
+
+/**
+ * 一个类的创建和注入信息，每个BeanDefinition只解析一次
+ * 构造方法和Autowired属性都转换成MethodHandle，之后创建prototype的bean不再走反射
+ *
+ * @author Mengkaili
+ * @since 2021/6/8
+ */
+public class InjectionMetadata {
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final MethodHandle constructor;
+    private final String[] beanNames;
+    private final MethodHandle[] setters;
+
+    private InjectionMetadata(MethodHandle constructor, String[] beanNames, MethodHandle[] setters) {
+        this.constructor = constructor;
+        this.beanNames = beanNames;
+        this.setters = setters;
+    }
+
+    /**
+     * @param dependencies 需要注入的属性名 -> 按类型解析出来的beanName
+     */
+    public static InjectionMetadata build(Class<?> clazz, Map<String, String> dependencies)
+            throws NoSuchMethodException, NoSuchFieldException, IllegalAccessException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        Constructor<?> declaredConstructor = clazz.getDeclaredConstructor();
+        declaredConstructor.setAccessible(true);
+        MethodHandle constructor = lookup.unreflectConstructor(declaredConstructor).asType(CONSTRUCTOR_TYPE);
+
+        String[] beanNames = new String[dependencies.size()];
+        MethodHandle[] setters = new MethodHandle[dependencies.size()];
+        int i = 0;
+        for (Map.Entry<String, String> dependency : dependencies.entrySet()) {
+            Field declaredField = clazz.getDeclaredField(dependency.getKey());
+            declaredField.setAccessible(true);
+            setters[i] = lookup.unreflectSetter(declaredField).asType(SETTER_TYPE);
+            beanNames[i] = dependency.getValue();
+            i++;
+        }
+        return new InjectionMetadata(constructor, beanNames, setters);
+    }
+
+    public Object newInstance() {
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void inject(Object instance, MiniApplicationContext context) {
+        for (int i = 0; i < setters.length; i++) {
+            Object bean = context.getBean(beanNames[i]);
+            try {
+                setters[i].invokeExact(instance, bean);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+}
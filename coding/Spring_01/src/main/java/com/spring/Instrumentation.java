@@ -0,0 +1,203 @@
+package com.spring;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 记录容器启动和创建bean时每个阶段的耗时和内存分配，以及prototype bean(所有非单例的bean)的创建次数
+ * 关闭时{@link #start()}返回一个什么都不做的Stopwatch，创建bean时不会有额外的分配
+ *
+ * @author Mengkaili
+ * @since 2021/6/20
+ */
+public class Instrumentation {
+
+    public enum Phase {
+        SCAN, CLASS_LOAD, INSTANTIATE, INJECT, AWARE, BEFORE_POST_PROCESS, INIT, AFTER_POST_PROCESS
+    }
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION_MX_BEAN;
+
+    static {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()) {
+            ALLOCATION_MX_BEAN = (com.sun.management.ThreadMXBean) threadMXBean;
+        } else {
+            ALLOCATION_MX_BEAN = null;
+        }
+    }
+
+    private static final Stopwatch NOOP = new Stopwatch(null);
+
+    private volatile boolean enabled;
+
+    private final PhaseStats[] contextStats = newPhaseStats();
+    private final ConcurrentHashMap<String, PhaseStats[]> beanStats = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PhaseStats[]> postProcessorStats = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> prototypeCreations = new ConcurrentHashMap<>();
+    private final LongAdder totalPrototypeCreations = new LongAdder();
+    private final ConcurrentHashMap<String, Exception> failures = new ConcurrentHashMap<>();
+    private volatile long startupNanos;
+
+    private final AtomicLong lastSampleNanos = new AtomicLong(System.nanoTime());
+    private final AtomicLong lastSampleCount = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 运行中也可以打开或关闭，只影响之后创建的bean
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Stopwatch start() {
+        return enabled ? new Stopwatch(this) : NOOP;
+    }
+
+    void countPrototype(String beanName) {
+        if (enabled) {
+            prototypeCreations.computeIfAbsent(beanName, k -> new LongAdder()).increment();
+            totalPrototypeCreations.increment();
+        }
+    }
+
+    void recordFailure(String beanName, Exception e) {
+        if (enabled) {
+            failures.put(beanName, e);
+        }
+    }
+
+    void setStartupNanos(long startupNanos) {
+        this.startupNanos = startupNanos;
+    }
+
+    public long getPrototypeCreationCount() {
+        return totalPrototypeCreations.sum();
+    }
+
+    public long getPrototypeCreationCount(String beanName) {
+        LongAdder counter = prototypeCreations.get(beanName);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * 距离上一次调用这个方法，每秒创建了多少个prototype bean
+     */
+    public double samplePrototypeCreationRate() {
+        long now = System.nanoTime();
+        long count = totalPrototypeCreations.sum();
+        long elapsed = now - lastSampleNanos.getAndSet(now);
+        long created = count - lastSampleCount.getAndSet(count);
+        return elapsed <= 0 ? 0 : created * 1_000_000_000.0 / elapsed;
+    }
+
+    public StartupReport getReport() {
+        return new StartupReport(startupNanos, snapshot(contextStats), snapshot(beanStats), snapshot(postProcessorStats),
+                new ConcurrentHashMap<>(failures));
+    }
+
+    private static Map<String, Map<Phase, StartupReport.Timing>> snapshot(Map<String, PhaseStats[]> stats) {
+        Map<String, Map<Phase, StartupReport.Timing>> snapshot = new ConcurrentHashMap<>();
+        for (Map.Entry<String, PhaseStats[]> entry : stats.entrySet()) {
+            snapshot.put(entry.getKey(), snapshot(entry.getValue()));
+        }
+        return snapshot;
+    }
+
+    private static Map<Phase, StartupReport.Timing> snapshot(PhaseStats[] stats) {
+        Map<Phase, StartupReport.Timing> snapshot = new EnumMap<>(Phase.class);
+        for (Phase phase : Phase.values()) {
+            PhaseStats phaseStats = stats[phase.ordinal()];
+            long count = phaseStats.count.sum();
+            if (count > 0) {
+                snapshot.put(phase, new StartupReport.Timing(count, phaseStats.nanos.sum(), phaseStats.bytes.sum()));
+            }
+        }
+        return snapshot;
+    }
+
+    private static PhaseStats[] newPhaseStats() {
+        PhaseStats[] stats = new PhaseStats[Phase.values().length];
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new PhaseStats();
+        }
+        return stats;
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATION_MX_BEAN == null ? 0 : ALLOCATION_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static class PhaseStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+    }
+
+    /**
+     * 在一个线程里使用，每次lap记录从上一次lap(或者创建、reset)到现在的耗时和分配的内存
+     */
+    public static class Stopwatch {
+
+        private final Instrumentation instrumentation;
+        private long startNanos;
+        private long startBytes;
+
+        private Stopwatch(Instrumentation instrumentation) {
+            this.instrumentation = instrumentation;
+            if (instrumentation != null) {
+                reset();
+            }
+        }
+
+        public void reset() {
+            if (instrumentation != null) {
+                startBytes = allocatedBytes();
+                startNanos = System.nanoTime();
+            }
+        }
+
+        /**
+         * @param beanName 为null时记录为容器级别的阶段，比如扫描
+         */
+        public void lap(String beanName, Phase phase) {
+            if (instrumentation != null) {
+                PhaseStats[] stats = beanName == null
+                        ? instrumentation.contextStats
+                        : instrumentation.beanStats.computeIfAbsent(beanName, k -> newPhaseStats());
+                record(stats[phase.ordinal()]);
+            }
+        }
+
+        public void lapPostProcessor(String beanName, Phase phase, BeanPostProcessor postProcessor) {
+            if (instrumentation != null) {
+                long nanos = System.nanoTime() - startNanos;
+                long bytes = allocatedBytes() - startBytes;
+                add(instrumentation.beanStats.computeIfAbsent(beanName, k -> newPhaseStats())[phase.ordinal()], nanos, bytes);
+                add(instrumentation.postProcessorStats.computeIfAbsent(postProcessor.getClass().getName(), k -> newPhaseStats())[phase.ordinal()], nanos, bytes);
+                reset();
+            }
+        }
+
+        private void record(PhaseStats stats) {
+            add(stats, System.nanoTime() - startNanos, allocatedBytes() - startBytes);
+            reset();
+        }
+
+        private static void add(PhaseStats stats, long nanos, long bytes) {
+            stats.count.increment();
+            stats.nanos.add(nanos);
+            stats.bytes.add(bytes);
+        }
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.spring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在配置类上，从启动开始记录各个阶段的耗时，见{@link MiniApplicationContext#getInstrumentation()}
+ *
+ * @author Mengkaili
+ * @since 2021/6/20
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface Instrumented {
+
+}
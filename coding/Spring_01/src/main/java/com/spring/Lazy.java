@@ -0,0 +1,18 @@
+package com.spring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 单例bean在容器启动时不创建，第一次getBean时才创建
+ *
+ * @author Mengkaili
+ * @since 2021/6/12
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface Lazy {
+
+}
@@ -0,0 +1,13 @@
+package com.spring;
+
+/**
+ * 代理对象上的方法拦截器，调用{@link MethodInvocation#proceed()}继续执行下一个拦截器或者目标方法
+ *
+ * @author Mengkaili
+ * @since 2021/6/18
+ */
+public interface MethodInterceptor {
+
+    Object invoke(MethodInvocation invocation) throws Throwable;
+
+}
@@ -0,0 +1,48 @@
+package com.spring;
+
+import java.lang.reflect.Method;
+
+/**
+ * 一次代理方法调用，依次经过所有拦截器，最后通过生成的{@link ProxyFactory.TargetInvoker}调用目标对象的方法，不走Method.invoke
+ *
+ * @author Mengkaili
+ * @since 2021/6/18
+ */
+public class MethodInvocation {
+
+    private final Object target;
+    private final Method method;
+    private final Object[] arguments;
+    private final MethodInterceptor[] interceptors;
+    private final ProxyFactory.TargetInvoker invoker;
+    private int index;
+
+    MethodInvocation(Object target, Method method, Object[] arguments, MethodInterceptor[] interceptors,
+                     ProxyFactory.TargetInvoker invoker) {
+        this.target = target;
+        this.method = method;
+        this.arguments = arguments;
+        this.interceptors = interceptors;
+        this.invoker = invoker;
+    }
+
+    public Object proceed() throws Throwable {
+        if (index < interceptors.length) {
+            return interceptors[index++].invoke(this);
+        }
+        return invoker.invoke(target, arguments);
+    }
+
+    public Object getTarget() {
+        return target;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public Object[] getArguments() {
+        return arguments;
+    }
+
+}
@@ -2,150 +2,1321 @@ package com.spring;
 
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 
 /**
  * @author Mengkaili
  * @since 2021/4/26
  */
-public class MiniApplicationContext {
+public class MiniApplicationContext implements ApplicationEventPublisher {
 
     private Class configClass;
+    // 自己没有定义的bean、作用域到父容器里找，父容器不会看到子容器的bean
+    private final MiniApplicationContext parent;
 
     private ConcurrentHashMap<String, Object> singleObjects = new ConcurrentHashMap<>();
     private ConcurrentHashMap<String, BeanDefinition> beanDefinitionMap = new ConcurrentHashMap<>();
     private List<BeanPostProcessor> beanPostProcessorList = new ArrayList<>();
+    // 按Order排好序的beanName -> BeanPostProcessor，热加载时给新的bean重新筛选
+    private Map<String, BeanPostProcessor> postProcessorsByName = new LinkedHashMap<>();
+    // 类型名 -> 这个类型(包括父类和接口)的所有beanName，扫描完成后建立，之后只读
+    private Map<String, List<String>> typeIndex = new HashMap<>();
+    private ConcurrentHashMap<String, BeanPool> beanPools = new ConcurrentHashMap<>();
+    // 正在创建的单例bean，同一个bean只会有一个线程创建，其它线程等待它的future
+    private ConcurrentHashMap<String, SingletonCreation> singletonsInCreation = new ConcurrentHashMap<>();
+    // 线程 -> 它正在等待的单例bean，用来发现跨线程的循环依赖
+    private ConcurrentHashMap<Thread, SingletonCreation> waitingThreads = new ConcurrentHashMap<>();
+    private final Instrumentation instrumentation = new Instrumentation();
+    // 这次启动是否直接用了快照里的解析结果，没有扫描组件
+    private boolean startedFromSnapshot;
+    // 热加载过的类 -> 类文件所在的目录，之后每次热加载都在新的类加载器里重新定义，旧的类加载器随旧的bean一起回收
+    private final Map<String, File> reloadedClasses = new LinkedHashMap<>();
+    // AsyncInit的bean执行初始化的线程池，第一次用到时创建
+    private volatile ExecutorService asyncInitExecutor;
+    // 启动时在后台初始化的bean，以及依赖它们的bean，全部完成后完成
+    private volatile CompletableFuture<Void> readiness = CompletableFuture.completedFuture(null);
+    private final ApplicationEventMulticaster eventMulticaster = new ApplicationEventMulticaster(this);
+    // singleton、prototype、pooled之外的作用域
+    private ConcurrentHashMap<String, Scope> scopes = new ConcurrentHashMap<>();
 
     public MiniApplicationContext(Class configClass) {
+        this(configClass, null);
+    }
+
+    /**
+     * 只包含通过{@link #registerSingleton}注册的bean的子容器，不扫描，创建的开销只和注册的bean数量有关
+     */
+    public MiniApplicationContext(MiniApplicationContext parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * 子容器只扫描configClass里的bean，同名或同类型时覆盖父容器的bean，
+     * 其余的bean直接使用父容器的单例，不会重新创建；
+     * 父容器的BeanPostProcessor不会处理子容器的bean
+     */
+    public MiniApplicationContext(Class configClass, MiniApplicationContext parent) {
         this.configClass = configClass;
+        this.parent = parent;
+        long startNanos = System.nanoTime();
+        instrumentation.setEnabled(configClass.isAnnotationPresent(Instrumented.class));
+        if (parent == null) {
+            scopes.put("thread", new ThreadScope());
+            scopes.put("request", new RequestScope());
+        }
 
         //解析配置类
         //ComponentScan注解，扫描路径，扫描，BeanDefinition，BeanDefinitionMap
-        scan(configClass);
+        Map<String, Set<String>> dependencyGraph;
+        List<String> creationOrder;
+        List<String> cyclicBeans;
+        List<String> postProcessorNames;
+
+        SnapshotStartup snapshotStartup = (SnapshotStartup) configClass.getDeclaredAnnotation(SnapshotStartup.class);
+        BeanGraphSnapshot snapshot = null;
+        long discoveryFingerprint = 0;
+        if (snapshotStartup != null) {
+            discoveryFingerprint = discoveryFingerprint(configClass);
+            snapshot = BeanGraphSnapshot.read(new File(snapshotStartup.value()), configClass, discoveryFingerprint);
+        }
+
+        Instrumentation.Stopwatch stopwatch = instrumentation.start();
+        if (snapshot != null) {
+            // 快照和当前的类一致，直接恢复解析结果
+            restoreSnapshot(snapshot);
+            startedFromSnapshot = true;
+            dependencyGraph = snapshot.getDependencyGraph();
+            creationOrder = snapshot.getCreationOrder();
+            cyclicBeans = snapshot.getCyclicBeans();
+            postProcessorNames = snapshot.getPostProcessorNames();
+            stopwatch.lap(null, Instrumentation.Phase.SCAN);
+        } else {
+            scan(configClass);
+            stopwatch.lap(null, Instrumentation.Phase.SCAN);
+            buildTypeIndex();
+            postProcessorNames = resolvePostProcessorChains();
+
+            //根据Autowired属性构建单例bean之间的依赖关系，依赖的bean先创建
+            dependencyGraph = buildSingletonDependencyGraph();
+            creationOrder = new ArrayList<>();
+            cyclicBeans = new ArrayList<>();
+            sortByDependency(dependencyGraph, creationOrder, cyclicBeans);
+
+            if (snapshotStartup != null) {
+                writeSnapshot(new File(snapshotStartup.value()), discoveryFingerprint, dependencyGraph, creationOrder, cyclicBeans, postProcessorNames);
+            }
+        }
+        registerBeanPostProcessors(postProcessorNames);
         for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
-            String beanName = entry.getKey();
-            BeanDefinition beanDefinition = entry.getValue();
-            if (beanDefinition.getScope().equals("singleton")) {
-                Object bean = createBean(beanName, beanDefinition);
-                singleObjects.put(beanName, bean);
+            eventMulticaster.registerListener(entry.getKey(), entry.getValue());
+        }
+
+        if (configClass.isAnnotationPresent(ParallelStartup.class)) {
+            ParallelStartup parallelStartup = (ParallelStartup) configClass.getDeclaredAnnotation(ParallelStartup.class);
+            readiness = createSingletonsInParallel(dependencyGraph, creationOrder, parallelStartup.value());
+        } else {
+            readiness = createSingletons(dependencyGraph, creationOrder);
+        }
+
+        // 存在循环依赖的bean无法排序，逐个创建，互相注入提前暴露的引用
+        for (String beanName : cyclicBeans) {
+            createSingleton(beanName);
+        }
+
+        // pooled的bean可能依赖单例bean，放到最后预先创建
+        for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
+            if (entry.getValue().getScope().equals("pooled")) {
+                createBeanPool(entry.getKey(), entry.getValue());
             }
         }
 
+        instrumentation.setStartupNanos(System.nanoTime() - startNanos);
     }
 
-    //创建Bean
-    public Object createBean(String beanName, BeanDefinition beanDefinition) {
-        Class clazz = beanDefinition.getClazz();
+    /**
+     * 配置类上有{@link SnapshotStartup}并且快照仍然有效时为true，此时没有扫描组件、没有重新构建依赖图
+     */
+    public boolean isStartedFromSnapshot() {
+        return startedFromSnapshot;
+    }
+
+    /**
+     * 注册自定义作用域，同名时覆盖；singleton、prototype、pooled不能被替换
+     */
+    public void registerScope(String scopeName, Scope scope) {
+        if (scopeName.equals("singleton") || scopeName.equals("prototype") || scopeName.equals("pooled")) {
+            throw new IllegalArgumentException("不能替换内置的作用域: " + scopeName);
+        }
+        scopes.put(scopeName, scope);
+    }
+
+    public Scope getRegisteredScope(String scopeName) {
+        Scope scope = scopes.get(scopeName);
+        if (scope == null && parent != null) {
+            return parent.getRegisteredScope(scopeName);
+        }
+        return scope;
+    }
+
+    /**
+     * 先通知自己的监听器，再交给父容器
+     */
+    @Override
+    public void publishEvent(Object event) {
+        eventMulticaster.multicastEvent(event);
+        if (parent != null) {
+            parent.publishEvent(event);
+        }
+    }
+
+    public MiniApplicationContext getParent() {
+        return parent;
+    }
+
+    /**
+     * 注册一个已经创建好的单例，同名时覆盖父容器的bean；不经过依赖注入和BeanPostProcessor
+     */
+    public synchronized void registerSingleton(String beanName, Object singleton) {
+        if (beanDefinitionMap.containsKey(beanName)) {
+            throw new IllegalStateException("bean已经存在: " + beanName);
+        }
+        BeanDefinition beanDefinition = new BeanDefinition();
+        beanDefinition.setClazz(singleton.getClass());
+        beanDefinition.setScope("singleton");
+        singleObjects.put(beanName, singleton);
+        beanDefinitionMap.put(beanName, beanDefinition);
+        eventMulticaster.registerListener(beanName, beanDefinition);
+
+        addToTypeIndex(beanName, singleton.getClass());
+    }
+
+    public boolean containsBean(String beanName) {
+        return beanDefinitionMap.containsKey(beanName) || (parent != null && parent.containsBean(beanName));
+    }
+
+    /**
+     * 配置类上有@Instrumented时从启动开始记录，也可以在运行中打开
+     */
+    public Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    private void createBeanPool(String beanName, BeanDefinition beanDefinition) {
+        Class<?> clazz = beanDefinition.getClazz();
+        int size = clazz.isAnnotationPresent(PoolSize.class)
+                ? clazz.getDeclaredAnnotation(PoolSize.class).value()
+                : Runtime.getRuntime().availableProcessors() * 2;
+        BeanPool beanPool = new BeanPool(size);
+        for (int i = 0; i < size; i++) {
+            // 放进池子的是经过BeanPostProcessor处理之后的对象，代理只创建一次
+            beanPool.offer(createBean(beanName, beanDefinition));
+        }
+        beanPools.put(beanName, beanPool);
+    }
+
+    /**
+     * 从池子里借出一个pooled的bean，用完之后要调用{@link #releaseBean}归还；池子空了就新建一个。
+     * 只有这里会从池子里取实例，getBean、getBeansOfType和Autowired得到的是单独创建的实例，不需要归还
+     */
+    public Object borrowBean(String beanName) {
+        BeanDefinition beanDefinition = beanDefinitionMap.get(beanName);
+        if (beanDefinition == null || !beanDefinition.getScope().equals("pooled")) {
+            throw new IllegalArgumentException(beanName + "不是pooled作用域的bean");
+        }
+        // 单例bean注入pooled的bean时池子可能还没有创建
+        BeanPool beanPool = beanPools.get(beanName);
+        Object bean = beanPool == null ? null : beanPool.poll();
+        if (bean == null) {
+            bean = createBean(beanName, beanDefinition);
+        }
+        return bean;
+    }
+
+    /**
+     * 归还借出的bean，先回调{@link ResettableBean#reset()}；reset失败或者池子已满的实例直接丢弃
+     */
+    public void releaseBean(String beanName, Object bean) {
+        BeanPool beanPool = beanPools.get(beanName);
+        if (beanPool == null) {
+            throw new IllegalArgumentException(beanName + "不是pooled作用域的bean");
+        }
+        if (bean instanceof ResettableBean) {
+            try {
+                ((ResettableBean) bean).reset();
+            } catch (Exception e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+        beanPool.offer(bean);
+    }
+
+    private void createSingleton(String beanName) {
+        getSingleton(beanName);
+    }
+
+    /**
+     * 取单例bean，还没有创建就在当前线程创建，并发访问时只会创建一次
+     */
+    private Object getSingleton(String beanName) {
+        return getSingleton(beanName, true);
+    }
+
+    /**
+     * @param await AsyncInit的bean是否等待初始化完成，不等待时返回null
+     */
+    private Object getSingleton(String beanName, boolean await) {
+        Object bean = singleObjects.get(beanName);
+        if (bean != null) {
+            return bean;
+        }
+
+        SingletonCreation creation = new SingletonCreation();
+        SingletonCreation existing = singletonsInCreation.putIfAbsent(beanName, creation);
+        if (existing != null) {
+            return await ? awaitSingleton(existing) : null;
+        }
+
+        boolean initializingAsync = false;
+        try {
+            // 可能在上面的get和putIfAbsent之间刚好创建完
+            bean = singleObjects.get(beanName);
+            if (bean == null) {
+                BeanDefinition beanDefinition = beanDefinitionMap.get(beanName);
+                if (beanDefinition.isAsyncInit()) {
+                    initializingAsync = true;
+                    createBeanAsync(beanName, beanDefinition, creation);
+                    return await ? awaitSingleton(creation) : null;
+                }
+                bean = createBean(beanName, beanDefinition);
+                checkEarlyReference(beanName, creation, bean);
+                if (bean != null) {
+                    singleObjects.put(beanName, bean);
+                }
+            }
+            creation.future.complete(bean);
+            return bean;
+        } catch (RuntimeException | Error e) {
+            creation.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            // 后台初始化的bean完成时自己移除
+            if (!initializingAsync) {
+                singletonsInCreation.remove(beanName, creation);
+            }
+        }
+    }
+
+    // 实例化和注入在当前线程完成，初始化交给后台线程，完成后才放进singleObjects
+    private void createBeanAsync(String beanName, BeanDefinition beanDefinition, SingletonCreation creation) {
+        Object instance = null;
+        try {
+            instance = instantiate(beanName, beanDefinition, instrumentation.start());
+        } catch (Exception e) {
+            instrumentation.recordFailure(beanName, e);
+            e.printStackTrace();
+        }
+        // 之后同一个线程再获取这个bean也要等初始化完成，不能拿提前暴露的引用
+        creation.thread = null;
+        if (instance == null) {
+            singletonsInCreation.remove(beanName, creation);
+            creation.future.complete(null);
+            return;
+        }
+
+        Object target = instance;
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return initialize(beanName, beanDefinition, target, instrumentation.start());
+            } catch (Exception e) {
+                instrumentation.recordFailure(beanName, e);
+                throw new CompletionException(e);
+            }
+        }, getAsyncInitExecutor()).thenApply(bean -> {
+            checkEarlyReference(beanName, creation, bean);
+            return bean;
+        }).whenComplete((bean, e) -> {
+            if (bean != null) {
+                singleObjects.put(beanName, bean);
+            }
+            singletonsInCreation.remove(beanName, creation);
+            if (e != null) {
+                creation.future.completeExceptionally(e);
+            } else {
+                creation.future.complete(bean);
+            }
+        });
+    }
+
+    // 循环依赖的对方拿到的是BeanPostProcessor处理之前的原始对象，BeanPostProcessor把它换成了别的对象(比如代理)时，
+    // 对方持有的引用就不是最终的bean，无法补救，直接报错
+    // 单例已经开始创建、还没有放进singleObjects
+    boolean isSingletonInCreation(String beanName) {
+        return singletonsInCreation.containsKey(beanName);
+    }
+
+    private static void checkEarlyReference(String beanName, SingletonCreation creation, Object bean) {
+        if (creation.earlyReferenceExposed && bean != null && bean != creation.earlyReference) {
+            throw new IllegalStateException("bean " + beanName + "在循环依赖中以原始对象注入给了其它bean，"
+                    + "之后又被BeanPostProcessor包装成了" + bean.getClass().getName() + "，其它bean持有的不是最终的bean");
+        }
+    }
+
+    private Object awaitSingleton(SingletonCreation creation) {
+        Thread currentThread = Thread.currentThread();
+        if (creation.thread == currentThread) {
+            // 同一个线程里的循环依赖，注入提前暴露的引用
+            return exposeEarlyReference(creation);
+        }
+
+        // 先登记自己在等谁，再检查有没有形成环；两个线程互相等待时，后登记的一方一定能看到环
+        waitingThreads.put(currentThread, creation);
         try {
-            Object instance = clazz.getDeclaredConstructor().newInstance();
+            if (isWaitingCycle(creation) && creation.earlyReference != null) {
+                return exposeEarlyReference(creation);
+            }
+            return creation.future.join();
+        } finally {
+            waitingThreads.remove(currentThread);
+        }
+    }
+
+    private static Object exposeEarlyReference(SingletonCreation creation) {
+        Object earlyReference = creation.earlyReference;
+        if (earlyReference != null) {
+            creation.earlyReferenceExposed = true;
+        }
+        return earlyReference;
+    }
+
+    // 沿着"创建者正在等待的bean的创建者"一路找下去，回到当前线程说明出现了跨线程的循环依赖
+    private boolean isWaitingCycle(SingletonCreation creation) {
+        Thread currentThread = Thread.currentThread();
+        Set<Thread> visited = new HashSet<>();
+        Thread owner = creation.thread;
+        while (owner != null && visited.add(owner)) {
+            if (owner == currentThread) {
+                return true;
+            }
+            SingletonCreation waitingFor = waitingThreads.get(owner);
+            owner = waitingFor == null ? null : waitingFor.thread;
+        }
+        return false;
+    }
+
+    private static class SingletonCreation {
+
+        // 后台初始化时置为null
+        private volatile Thread thread = Thread.currentThread();
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        // 实例化之后、注入之前的原始对象，循环依赖时提前注入给对方，不会经过BeanPostProcessor
+        private volatile Object earlyReference;
+        // 提前暴露的引用是否已经注入给了其它bean
+        private volatile boolean earlyReferenceExposed;
+    }
+
+    /**
+     * 按顺序在当前线程创建单例；依赖了后台初始化中的bean的，等依赖初始化完成后在后台创建
+     *
+     * @return 后台的创建和初始化全部完成后完成
+     */
+    private CompletableFuture<Void> createSingletons(Map<String, Set<String>> dependencyGraph, List<String> creationOrder) {
+        Map<String, CompletableFuture<?>> background = new HashMap<>();
+        for (String beanName : creationOrder) {
+            List<CompletableFuture<?>> dependencyFutures = new ArrayList<>();
+            for (String dependency : dependencyGraph.get(beanName)) {
+                CompletableFuture<?> future = background.get(dependency);
+                if (future != null && !future.isDone()) {
+                    dependencyFutures.add(future);
+                }
+            }
+            if (dependencyFutures.isEmpty()) {
+                CompletableFuture<Object> future = startSingleton(beanName);
+                if (!future.isDone()) {
+                    background.put(beanName, future);
+                }
+            } else {
+                background.put(beanName, CompletableFuture.allOf(dependencyFutures.toArray(new CompletableFuture<?>[0]))
+                        .thenRunAsync(() -> createSingleton(beanName), getAsyncInitExecutor()));
+            }
+        }
+        return CompletableFuture.allOf(background.values().toArray(new CompletableFuture<?>[0]));
+    }
+
+    // 每个单例bean在它依赖的单例bean都创建完成之后立即开始创建，启动耗时取决于最长的依赖链
+    private CompletableFuture<Void> createSingletonsInParallel(Map<String, Set<String>> dependencyGraph, List<String> creationOrder, int parallelism) {
+        if (parallelism <= 0) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Map<String, CompletableFuture<Object>> futures = new HashMap<>();
+        // AsyncInit的bean，以及直接或间接依赖它们的bean，启动时不等待
+        Set<String> background = new HashSet<>();
+        for (String beanName : creationOrder) {
+            Set<String> dependencies = dependencyGraph.get(beanName);
+            CompletableFuture<?>[] dependencyFutures = new CompletableFuture<?>[dependencies.size()];
+            int i = 0;
+            for (String dependency : dependencies) {
+                dependencyFutures[i++] = futures.get(dependency);
+                if (background.contains(dependency)) {
+                    background.add(beanName);
+                }
+            }
+            if (beanDefinitionMap.get(beanName).isAsyncInit()) {
+                background.add(beanName);
+            }
+            futures.put(beanName, CompletableFuture.allOf(dependencyFutures)
+                    .thenComposeAsync(v -> startSingleton(beanName), pool));
+        }
+
+        List<CompletableFuture<?>> foreground = new ArrayList<>();
+        List<CompletableFuture<?>> backgroundFutures = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<Object>> entry : futures.entrySet()) {
+            (background.contains(entry.getKey()) ? backgroundFutures : foreground).add(entry.getValue());
+        }
+        // 后台的bean完成之前线程池还要继续用
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).whenComplete((v, e) -> pool.shutdown());
+        CompletableFuture.allOf(foreground.toArray(new CompletableFuture<?>[0])).join();
+        return CompletableFuture.allOf(backgroundFutures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * 启动时创建单例，AsyncInit的bean不等初始化完成
+     *
+     * @return 初始化完成后完成
+     */
+    private CompletableFuture<Object> startSingleton(String beanName) {
+        Object bean = getSingleton(beanName, false);
+        if (bean != null) {
+            return CompletableFuture.completedFuture(bean);
+        }
+        SingletonCreation creation = singletonsInCreation.get(beanName);
+        return creation == null ? CompletableFuture.completedFuture(singleObjects.get(beanName)) : creation.future;
+    }
 
-            // 依赖注入
-            for (Field declaredField : clazz.getDeclaredFields()) {
-                // 获取类中的所有属性，并对有Autowired注解的属性进行赋值
-                if (declaredField.isAnnotationPresent(Autowired.class)) {
-                    Object bean = getBean(declaredField.getName());
-                    declaredField.setAccessible(true);
-                    declaredField.set(instance, bean);
+    private ExecutorService getAsyncInitExecutor() {
+        ExecutorService executor = asyncInitExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = asyncInitExecutor;
+                if (executor == null) {
+                    // 初始化多半是在等IO，线程空闲一段时间后自动回收，不需要关闭
+                    AtomicInteger threadNumber = new AtomicInteger();
+                    executor = Executors.newCachedThreadPool(runnable -> {
+                        Thread thread = new Thread(runnable, "mini-spring-init-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    asyncInitExecutor = executor;
                 }
             }
+        }
+        return executor;
+    }
+
+    /**
+     * 启动时在后台初始化的bean，以及依赖它们的bean，全部完成后完成；有bean初始化失败时异常完成
+     */
+    public CompletableFuture<Void> getReadiness() {
+        return readiness;
+    }
+
+    public boolean isReady() {
+        return readiness.isDone() && !readiness.isCompletedExceptionally();
+    }
 
-            // Aware回调
-            if (instance instanceof BeanNameAware) {
-                ((BeanNameAware)instance).setBeanName(beanName);
+    // 单例bean -> 创建它之前必须已经存在的单例bean
+    // prototype和Lazy的bean在注入时才创建，所以要继续沿着它的依赖找到背后的单例bean
+    private Map<String, Set<String>> buildSingletonDependencyGraph() {
+        Map<String, Set<String>> dependencyGraph = new LinkedHashMap<>();
+        for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
+            if (isEagerSingleton(entry.getValue())) {
+                Set<String> dependencies = new LinkedHashSet<>();
+                collectSingletonDependencies(entry.getValue(), dependencies, new HashSet<>());
+                dependencies.remove(entry.getKey());
+                dependencyGraph.put(entry.getKey(), dependencies);
             }
+        }
+        return dependencyGraph;
+    }
 
-            for (BeanPostProcessor beanPostProcessor : beanPostProcessorList) {
-                instance = beanPostProcessor.postProcessBeforeInitialization(instance, beanName);
+    private void collectSingletonDependencies(BeanDefinition beanDefinition, Set<String> dependencies, Set<String> visitedPrototypes) {
+        for (Map.Entry<String, String> injectionPoint : beanDefinition.getInjectionPoints().entrySet()) {
+            String dependency = resolveDependency(injectionPoint.getKey(), injectionPoint.getValue());
+            BeanDefinition dependencyDefinition = beanDefinitionMap.get(dependency);
+            if (dependencyDefinition == null) {
+                continue;
             }
+            if (isEagerSingleton(dependencyDefinition)) {
+                dependencies.add(dependency);
+            } else if (visitedPrototypes.add(dependency)) {
+                collectSingletonDependencies(dependencyDefinition, dependencies, visitedPrototypes);
+            }
+        }
+    }
+
+    private boolean isEagerSingleton(BeanDefinition beanDefinition) {
+        return beanDefinition.getScope().equals("singleton") && !beanDefinition.isLazy();
+    }
 
-            // 初始化
-            if (instance instanceof InitializingBean) {
-                ((InitializingBean)instance).afterPropertiesSet();
+    // 拓扑排序(Kahn算法)，排不进去的就是处于循环依赖中的bean
+    private void sortByDependency(Map<String, Set<String>> dependencyGraph, List<String> creationOrder, List<String> cyclicBeans) {
+        Map<String, Integer> inDegree = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : dependencyGraph.entrySet()) {
+            inDegree.put(entry.getKey(), entry.getValue().size());
+            for (String dependency : entry.getValue()) {
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(entry.getKey());
             }
+        }
 
-            for (BeanPostProcessor beanPostProcessor : beanPostProcessorList) {
-                instance = beanPostProcessor.postProcessAfterInitialization(instance, beanName);
+        Deque<String> ready = new ArrayDeque<>();
+        for (Map.Entry<String, Integer> entry : inDegree.entrySet()) {
+            if (entry.getValue() == 0) {
+                ready.add(entry.getKey());
             }
+        }
+        while (!ready.isEmpty()) {
+            String beanName = ready.poll();
+            creationOrder.add(beanName);
+            for (String dependent : dependents.getOrDefault(beanName, Collections.<String>emptyList())) {
+                if (inDegree.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
 
-            return instance;
+        for (String beanName : dependencyGraph.keySet()) {
+            if (inDegree.get(beanName) > 0) {
+                cyclicBeans.add(beanName);
+            }
+        }
+    }
+
+    //创建Bean
+    public Object createBean(String beanName, BeanDefinition beanDefinition) {
+        Instrumentation.Stopwatch stopwatch = instrumentation.start();
+        try {
+            Object instance = instantiate(beanName, beanDefinition, stopwatch);
+            return initialize(beanName, beanDefinition, instance, stopwatch);
         } catch (Exception e) {
+            instrumentation.recordFailure(beanName, e);
             e.printStackTrace();
         }
         return null;
     }
 
-    private void scan(Class configClass) {
+    // 实例化、依赖注入、Aware回调和初始化之前的BeanPostProcessor
+    private Object instantiate(String beanName, BeanDefinition beanDefinition, Instrumentation.Stopwatch stopwatch) throws Exception {
+        InjectionMetadata injectionMetadata = getInjectionMetadata(beanDefinition);
+        Object instance = injectionMetadata.newInstance();
+        stopwatch.lap(beanName, Instrumentation.Phase.INSTANTIATE);
+
+        // 单例bean提前暴露引用，解决循环依赖
+        if (beanDefinition.getScope().equals("singleton")) {
+            SingletonCreation creation = singletonsInCreation.get(beanName);
+            if (creation != null && creation.thread == Thread.currentThread()) {
+                creation.earlyReference = instance;
+            }
+        } else {
+            instrumentation.countPrototype(beanName);
+        }
+
+        // 依赖注入，对有Autowired注解的属性进行赋值
+        injectionMetadata.inject(instance, this);
+        stopwatch.lap(beanName, Instrumentation.Phase.INJECT);
+
+        // Aware回调
+        if (instance instanceof BeanNameAware) {
+            ((BeanNameAware)instance).setBeanName(beanName);
+            stopwatch.lap(beanName, Instrumentation.Phase.AWARE);
+        }
+        if (instance instanceof ApplicationEventPublisherAware) {
+            ((ApplicationEventPublisherAware)instance).setApplicationEventPublisher(this);
+            stopwatch.lap(beanName, Instrumentation.Phase.AWARE);
+        }
+
+        for (BeanPostProcessor beanPostProcessor : beanDefinition.getPostProcessors()) {
+            instance = beanPostProcessor.postProcessBeforeInitialization(instance, beanName);
+            stopwatch.lapPostProcessor(beanName, Instrumentation.Phase.BEFORE_POST_PROCESS, beanPostProcessor);
+        }
+        return instance;
+    }
+
+    // 初始化和初始化之后的BeanPostProcessor
+    private Object initialize(String beanName, BeanDefinition beanDefinition, Object instance, Instrumentation.Stopwatch stopwatch) throws Exception {
+        if (instance instanceof InitializingBean) {
+            ((InitializingBean)instance).afterPropertiesSet();
+            stopwatch.lap(beanName, Instrumentation.Phase.INIT);
+        }
+
+        for (BeanPostProcessor beanPostProcessor : beanDefinition.getPostProcessors()) {
+            instance = beanPostProcessor.postProcessAfterInitialization(instance, beanName);
+            stopwatch.lapPostProcessor(beanName, Instrumentation.Phase.AFTER_POST_PROCESS, beanPostProcessor);
+        }
+        return instance;
+    }
+
+    private InjectionMetadata getInjectionMetadata(BeanDefinition beanDefinition)
+            throws NoSuchMethodException, NoSuchFieldException, IllegalAccessException {
+        InjectionMetadata injectionMetadata = beanDefinition.getInjectionMetadata();
+        if (injectionMetadata == null) {
+            // 并发创建时可能重复解析，结果相同，不需要加锁
+            Map<String, String> dependencies = new LinkedHashMap<>();
+            for (Map.Entry<String, String> injectionPoint : beanDefinition.getInjectionPoints().entrySet()) {
+                dependencies.put(injectionPoint.getKey(), resolveDependency(injectionPoint.getKey(), injectionPoint.getValue()));
+            }
+            injectionMetadata = InjectionMetadata.build(beanDefinition.getClazz(), dependencies);
+            beanDefinition.setInjectionMetadata(injectionMetadata);
+        }
+        return injectionMetadata;
+    }
+
+    /**
+     * 给每个BeanDefinition算出适用的BeanPostProcessor，按Order排好序，创建bean时不再逐个判断
+     *
+     * @return 排好序的所有BeanPostProcessor的beanName
+     */
+    private List<String> resolvePostProcessorChains() {
+        List<String> postProcessorNames = new ArrayList<>();
+        for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
+            if (entry.getValue().isBeanPostProcessor()) {
+                postProcessorNames.add(entry.getKey());
+            }
+        }
+        postProcessorNames.sort((a, b) -> Integer.compare(getOrder(a), getOrder(b)));
+
+        for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
+            if (entry.getValue().isBeanPostProcessor()) {
+                continue;
+            }
+            List<String> chain = new ArrayList<>();
+            for (String postProcessorName : postProcessorNames) {
+                if (appliesTo(beanDefinitionMap.get(postProcessorName), entry.getKey(), entry.getValue())) {
+                    chain.add(postProcessorName);
+                }
+            }
+            entry.getValue().setPostProcessorNames(chain);
+        }
+        return postProcessorNames;
+    }
+
+    /**
+     * BeanPostProcessor也通过getBean创建，可以注入其它bean
+     */
+    private void registerBeanPostProcessors(List<String> postProcessorNames) {
+        // BeanPostProcessor本身，以及它在这里注入的bean，不会经过BeanPostProcessor处理
+        Map<String, BeanPostProcessor> postProcessors = postProcessorsByName;
+        for (String beanName : postProcessorNames) {
+            BeanPostProcessor postProcessor = (BeanPostProcessor) getBean(beanName);
+            beanPostProcessorList.add(postProcessor);
+            postProcessors.put(beanName, postProcessor);
+        }
+
+        for (BeanDefinition beanDefinition : beanDefinitionMap.values()) {
+            List<String> chain = beanDefinition.getPostProcessorNames();
+            BeanPostProcessor[] instances = new BeanPostProcessor[chain.size()];
+            for (int i = 0; i < instances.length; i++) {
+                instances[i] = postProcessors.get(chain.get(i));
+            }
+            beanDefinition.setPostProcessors(instances);
+        }
+    }
+
+    // 组件列表的指纹：优先用组件索引里的类名，没有索引时用扫描目录下的文件名
+    // 没有组件索引时这里仍然要遍历一次包目录，快照省掉的只是加载和解析类的部分
+    private long discoveryFingerprint(Class configClass) {
         ComponentScan componentScanAnnotation = (ComponentScan) configClass.getDeclaredAnnotation(ComponentScan.class);
-        String path = componentScanAnnotation.value();
-        path = path.replace(".", "/");
-
-        //扫描
-        ClassLoader classLoader = MiniApplicationContext.class.getClassLoader();
-        URL resource = classLoader.getResource(path);
-        File file = new File(resource.getFile());
-        if (file.isDirectory()) {
-            File[] files = file.listFiles();
-            for (File f : files) {
-                String fileName = f.getAbsolutePath();
-                String className = fileName.substring(fileName.indexOf("com"), fileName.indexOf(".class"));
-                className = className.replace("/", ".");
+        ClassLoader classLoader = configClass.getClassLoader();
 
-                try {
-                    Class<?> clazz = classLoader.loadClass(className);
+        CRC32 crc32 = new CRC32();
+        ComponentIndex componentIndex = ComponentIndex.load(classLoader);
+        for (String basePackage : componentScanAnnotation.value()) {
+            crc32.update(basePackage.getBytes(StandardCharsets.UTF_8));
+            List<ComponentIndex.Entry> candidates = componentIndex == null
+                    ? Collections.<ComponentIndex.Entry>emptyList()
+                    : componentIndex.getCandidates(basePackage);
+            if (!candidates.isEmpty()) {
+                for (ComponentIndex.Entry entry : candidates) {
+                    crc32.update(entry.getClassName().getBytes(StandardCharsets.UTF_8));
+                }
+                continue;
+            }
+            try {
+                for (String className : new ClassPathScanner(classLoader).findClassNames(basePackage)) {
+                    crc32.update(className.getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (IOException e) {
+                // 指纹对不上时会重新扫描
+                e.printStackTrace();
+            }
+        }
+        return crc32.getValue();
+    }
 
-                    if (clazz.isAnnotationPresent(Component.class)) {
+    private void restoreSnapshot(BeanGraphSnapshot snapshot) {
+        ClassLoader classLoader = requireConfigClass().getClassLoader();
+        for (BeanGraphSnapshot.BeanRecord record : snapshot.getBeans()) {
+            try {
+                BeanDefinition beanDefinition = new BeanDefinition();
+                beanDefinition.setClazz(classLoader.loadClass(record.getClassName()));
+                beanDefinition.setScope(record.getScope());
+                beanDefinition.setLazy(record.isLazy());
+                beanDefinition.setAsyncInit(beanDefinition.getClazz().isAnnotationPresent(AsyncInit.class));
+                beanDefinition.setBeanPostProcessor(record.isBeanPostProcessor());
+                beanDefinition.setInjectionPoints(record.getInjectionPoints());
+                beanDefinition.setPostProcessorNames(record.getPostProcessorNames());
+                beanDefinitionMap.put(record.getBeanName(), beanDefinition);
+            } catch (ClassNotFoundException e) {
+                e.printStackTrace();
+            }
+        }
+        typeIndex = snapshot.getTypeIndex();
+    }
 
-                        //表示当前这个类是一个bean
-                        //解析类，判断当前bean是单例bean，还是prototype的bean
+    private void writeSnapshot(File file, long discoveryFingerprint, Map<String, Set<String>> dependencyGraph,
+                               List<String> creationOrder, List<String> cyclicBeans, List<String> postProcessorNames) {
+        Class configClass = requireConfigClass();
+        ClassLoader classLoader = configClass.getClassLoader();
+        BeanGraphSnapshot snapshot = new BeanGraphSnapshot();
+        snapshot.setConfigClassName(configClass.getName());
+        snapshot.setDiscoveryFingerprint(discoveryFingerprint);
+        for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
+            String className = entry.getValue().getClazz().getName();
+            snapshot.getBeans().add(new BeanGraphSnapshot.BeanRecord(entry.getKey(), entry.getValue(),
+                    BeanGraphSnapshot.checksum(classLoader, className)));
+            Set<Class<?>> types = new LinkedHashSet<>();
+            collectTypes(entry.getValue().getClazz(), types);
+            for (Class<?> type : types) {
+                if (!snapshot.getTypeChecksums().containsKey(type.getName())) {
+                    snapshot.getTypeChecksums().put(type.getName(), BeanGraphSnapshot.checksum(classLoader, type.getName()));
+                }
+            }
+        }
+        snapshot.setTypeIndex(typeIndex);
+        snapshot.setDependencyGraph(dependencyGraph);
+        snapshot.setCreationOrder(creationOrder);
+        snapshot.setCyclicBeans(cyclicBeans);
+        snapshot.setPostProcessorNames(postProcessorNames);
+        try {
+            snapshot.write(file, configClass);
+        } catch (IOException e) {
+            // 写不了快照不影响这次启动
+            e.printStackTrace();
+        }
+    }
+
+    private int getOrder(String beanName) {
+        Class<?> clazz = beanDefinitionMap.get(beanName).getClazz();
+        Order order = clazz.getDeclaredAnnotation(Order.class);
+        return order == null ? Integer.MAX_VALUE : order.value();
+    }
 
-                        //判断当前对象是否实现了接口
-                        if (BeanPostProcessor.class.isAssignableFrom(clazz)) {
-                            BeanPostProcessor instance = (BeanPostProcessor) clazz.getDeclaredConstructor().newInstance();
-                            beanPostProcessorList.add(instance);
-                        }
+    private boolean appliesTo(BeanDefinition postProcessorDefinition, String beanName, BeanDefinition beanDefinition) {
+        ApplyTo applyTo = (ApplyTo) postProcessorDefinition.getClazz().getDeclaredAnnotation(ApplyTo.class);
+        if (applyTo == null) {
+            return true;
+        }
+        for (String name : applyTo.names()) {
+            if (name.equals(beanName)) {
+                return true;
+            }
+        }
+        for (Class<?> type : applyTo.types()) {
+            if (type.isAssignableFrom(beanDefinition.getClazz())) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-                        Component componentAnnotation = clazz.getDeclaredAnnotation(Component.class);
-                        String beanName = componentAnnotation.value();
+    private void buildTypeIndex() {
+        Map<String, List<String>> index = new HashMap<>();
+        for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
+            Set<Class<?>> types = new LinkedHashSet<>();
+            collectTypes(entry.getValue().getClazz(), types);
+            for (Class<?> type : types) {
+                index.computeIfAbsent(type.getName(), k -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : index.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        typeIndex = index;
+    }
 
-                        BeanDefinition beanDefinition = new BeanDefinition();
-                        beanDefinition.setClazz(clazz);
+    private void collectTypes(Class<?> clazz, Set<Class<?>> types) {
+        if (clazz == null || clazz == Object.class || !types.add(clazz)) {
+            return;
+        }
+        collectTypes(clazz.getSuperclass(), types);
+        for (Class<?> anInterface : clazz.getInterfaces()) {
+            collectTypes(anInterface, types);
+        }
+    }
 
-                        if (clazz.isAnnotationPresent(scope.class)) {
-                            scope scopeAnnotation = clazz.getDeclaredAnnotation(scope.class);
-                            beanDefinition.setScope(scopeAnnotation.value());
-                        } else {
-                            beanDefinition.setScope("singleton");
-                        }
+    // 只通过registerSingleton注册bean的子容器没有配置类，不能扫描、热加载或者使用快照
+    private Class requireConfigClass() {
+        if (configClass == null) {
+            throw new IllegalStateException("子容器没有配置类，不支持扫描、热加载和启动快照");
+        }
+        return configClass;
+    }
 
-                        beanDefinitionMap.put(beanName, beanDefinition);
+    /**
+     * 组件扫描路径对应的目录 -> 目录对应的包名，jar包里的组件不包括在内
+     */
+    Map<File, String> getScanDirectories() throws IOException {
+        Class configClass = requireConfigClass();
+        ComponentScan componentScanAnnotation = (ComponentScan) configClass.getDeclaredAnnotation(ComponentScan.class);
+        Map<File, String> directories = new LinkedHashMap<>();
+        for (String basePackage : componentScanAnnotation.value()) {
+            Enumeration<URL> resources = configClass.getClassLoader().getResources(basePackage.replace(".", "/"));
+            while (resources.hasMoreElements()) {
+                URL resource = resources.nextElement();
+                if ("file".equals(resource.getProtocol())) {
+                    try {
+                        directories.put(Paths.get(resource.toURI()).toFile(), basePackage);
+                    } catch (URISyntaxException e) {
+                        throw new IOException(e);
                     }
-                } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InstantiationException | InvocationTargetException e) {
+                }
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * 重新加载发生变化的类：只重建这些类对应的BeanDefinition，以及直接或间接注入了它们的bean，
+     * 用一个新的类加载器加载这些类的新版本，其余的bean保持不变；
+     * 新的类加载器以配置类的类加载器为父加载器，之前热加载过的类也在里面重新定义，类加载器不会一层层串起来。
+     * 变化的类不是组件时(父类、接口或者工具类)，继承了它、或者常量池里引用了它的bean也一起重建；
+     * 只通过方法签名、泛型或者反射用到它的bean检查不到，需要重启容器。
+     * 新版本的类全部加载完、BeanDefinition全部解析完才替换旧的bean，替换之后创建失败会恢复旧的bean
+     *
+     * @param classesDirectory 编译输出的根目录
+     * @param changedClassNames 新增、修改或删除的类
+     * @return 被重建的beanName
+     */
+    synchronized Set<String> reload(File classesDirectory, Set<String> changedClassNames) {
+        Class configClass = requireConfigClass();
+        Set<String> reloadingClassNames = new LinkedHashSet<>(changedClassNames);
+        reloadingClassNames.addAll(reloadedClasses.keySet());
+        Map<String, String> beanNamesByClass = new HashMap<>();
+        Map<String, Set<String>> dependents = new HashMap<>();
+        for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
+            beanNamesByClass.put(entry.getValue().getClazz().getName(), entry.getKey());
+            for (Map.Entry<String, String> injectionPoint : entry.getValue().getInjectionPoints().entrySet()) {
+                String dependency = resolveDependency(injectionPoint.getKey(), injectionPoint.getValue());
+                dependents.computeIfAbsent(dependency, k -> new HashSet<>()).add(entry.getKey());
+                // 注入点的类型变了，新增的组件可能改变按类型解析的结果
+                if (reloadingClassNames.contains(injectionPoint.getValue())) {
+                    dependents.computeIfAbsent(injectionPoint.getValue(), k -> new HashSet<>()).add(entry.getKey());
+                }
+            }
+        }
+
+        // 变化的类和之前热加载过的类对应的bean，用到了变化的非组件类的bean，以及沿着注入关系依赖它们的bean
+        Set<String> affectedBeans = new LinkedHashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        for (String className : reloadingClassNames) {
+            pending.addAll(dependents.getOrDefault(className, Collections.<String>emptySet()));
+            if (beanNamesByClass.containsKey(className)) {
+                pending.add(beanNamesByClass.get(className));
+            }
+        }
+        Set<String> changedTypes = new HashSet<>(reloadingClassNames);
+        changedTypes.removeAll(beanNamesByClass.keySet());
+        if (!changedTypes.isEmpty()) {
+            for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
+                if (referencesAny(entry.getValue().getClazz(), changedTypes)) {
+                    pending.add(entry.getKey());
+                }
+            }
+        }
+        while (!pending.isEmpty()) {
+            String beanName = pending.poll();
+            if (affectedBeans.add(beanName)) {
+                pending.addAll(dependents.getOrDefault(beanName, Collections.<String>emptySet()));
+            }
+        }
+
+        Set<String> classNames = new LinkedHashSet<>(reloadingClassNames);
+        for (String beanName : affectedBeans) {
+            BeanDefinition beanDefinition = beanDefinitionMap.get(beanName);
+            if (beanDefinition.isBeanPostProcessor()) {
+                throw new IllegalStateException("BeanPostProcessor不支持热加载，需要重启容器: " + beanName);
+            }
+            classNames.add(beanDefinition.getClazz().getName());
+        }
+
+        // 先加载新版本的类、解析新的BeanDefinition，这一步失败时容器里的bean还没有动
+        Map<String, File> classesDirectories = new HashMap<>();
+        for (String className : classNames) {
+            File previousDirectory = reloadedClasses.get(className);
+            classesDirectories.put(className, previousDirectory == null || changedClassNames.contains(className)
+                    ? classesDirectory : previousDirectory);
+        }
+        ClassLoader classLoader = new ReloadingClassLoader(classesDirectories, configClass.getClassLoader());
+        Map<String, File> loadedClasses = new LinkedHashMap<>();
+        Map<String, BeanDefinition> reloadedDefinitions = new LinkedHashMap<>();
+        for (String className : classNames) {
+            File directory = classesDirectories.get(className);
+            if (ReloadingClassLoader.classFile(directory, className).isFile()) {
+                loadedClasses.put(className, directory);
+            } else if (changedClassNames.contains(className)) {
+                // 类文件已经删除
+                continue;
+            }
+            try {
+                registerAnnotatedComponent(classLoader.loadClass(className), reloadedDefinitions);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("热加载失败，保留原来的bean: " + className, e);
+            }
+        }
+
+        // 旧的bean全部摘下来之后再注册新的，避免新旧版本混在一起；新的bean创建失败时换回旧的
+        Map<String, DetachedBean> detachedBeans = new LinkedHashMap<>();
+        for (String beanName : affectedBeans) {
+            detachedBeans.put(beanName, detachBean(beanName));
+        }
+        try {
+            for (Map.Entry<String, BeanDefinition> entry : reloadedDefinitions.entrySet()) {
+                String beanName = entry.getKey();
+                BeanDefinition beanDefinition = entry.getValue();
+                beanDefinitionMap.put(beanName, beanDefinition);
+                addToTypeIndex(beanName, beanDefinition.getClazz());
+                List<String> chain = new ArrayList<>();
+                List<BeanPostProcessor> postProcessors = new ArrayList<>();
+                for (Map.Entry<String, BeanPostProcessor> postProcessor : postProcessorsByName.entrySet()) {
+                    if (appliesTo(beanDefinitionMap.get(postProcessor.getKey()), beanName, beanDefinition)) {
+                        chain.add(postProcessor.getKey());
+                        postProcessors.add(postProcessor.getValue());
+                    }
+                }
+                beanDefinition.setPostProcessorNames(chain);
+                beanDefinition.setPostProcessors(postProcessors.toArray(new BeanPostProcessor[0]));
+                eventMulticaster.registerListener(beanName, beanDefinition);
+            }
+
+            // 依赖的bean在注入时会按需创建，这里不需要排序
+            for (Map.Entry<String, BeanDefinition> entry : reloadedDefinitions.entrySet()) {
+                if (isEagerSingleton(entry.getValue()) && getSingleton(entry.getKey()) == null) {
+                    throw new IllegalStateException("热加载之后创建bean失败，恢复原来的bean: " + entry.getKey());
+                } else if (entry.getValue().getScope().equals("pooled")) {
+                    createBeanPool(entry.getKey(), entry.getValue());
+                }
+            }
+        } catch (RuntimeException | LinkageError e) {
+            for (String beanName : reloadedDefinitions.keySet()) {
+                if (beanDefinitionMap.containsKey(beanName)) {
+                    detachBean(beanName).destroy();
+                }
+            }
+            for (Map.Entry<String, DetachedBean> entry : detachedBeans.entrySet()) {
+                attachBean(entry.getKey(), entry.getValue());
+            }
+            throw e;
+        }
+        for (DetachedBean detachedBean : detachedBeans.values()) {
+            detachedBean.destroy();
+        }
+        reloadedClasses.clear();
+        reloadedClasses.putAll(loadedClasses);
+        return reloadedDefinitions.keySet();
+    }
+
+    /**
+     * 类的继承关系里有这些类型，或者class文件的常量池里引用了这些类型
+     */
+    private boolean referencesAny(Class<?> clazz, Set<String> classNames) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        collectTypes(clazz, types);
+        for (Class<?> type : types) {
+            if (classNames.contains(type.getName())) {
+                return true;
+            }
+        }
+        File directory = reloadedClasses.get(clazz.getName());
+        try (InputStream inputStream = directory != null
+                ? new FileInputStream(ReloadingClassLoader.classFile(directory, clazz.getName()))
+                : requireConfigClass().getClassLoader().getResourceAsStream(clazz.getName().replace('.', '/') + ".class")) {
+            if (inputStream == null) {
+                return false;
+            }
+            for (String className : ClassPathScanner.referencedClassNames(ClassPathScanner.readAllBytes(inputStream))) {
+                if (classNames.contains(className)) {
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            // 读不到class文件时只按继承关系判断
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * 从容器里摘下一个bean，单例和池子先留着，确认不再需要之后再销毁
+     */
+    private DetachedBean detachBean(String beanName) {
+        BeanDefinition beanDefinition = beanDefinitionMap.remove(beanName);
+        eventMulticaster.removeListener(beanName);
+        DetachedBean detachedBean = new DetachedBean(beanDefinition, singleObjects.remove(beanName), beanPools.remove(beanName));
+
+        Map<String, List<String>> index = new HashMap<>(typeIndex);
+        Set<Class<?>> types = new LinkedHashSet<>();
+        collectTypes(beanDefinition.getClazz(), types);
+        for (Class<?> type : types) {
+            List<String> beanNames = new ArrayList<>(index.getOrDefault(type.getName(), Collections.<String>emptyList()));
+            beanNames.remove(beanName);
+            if (beanNames.isEmpty()) {
+                index.remove(type.getName());
+            } else {
+                index.put(type.getName(), Collections.unmodifiableList(beanNames));
+            }
+        }
+        typeIndex = index;
+        return detachedBean;
+    }
+
+    private void attachBean(String beanName, DetachedBean detachedBean) {
+        beanDefinitionMap.put(beanName, detachedBean.beanDefinition);
+        addToTypeIndex(beanName, detachedBean.beanDefinition.getClazz());
+        if (detachedBean.singleton != null) {
+            singleObjects.put(beanName, detachedBean.singleton);
+        }
+        if (detachedBean.beanPool != null) {
+            beanPools.put(beanName, detachedBean.beanPool);
+        }
+        eventMulticaster.registerListener(beanName, detachedBean.beanDefinition);
+    }
+
+    private static class DetachedBean {
+
+        private final BeanDefinition beanDefinition;
+        private final Object singleton;
+        private final BeanPool beanPool;
+
+        DetachedBean(BeanDefinition beanDefinition, Object singleton, BeanPool beanPool) {
+            this.beanDefinition = beanDefinition;
+            this.singleton = singleton;
+            this.beanPool = beanPool;
+        }
+
+        void destroy() {
+            if (singleton instanceof DisposableBean) {
+                try {
+                    ((DisposableBean) singleton).destroy();
+                } catch (Exception e) {
                     e.printStackTrace();
                 }
             }
         }
     }
 
+    // 类型索引对读取方是只读的，复制一份再替换
+    private void addToTypeIndex(String beanName, Class<?> clazz) {
+        Map<String, List<String>> index = new HashMap<>(typeIndex);
+        Set<Class<?>> types = new LinkedHashSet<>();
+        collectTypes(clazz, types);
+        for (Class<?> type : types) {
+            List<String> beanNames = new ArrayList<>(index.getOrDefault(type.getName(), Collections.<String>emptyList()));
+            beanNames.add(beanName);
+            index.put(type.getName(), Collections.unmodifiableList(beanNames));
+        }
+        typeIndex = index;
+    }
+
+    /**
+     * Autowired按类型注入：只有一个候选bean时直接用它，有多个时用属性名区分，一个都没有再按属性名找
+     */
+    private String resolveDependency(String fieldName, String fieldType) {
+        List<String> candidates = typeIndex.get(fieldType);
+        if (candidates == null) {
+            // 子容器没有这个类型的bean时按父容器的规则解析
+            return parent == null ? fieldName : parent.resolveDependency(fieldName, fieldType);
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        if (candidates.contains(fieldName)) {
+            return fieldName;
+        }
+        throw new IllegalStateException("属性" + fieldName + "有多个类型为" + fieldType + "的候选bean: " + candidates);
+    }
+
+    private void scan(Class configClass) {
+        ComponentScan componentScanAnnotation = (ComponentScan) configClass.getDeclaredAnnotation(ComponentScan.class);
+        // 用配置类的类加载器扫描，组件可以和配置类一起放在单独的类加载器里
+        ClassLoader classLoader = configClass.getClassLoader();
+
+        Instrumentation.Stopwatch stopwatch = instrumentation.start();
+        ComponentIndex componentIndex = ComponentIndex.load(classLoader);
+        for (String basePackage : componentScanAnnotation.value()) {
+            // 优先读取编译期生成的组件索引，只加载索引里的组件类，类打在jar包里也能找到
+            List<ComponentIndex.Entry> candidates = componentIndex == null
+                    ? Collections.<ComponentIndex.Entry>emptyList()
+                    : componentIndex.getCandidates(basePackage);
+            if (!candidates.isEmpty()) {
+                for (ComponentIndex.Entry entry : candidates) {
+                    try {
+                        stopwatch.reset();
+                        Class<?> clazz = classLoader.loadClass(entry.getClassName());
+                        stopwatch.lap(entry.getBeanName(), Instrumentation.Phase.CLASS_LOAD);
+                        registerComponent(clazz, entry.getBeanName(), entry.getScope(), entry.isBeanPostProcessor(),
+                                entry.getInjectionPoints(), beanDefinitionMap);
+                    } catch (ClassNotFoundException e) {
+                        e.printStackTrace();
+                    }
+                }
+                continue;
+            }
+
+            // 没有索引时扫描类路径，从字节码判断是不是组件，只加载组件类
+            try {
+                for (String className : new ClassPathScanner(classLoader).findComponentClassNames(basePackage)) {
+                    stopwatch.reset();
+                    Class<?> clazz = classLoader.loadClass(className);
+                    String beanName = registerAnnotatedComponent(clazz, beanDefinitionMap);
+                    if (beanName != null) {
+                        stopwatch.lap(beanName, Instrumentation.Phase.CLASS_LOAD);
+                    }
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 解析类上的注解，是Component时注册BeanDefinition
+     *
+     * @return beanName，不是Component时返回null
+     */
+    private String registerAnnotatedComponent(Class<?> clazz, Map<String, BeanDefinition> beanDefinitions) {
+        if (!clazz.isAnnotationPresent(Component.class)) {
+            return null;
+        }
+        //表示当前这个类是一个bean
+        //解析类，判断当前bean是单例bean，还是prototype的bean
+        Component componentAnnotation = clazz.getDeclaredAnnotation(Component.class);
+        String beanName = componentAnnotation.value();
+
+        String beanScope = "singleton";
+        if (clazz.isAnnotationPresent(scope.class)) {
+            scope scopeAnnotation = clazz.getDeclaredAnnotation(scope.class);
+            beanScope = scopeAnnotation.value();
+        }
+
+        LinkedHashMap<String, String> injectionPoints = new LinkedHashMap<>();
+        for (Field declaredField : clazz.getDeclaredFields()) {
+            if (declaredField.isAnnotationPresent(Autowired.class)) {
+                injectionPoints.put(declaredField.getName(), declaredField.getType().getName());
+            }
+        }
+
+        //判断当前对象是否实现了接口
+        registerComponent(clazz, beanName, beanScope, BeanPostProcessor.class.isAssignableFrom(clazz), injectionPoints, beanDefinitions);
+        return beanName;
+    }
+
+    private void registerComponent(Class<?> clazz, String beanName, String beanScope, boolean beanPostProcessor,
+                                   LinkedHashMap<String, String> injectionPoints, Map<String, BeanDefinition> beanDefinitions) {
+        if (beanScope.equals("pooled") && clazz.isAnnotationPresent(PoolSize.class)
+                && clazz.getDeclaredAnnotation(PoolSize.class).value() < 1) {
+            throw new IllegalArgumentException("@PoolSize必须大于0: " + beanName);
+        }
+        BeanDefinition beanDefinition = new BeanDefinition();
+        beanDefinition.setClazz(clazz);
+        beanDefinition.setScope(beanScope);
+        beanDefinition.setLazy(clazz.isAnnotationPresent(Lazy.class));
+        beanDefinition.setAsyncInit(clazz.isAnnotationPresent(AsyncInit.class));
+        beanDefinition.setBeanPostProcessor(beanPostProcessor);
+        beanDefinition.setInjectionPoints(injectionPoints);
+        beanDefinitions.put(beanName, beanDefinition);
+    }
+
     public Object getBean(String beanName) {
         if (beanDefinitionMap.containsKey(beanName)) {
             BeanDefinition beanDefinition = beanDefinitionMap.get(beanName);
             if (beanDefinition.getScope().equals("singleton")) {
-                Object o = singleObjects.get(beanName);
+                Object o = getSingleton(beanName);
                 return o;
+            } else if (beanDefinition.getScope().equals("pooled")) {
+                // 没有人会归还这个实例，不能从池子里取，否则池子很快就空了
+                return createBean(beanName, beanDefinition);
+            } else if (getRegisteredScope(beanDefinition.getScope()) != null) {
+                // 由作用域决定复用已有的对象还是新建
+                return getRegisteredScope(beanDefinition.getScope()).get(beanName, () -> createBean(beanName, beanDefinition));
             } else {
                 //创建bean对象
                 Object bean = createBean(beanName, beanDefinition);
                 return bean;
             }
+        } else if (parent != null) {
+            return parent.getBean(beanName);
         } else {
             //不存在对应的bean
             throw new NullPointerException();
         }
     }
+
+    public <T> T getBean(Class<T> requiredType) {
+        List<String> candidates = typeIndex.get(requiredType.getName());
+        if (candidates == null && parent != null) {
+            return parent.getBean(requiredType);
+        }
+        if (candidates == null) {
+            //不存在对应的bean
+            throw new NullPointerException("没有类型为" + requiredType.getName() + "的bean");
+        }
+        if (candidates.size() > 1) {
+            throw new IllegalStateException("类型为" + requiredType.getName() + "的bean不止一个: " + candidates);
+        }
+        return requiredType.cast(getBean(candidates.get(0)));
+    }
+
+    public <T> Map<String, T> getBeansOfType(Class<T> type) {
+        List<String> candidates = typeIndex.get(type.getName());
+        if (candidates == null) {
+            return parent == null ? Collections.<String, T>emptyMap() : parent.getBeansOfType(type);
+        }
+        Map<String, T> beans = new LinkedHashMap<>();
+        if (parent != null) {
+            // 同名的bean用子容器的覆盖
+            beans.putAll(parent.getBeansOfType(type));
+        }
+        for (String beanName : candidates) {
+            beans.put(beanName, type.cast(getBean(beanName)));
+        }
+        return beans;
+    }
 }
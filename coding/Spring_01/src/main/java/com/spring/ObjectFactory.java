@@ -0,0 +1,13 @@
+package com.spring;
+
+/**
+ * 按需创建对象，交给{@link Scope}决定什么时候真正创建
+ *
+ * @author Mengkaili
+ * @since 2021/6/24
+ */
+public interface ObjectFactory<T> {
+
+    T getObject();
+
+}
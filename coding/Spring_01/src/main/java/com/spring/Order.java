@@ -0,0 +1,20 @@
+package com.spring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * BeanPostProcessor的执行顺序，值小的先执行，没有这个注解的排在最后
+ *
+ * @author Mengkaili
+ * @since 2021/6/15
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface Order {
+
+    int value();
+
+}
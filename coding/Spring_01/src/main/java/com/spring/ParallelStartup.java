@@ -0,0 +1,23 @@
+package com.spring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在配置类上，容器启动时按依赖关系并行创建单例bean
+ *
+ * @author Mengkaili
+ * @since 2021/6/2
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface ParallelStartup {
+
+    /**
+     * 并行度，小于等于0时使用CPU核数
+     */
+    int value() default 0;
+
+}
@@ -0,0 +1,23 @@
+package com.spring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 配合@scope("pooled")使用，指定池子里最多保留多少个实例，启动时会预先创建好
+ *
+ * @author Mengkaili
+ * @since 2021/6/10
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface PoolSize {
+
+    /**
+     * 必须大于0，否则注册BeanDefinition时报错
+     */
+    int value();
+
+}
@@ -0,0 +1,374 @@
+package com.spring;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.TypeCache;
+import net.bytebuddy.description.field.FieldDescription;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.method.ParameterDescription;
+import net.bytebuddy.description.modifier.Ownership;
+import net.bytebuddy.description.modifier.SyntheticState;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassInjector;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.dynamic.scaffold.InstrumentedType;
+import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.MethodDelegation;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.implementation.bytecode.StackManipulation;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.implementation.bytecode.assign.TypeCasting;
+import net.bytebuddy.implementation.bytecode.collection.ArrayFactory;
+import net.bytebuddy.implementation.bytecode.collection.ArrayLength;
+import net.bytebuddy.implementation.bytecode.member.FieldAccess;
+import net.bytebuddy.implementation.bytecode.member.MethodReturn;
+import net.bytebuddy.implementation.bytecode.member.MethodVariableAccess;
+import net.bytebuddy.jar.asm.Label;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.utility.RandomString;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static net.bytebuddy.matcher.ElementMatchers.is;
+import static net.bytebuddy.matcher.ElementMatchers.isHashCode;
+import static net.bytebuddy.matcher.ElementMatchers.isToString;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+/**
+ * 生成字节码的代理，代替java.lang.reflect.Proxy
+ * 目标对象实现了接口时生成实现这些接口的代理类，没有接口时生成目标类的子类；
+ * 同一组接口(或者同一个类)的代理类只生成一次，之后创建代理只是new一个对象
+ *
+ * @author Mengkaili
+ * @since 2021/6/18
+ */
+public class ProxyFactory {
+
+    private static final String TARGET_FIELD = "$$target";
+    private static final String INTERCEPTORS_FIELD = "$$interceptors";
+    private static final String DISPATCHER_FIELD = "$$dispatcher$";
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(ProxySupport.class);
+
+    private static final MethodDescription DISPATCH;
+
+    static {
+        try {
+            DISPATCH = new MethodDescription.ForLoadedMethod(Dispatcher.class.getMethod("intercept",
+                    Object.class, MethodInterceptor[].class, Object[].class));
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // 实现了同一组接口的目标类共用一个代理类
+    private static final TypeCache<TypeCache.SimpleKey> PROXY_CLASSES = new TypeCache<>(TypeCache.Sort.WEAK);
+
+    // 目标类 -> 代理类的无参构造方法，创建代理时只查这一次，不用每次收集接口
+    private static final ClassValue<MethodHandle> CONSTRUCTORS = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> targetClass) {
+            Class<?> proxyClass = getProxyClass(targetClass);
+            try {
+                return MethodHandles.publicLookup().findConstructor(proxyClass, MethodType.methodType(void.class))
+                        .asType(CONSTRUCTOR_TYPE);
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    public static Object getProxy(Object target, MethodInterceptor... interceptors) {
+        try {
+            ProxySupport proxy = (ProxySupport) CONSTRUCTORS.get(target.getClass()).invokeExact();
+            proxy.$$setTarget(target);
+            proxy.$$setInterceptors(interceptors);
+            return proxy;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Class<?> getProxyClass(Class<?> targetClass) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        collectInterfaces(targetClass, interfaces);
+        ClassLoader classLoader = targetClass.getClassLoader();
+        if (interfaces.isEmpty()) {
+            return PROXY_CLASSES.findOrInsert(classLoader, new TypeCache.SimpleKey(targetClass),
+                    () -> createClassProxy(targetClass));
+        }
+        return PROXY_CLASSES.findOrInsert(classLoader, new TypeCache.SimpleKey(interfaces),
+                () -> createInterfaceProxy(classLoader, interfaces));
+    }
+
+    private static void collectInterfaces(Class<?> clazz, Set<Class<?>> interfaces) {
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+            for (Class<?> anInterface : c.getInterfaces()) {
+                if (interfaces.add(anInterface)) {
+                    collectInterfaces(anInterface, interfaces);
+                }
+            }
+        }
+    }
+
+    private static Class<?> createInterfaceProxy(ClassLoader classLoader, Set<Class<?>> interfaces) {
+        List<Method> methods = new ArrayList<>();
+        for (Class<?> anInterface : interfaces) {
+            for (Method method : anInterface.getDeclaredMethods()) {
+                if (!Modifier.isStatic(method.getModifiers())) {
+                    methods.add(method);
+                }
+            }
+        }
+        Class<?> packageAnchor = packageAnchor(interfaces);
+        DynamicType.Builder<?> builder = new ByteBuddy().subclass(Object.class).implement(interfaces.toArray(new Class<?>[0]));
+        if (packageAnchor != null) {
+            // 和java.lang.reflect.Proxy一样，实现非public接口的代理类必须和接口在同一个包里
+            builder = builder.name(packageAnchor.getName() + "$$Proxy$" + RandomString.make());
+        }
+        return load(builder, methods, classLoader, packageAnchor);
+    }
+
+    private static Class<?> createClassProxy(Class<?> targetClass) {
+        // 子类代理和目标类不在同一个类加载器里，只能覆盖public方法
+        List<Method> methods = new ArrayList<>();
+        Set<Class<?>> types = new LinkedHashSet<>();
+        types.add(targetClass);
+        for (Method method : targetClass.getMethods()) {
+            int modifiers = method.getModifiers();
+            if (method.getDeclaringClass() != Object.class && !Modifier.isFinal(modifiers) && !Modifier.isStatic(modifiers)) {
+                methods.add(method);
+                types.add(method.getDeclaringClass());
+            }
+        }
+        // Byte Buddy默认把子类命名在目标类的包里，非public的目标类不用再改名
+        return load(new ByteBuddy().subclass(targetClass), methods, targetClass.getClassLoader(), packageAnchor(types));
+    }
+
+    /**
+     * 代理类要访问的类型里有非public的时候，返回其中一个，代理类必须定义在它的包和类加载器里；都是public的返回null
+     */
+    private static Class<?> packageAnchor(Set<Class<?>> types) {
+        Class<?> anchor = null;
+        for (Class<?> type : types) {
+            if (Modifier.isPublic(type.getModifiers())) {
+                continue;
+            }
+            if (anchor == null) {
+                anchor = type;
+            } else if (anchor.getClassLoader() != type.getClassLoader() || !packageName(anchor).equals(packageName(type))) {
+                throw new IllegalArgumentException("非public的类型" + anchor.getName() + "和" + type.getName()
+                        + "不在同一个包里，无法生成代理");
+            }
+        }
+        return anchor;
+    }
+
+    private static String packageName(Class<?> type) {
+        String name = type.getName();
+        int index = name.lastIndexOf('.');
+        return index < 0 ? "" : name.substring(0, index);
+    }
+
+    /**
+     * 代理类和它的TargetInvoker一起生成、一起加载：都是public类型时放进同一个新的类加载器，
+     * 有非public类型时通过目标包的Lookup定义到目标类的类加载器里，这样才能访问包内的类型
+     */
+    private static ClassLoadingStrategy<ClassLoader> loadingStrategy(Class<?> packageAnchor) {
+        if (packageAnchor == null) {
+            return ClassLoadingStrategy.Default.WRAPPER;
+        }
+        if (ClassInjector.UsingLookup.isAvailable()) {
+            try {
+                Object lookup = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class)
+                        .invoke(null, packageAnchor, MethodHandles.lookup());
+                return ClassLoadingStrategy.UsingLookup.of(lookup);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("无法访问" + packageAnchor.getName() + "所在的包，不能为它生成代理", e);
+            }
+        }
+        if (ClassInjector.UsingReflection.isAvailable()) {
+            return ClassLoadingStrategy.Default.INJECTION;
+        }
+        throw new IllegalArgumentException("当前JVM不支持向" + packageAnchor.getName() + "所在的包注入类，不能为非public类型生成代理");
+    }
+
+    private static Class<?> load(DynamicType.Builder<?> builder, List<Method> methods, ClassLoader classLoader, Class<?> packageAnchor) {
+        builder = builder
+                .defineField(TARGET_FIELD, Object.class, Visibility.PRIVATE)
+                .defineField(INTERCEPTORS_FIELD, MethodInterceptor[].class, Visibility.PRIVATE)
+                .implement(ProxySupport.class)
+                .method(named("$$setTarget"))
+                .intercept(FieldAccessor.ofField(TARGET_FIELD))
+                .method(named("$$setInterceptors"))
+                .intercept(FieldAccessor.ofField(INTERCEPTORS_FIELD))
+                .method(isToString().or(isHashCode()))
+                .intercept(MethodDelegation.toField(TARGET_FIELD));
+        for (int i = 0; i < methods.size(); i++) {
+            builder = builder
+                    .defineField(DISPATCHER_FIELD + i, Dispatcher.class, Visibility.PRIVATE, Ownership.STATIC, SyntheticState.SYNTHETIC)
+                    .method(is(methods.get(i)))
+                    .intercept(new ProxyMethod(methods.get(i), DISPATCHER_FIELD + i));
+        }
+        DynamicType.Unloaded<?> proxy = builder.make();
+        List<DynamicType> invokers = new ArrayList<>();
+        for (int i = 0; i < methods.size(); i++) {
+            invokers.add(createInvoker(methods.get(i), proxy.getTypeDescription().getName() + "$Invoker$" + i));
+        }
+        Map<TypeDescription, Class<?>> loaded = proxy.include(invokers)
+                .load(classLoader, loadingStrategy(packageAnchor))
+                .getAllLoaded();
+        Class<?> proxyClass = loaded.get(proxy.getTypeDescription());
+        try {
+            for (int i = 0; i < methods.size(); i++) {
+                TargetInvoker invoker = (TargetInvoker) loaded.get(invokers.get(i).getTypeDescription())
+                        .getDeclaredConstructor()
+                        .newInstance();
+                Field field = proxyClass.getDeclaredField(DISPATCHER_FIELD + i);
+                field.setAccessible(true);
+                field.set(null, new Dispatcher(methods.get(i), invoker));
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        return proxyClass;
+    }
+
+    /**
+     * 为一个方法生成调用目标对象的类：按方法签名强转目标对象、拆箱参数，直接用invokevirtual/invokeinterface调用，
+     * 不经过反射，也不经过MethodHandle的asSpreader；JIT可以像普通的虚方法调用一样内联它
+     */
+    private static DynamicType.Unloaded<?> createInvoker(Method method, String name) {
+        MethodCall call = MethodCall.invoke(method).onArgument(0);
+        if (method.getParameterCount() > 0) {
+            call = call.withArgumentArrayElements(1, method.getParameterCount());
+        }
+        return new ByteBuddy().subclass(TargetInvoker.class)
+                .name(name)
+                .method(named("invoke"))
+                .intercept(call.withAssigner(Assigner.DEFAULT, Assigner.Typing.DYNAMIC))
+                .make();
+    }
+
+    /**
+     * 代理方法的字节码：没有拦截器时按方法签名直接调用目标对象，参数不装箱也不分配数组；
+     * 有拦截器时才把参数装箱成数组，交给这个方法的Dispatcher走拦截器链
+     */
+    private static class ProxyMethod implements Implementation {
+
+        private final MethodDescription method;
+        private final String dispatcherField;
+
+        ProxyMethod(Method method, String dispatcherField) {
+            this.method = new MethodDescription.ForLoadedMethod(method);
+            this.dispatcherField = dispatcherField;
+        }
+
+        @Override
+        public InstrumentedType prepare(InstrumentedType instrumentedType) {
+            // Dispatcher保存在代理类的静态字段里，代理类和TargetInvoker加载之后再赋值
+            return instrumentedType;
+        }
+
+        @Override
+        public ByteCodeAppender appender(Target implementationTarget) {
+            TypeDescription proxyType = implementationTarget.getInstrumentedType();
+            FieldDescription target = proxyType.getDeclaredFields().filter(named(TARGET_FIELD)).getOnly();
+            FieldDescription interceptors = proxyType.getDeclaredFields().filter(named(INTERCEPTORS_FIELD)).getOnly();
+            FieldDescription dispatcher = proxyType.getDeclaredFields().filter(named(dispatcherField)).getOnly();
+            return new ByteCodeAppender() {
+                @Override
+                public Size apply(MethodVisitor methodVisitor, Context implementationContext, MethodDescription instrumentedMethod) {
+                    Label intercept = new Label();
+                    StackManipulation.Size size = new StackManipulation.Compound(
+                            MethodVariableAccess.loadThis(),
+                            FieldAccess.forField(interceptors).read(),
+                            ArrayLength.INSTANCE).apply(methodVisitor, implementationContext);
+                    methodVisitor.visitJumpInsn(Opcodes.IFNE, intercept);
+                    size = size.aggregate(new StackManipulation.Compound(
+                            MethodVariableAccess.loadThis(),
+                            FieldAccess.forField(target).read(),
+                            TypeCasting.to(method.getDeclaringType()),
+                            MethodVariableAccess.allArgumentsOf(instrumentedMethod),
+                            net.bytebuddy.implementation.bytecode.member.MethodInvocation.invoke(method),
+                            MethodReturn.of(instrumentedMethod.getReturnType())).apply(methodVisitor, implementationContext));
+
+                    methodVisitor.visitLabel(intercept);
+                    methodVisitor.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+                    List<StackManipulation> arguments = new ArrayList<>();
+                    for (ParameterDescription parameter : instrumentedMethod.getParameters()) {
+                        arguments.add(new StackManipulation.Compound(
+                                MethodVariableAccess.load(parameter),
+                                Assigner.DEFAULT.assign(parameter.getType(), TypeDescription.Generic.OBJECT, Assigner.Typing.STATIC)));
+                    }
+                    size = size.aggregate(new StackManipulation.Compound(
+                            FieldAccess.forField(dispatcher).read(),
+                            MethodVariableAccess.loadThis(),
+                            FieldAccess.forField(target).read(),
+                            MethodVariableAccess.loadThis(),
+                            FieldAccess.forField(interceptors).read(),
+                            ArrayFactory.forType(TypeDescription.Generic.OBJECT).withValues(arguments),
+                            net.bytebuddy.implementation.bytecode.member.MethodInvocation.invoke(DISPATCH),
+                            Assigner.DEFAULT.assign(TypeDescription.Generic.OBJECT, instrumentedMethod.getReturnType(), Assigner.Typing.DYNAMIC),
+                            MethodReturn.of(instrumentedMethod.getReturnType())).apply(methodVisitor, implementationContext));
+                    return new Size(size.getMaximalSize(), instrumentedMethod.getStackSize());
+                }
+            };
+        }
+    }
+
+    /**
+     * 生成的代理类都实现这个接口，用来设置目标对象和拦截器
+     */
+    public interface ProxySupport {
+
+        void $$setTarget(Object target);
+
+        void $$setInterceptors(MethodInterceptor[] interceptors);
+
+    }
+
+    /**
+     * 调用目标对象上的一个方法，每个被代理的方法生成一个实现类
+     */
+    public interface TargetInvoker {
+
+        Object invoke(Object target, Object[] arguments) throws Throwable;
+
+    }
+
+    /**
+     * 有拦截器时代理方法的入口，持有这个方法生成的TargetInvoker
+     */
+    public static class Dispatcher {
+
+        private final Method method;
+        private final TargetInvoker invoker;
+
+        Dispatcher(Method method, TargetInvoker invoker) {
+            this.method = method;
+            this.invoker = invoker;
+        }
+
+        public Object intercept(Object target, MethodInterceptor[] interceptors, Object[] arguments) throws Throwable {
+            return new MethodInvocation(target, method, arguments, interceptors, invoker).proceed();
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.spring;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+/**
+ * 热加载用的类加载器，指定的类优先从各自所在的目录里读取新的字节码，其余的类交给父加载器
+ *
+ * @author Mengkaili
+ * @since 2021/6/26
+ */
+class ReloadingClassLoader extends ClassLoader {
+
+    // 类名 -> 它所在的编译输出根目录
+    private final Map<String, File> classesDirectories;
+
+    ReloadingClassLoader(Map<String, File> classesDirectories, ClassLoader parent) {
+        super(parent);
+        this.classesDirectories = classesDirectories;
+    }
+
+    static File classFile(File classesDirectory, String className) {
+        return new File(classesDirectory, className.replace('.', '/') + ".class");
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        File classesDirectory = classesDirectories.get(name);
+        if (classesDirectory == null) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> clazz = findLoadedClass(name);
+            if (clazz == null) {
+                File classFile = classFile(classesDirectory, name);
+                if (!classFile.isFile()) {
+                    // 不在目录里的类(比如jar包里的)只能用原来的版本
+                    return super.loadClass(name, resolve);
+                }
+                try {
+                    byte[] bytes = Files.readAllBytes(classFile.toPath());
+                    clazz = defineClass(name, bytes, 0, bytes.length);
+                } catch (IOException e) {
+                    throw new ClassNotFoundException(name, e);
+                }
+            }
+            if (resolve) {
+                resolveClass(clazz);
+            }
+            return clazz;
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.spring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * request作用域，一次请求（一个工作单元）内共享同一个对象。
+ * 请求的边界由{@link #call(Callable)}确定：进入时绑定一份新的{@link Attributes}，
+ * 返回时恢复之前的绑定并销毁这次请求创建的bean，不会留在线程上，线程再多也不会泄漏
+ *
+ * @author Mengkaili
+ * @since 2021/6/24
+ */
+public class RequestScope implements Scope {
+
+    private static final ThreadLocal<Attributes> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 开启一次新的请求执行task，task返回或抛出异常后立即销毁这次请求的bean
+     */
+    public static <T> T call(Callable<T> task) throws Exception {
+        Attributes attributes = new Attributes();
+        try {
+            return call(attributes, task);
+        } finally {
+            attributes.destroy();
+        }
+    }
+
+    /**
+     * 在已有的请求里执行task，用于把一次请求交给其它线程继续处理；
+     * 这里不会销毁attributes，由开启请求的一方负责
+     */
+    public static <T> T call(Attributes attributes, Callable<T> task) throws Exception {
+        Attributes previous = CURRENT.get();
+        CURRENT.set(attributes);
+        try {
+            return task.call();
+        } finally {
+            // 嵌套调用时恢复外层的请求，最外层直接移除
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 当前线程所在的请求，不在请求里时返回null
+     */
+    public static Attributes currentAttributes() {
+        return CURRENT.get();
+    }
+
+    @Override
+    public Object get(String beanName, ObjectFactory<?> objectFactory) {
+        return requireAttributes(beanName).get(beanName, objectFactory);
+    }
+
+    @Override
+    public Object remove(String beanName) {
+        Attributes attributes = CURRENT.get();
+        return attributes == null ? null : attributes.beans.remove(beanName);
+    }
+
+    private Attributes requireAttributes(String beanName) {
+        Attributes attributes = CURRENT.get();
+        if (attributes == null) {
+            throw new IllegalStateException("当前线程不在请求中，无法获取request作用域的bean: " + beanName);
+        }
+        return attributes;
+    }
+
+    /**
+     * 一次请求里创建的bean，可以交给多个线程共享
+     */
+    public static class Attributes {
+
+        private final ConcurrentHashMap<String, Object> beans = new ConcurrentHashMap<>();
+        private final List<Object> created = new ArrayList<>();
+        private boolean destroyed;
+
+        Object get(String beanName, ObjectFactory<?> objectFactory) {
+            Object bean = beans.get(beanName);
+            if (bean != null) {
+                return bean;
+            }
+            // 创建时可能递归获取同一作用域的其它bean，不能用computeIfAbsent
+            Object created = objectFactory.getObject();
+            if (created == null) {
+                throw new IllegalStateException("request作用域的bean创建结果为null: " + beanName);
+            }
+            bean = beans.putIfAbsent(beanName, created);
+            if (bean != null) {
+                // 其它线程(或者创建过程中的递归调用)先创建好了，销毁这次多创建的对象
+                ThreadScope.destroyBean(created);
+                return bean;
+            }
+            synchronized (this) {
+                if (!destroyed) {
+                    this.created.add(created);
+                    return created;
+                }
+            }
+            // 请求已经结束，destroy()不会再处理这个对象
+            beans.remove(beanName, created);
+            ThreadScope.destroyBean(created);
+            throw new IllegalStateException("请求已经结束: " + beanName);
+        }
+
+        /**
+         * 销毁这次请求创建的bean，后创建的先销毁，只会执行一次
+         */
+        public void destroy() {
+            List<Object> beansToDestroy;
+            synchronized (this) {
+                if (destroyed) {
+                    return;
+                }
+                destroyed = true;
+                beansToDestroy = new ArrayList<>(created);
+                created.clear();
+            }
+            beans.clear();
+            ThreadScope.destroyInReverseOrder(beansToDestroy);
+        }
+
+    }
+
+}
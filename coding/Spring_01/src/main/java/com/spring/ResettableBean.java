@@ -0,0 +1,13 @@
+package com.spring;
+
+/**
+ * pooled作用域的bean归还到池子时回调，清理上一次使用留下的状态
+ *
+ * @author Mengkaili
+ * @since 2021/6/10
+ */
+public interface ResettableBean {
+
+    void reset();
+
+}
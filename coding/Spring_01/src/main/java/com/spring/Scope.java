@@ -0,0 +1,23 @@
+package com.spring;
+
+/**
+ * 自定义作用域的扩展点，通过{@link MiniApplicationContext#registerScope}注册，
+ * 在@scope里写上注册时的名字即可使用
+ *
+ * @author Mengkaili
+ * @since 2021/6/24
+ */
+public interface Scope {
+
+    /**
+     * 返回当前作用域里的bean，不存在时用objectFactory创建并保存；
+     * 作用域结束时由实现负责调用{@link DisposableBean#destroy()}
+     */
+    Object get(String beanName, ObjectFactory<?> objectFactory);
+
+    /**
+     * 从当前作用域移除bean，返回被移除的对象，不会调用destroy
+     */
+    Object remove(String beanName);
+
+}
@@ -0,0 +1,24 @@
+package com.spring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注在配置类上，第一次启动时把解析好的bean定义、依赖关系和BeanPostProcessor链写到快照文件里，
+ * 之后启动时只要类没有变化，就直接读取快照，不再扫描和解析注解
+ *
+ * @author Mengkaili
+ * @since 2021/6/23
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface SnapshotStartup {
+
+    /**
+     * 快照文件路径
+     */
+    String value() default "mini-spring.snapshot";
+
+}
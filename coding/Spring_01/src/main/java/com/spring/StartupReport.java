@@ -0,0 +1,128 @@
+package com.spring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link Instrumentation}的快照：容器启动总耗时、扫描耗时、每个bean和每个BeanPostProcessor在各个阶段的耗时和内存分配
+ *
+ * @author Mengkaili
+ * @since 2021/6/20
+ */
+public class StartupReport {
+
+    private final long startupNanos;
+    private final Map<Instrumentation.Phase, Timing> context;
+    private final Map<String, Map<Instrumentation.Phase, Timing>> beans;
+    private final Map<String, Map<Instrumentation.Phase, Timing>> postProcessors;
+    private final Map<String, Exception> failures;
+
+    StartupReport(long startupNanos, Map<Instrumentation.Phase, Timing> context,
+                  Map<String, Map<Instrumentation.Phase, Timing>> beans,
+                  Map<String, Map<Instrumentation.Phase, Timing>> postProcessors,
+                  Map<String, Exception> failures) {
+        this.startupNanos = startupNanos;
+        this.context = Collections.unmodifiableMap(context);
+        this.beans = Collections.unmodifiableMap(beans);
+        this.postProcessors = Collections.unmodifiableMap(postProcessors);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    public long getStartupNanos() {
+        return startupNanos;
+    }
+
+    public Map<Instrumentation.Phase, Timing> getContext() {
+        return context;
+    }
+
+    public Map<String, Map<Instrumentation.Phase, Timing>> getBeans() {
+        return beans;
+    }
+
+    public Map<String, Map<Instrumentation.Phase, Timing>> getPostProcessors() {
+        return postProcessors;
+    }
+
+    /**
+     * beanName -> 最近一次创建失败的异常
+     */
+    public Map<String, Exception> getFailures() {
+        return failures;
+    }
+
+    /**
+     * 按总耗时从高到低排列的bean
+     */
+    public List<String> getSlowestBeans() {
+        List<String> beanNames = new ArrayList<>(beans.keySet());
+        beanNames.sort((a, b) -> Long.compare(totalNanos(beans.get(b)), totalNanos(beans.get(a))));
+        return beanNames;
+    }
+
+    private static long totalNanos(Map<Instrumentation.Phase, Timing> timings) {
+        long total = 0;
+        for (Timing timing : timings.values()) {
+            total += timing.getNanos();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("startup ").append(startupNanos / 1000).append("us\n");
+        append(builder, "context", context);
+        for (String beanName : getSlowestBeans()) {
+            append(builder, beanName, beans.get(beanName));
+        }
+        for (Map.Entry<String, Map<Instrumentation.Phase, Timing>> entry : postProcessors.entrySet()) {
+            append(builder, entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, Exception> entry : failures.entrySet()) {
+            builder.append(entry.getKey()).append(" failed: ").append(entry.getValue()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static void append(StringBuilder builder, String name, Map<Instrumentation.Phase, Timing> timings) {
+        builder.append(name);
+        for (Map.Entry<Instrumentation.Phase, Timing> entry : timings.entrySet()) {
+            builder.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        builder.append('\n');
+    }
+
+    public static class Timing {
+
+        private final long count;
+        private final long nanos;
+        private final long bytes;
+
+        Timing(long count, long nanos, long bytes) {
+            this.count = count;
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return nanos / 1000 + "us/" + bytes + "B" + (count > 1 ? "(x" + count + ")" : "");
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.spring;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * thread作用域，同一个线程拿到的是同一个对象；
+ * 线程用完之后要调用{@link #clear()}，否则线程池里的线程会一直持有这些bean
+ *
+ * @author Mengkaili
+ * @since 2021/6/24
+ */
+public class ThreadScope implements Scope {
+
+    // 只有当前线程会访问，不需要加锁；按创建顺序保存，销毁时倒序
+    private final ThreadLocal<Map<String, Object>> beans = new ThreadLocal<>();
+
+    @Override
+    public Object get(String beanName, ObjectFactory<?> objectFactory) {
+        Map<String, Object> map = beans.get();
+        if (map == null) {
+            map = new LinkedHashMap<>();
+            beans.set(map);
+        }
+        Object bean = map.get(beanName);
+        if (bean == null) {
+            // 创建时可能递归获取同一作用域的其它bean，不能用computeIfAbsent
+            bean = objectFactory.getObject();
+            map.put(beanName, bean);
+        }
+        return bean;
+    }
+
+    @Override
+    public Object remove(String beanName) {
+        Map<String, Object> map = beans.get();
+        return map == null ? null : map.remove(beanName);
+    }
+
+    /**
+     * 销毁当前线程的所有bean，后创建的先销毁，并解除和线程的绑定
+     */
+    public void clear() {
+        Map<String, Object> map = beans.get();
+        if (map == null) {
+            return;
+        }
+        beans.remove();
+        destroyInReverseOrder(new ArrayList<>(map.values()));
+    }
+
+    static void destroyInReverseOrder(List<Object> beans) {
+        for (int i = beans.size() - 1; i >= 0; i--) {
+            destroyBean(beans.get(i));
+        }
+    }
+
+    static void destroyBean(Object bean) {
+        if (bean instanceof DisposableBean) {
+            try {
+                ((DisposableBean) bean).destroy();
+            } catch (Exception e) {
+                // 一个bean销毁失败不影响其它bean
+                e.printStackTrace();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package org.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.spring.Autowired;
+import com.spring.ClassPathScanner;
+import com.spring.Component;
+import com.spring.ComponentScan;
+import com.spring.MiniApplicationContext;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.DynamicType;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * ClassPathScanner
+ */
+public class ClassPathScannerTest
+{
+    // 能看出某个类有没有被这个类加载器加载过
+    private static class InspectableClassLoader extends URLClassLoader
+    {
+        InspectableClassLoader( URL[] urls, ClassLoader parent )
+        {
+            super( urls, parent );
+        }
+
+        boolean isLoaded( String className )
+        {
+            return findLoadedClass( className ) != null;
+        }
+    }
+
+    @Test
+    public void shouldFindComponentsInSubPackages() throws Exception
+    {
+        List<String> classNames = new ClassPathScanner( getClass().getClassLoader() ).findComponentClassNames( "org.example" );
+
+        assertTrue( classNames.contains( "org.example.components.CircularA" ) );
+        assertTrue( classNames.contains( "org.example.child.TenantService" ) );
+        assertFalse( classNames.contains( "org.example.components.TestConfig" ) );
+        assertFalse( classNames.contains( "org.example.ClassPathScannerTest" ) );
+    }
+
+    @Test
+    public void shouldScanMultiplePackagesWithoutIndex() throws Exception
+    {
+        // 包名里带com，旧的扫描按indexOf("com")截取类名会出错
+        File directory = Files.createTempDirectory( "scan" ).toFile();
+        DynamicType.Unloaded<Object> repository = new ByteBuddy()
+                .subclass( Object.class )
+                .name( "generated.community.Repository" )
+                .annotateType( AnnotationDescription.Builder.ofType( Component.class ).define( "value", "repository" ).build() )
+                .make();
+        repository.saveIn( directory );
+        new ByteBuddy()
+                .subclass( Object.class )
+                .name( "generated.community.service.Service" )
+                .annotateType( AnnotationDescription.Builder.ofType( Component.class ).define( "value", "service" ).build() )
+                .defineField( "repository", repository.getTypeDescription(), Visibility.PRIVATE )
+                .annotateField( AnnotationDescription.Builder.ofType( Autowired.class ).build() )
+                .make()
+                .saveIn( directory );
+        new ByteBuddy()
+                .subclass( Object.class )
+                .name( "generated.community.Helper" )
+                .make()
+                .saveIn( directory );
+        new ByteBuddy()
+                .subclass( Object.class )
+                .name( "plugins.Plugin" )
+                .annotateType( AnnotationDescription.Builder.ofType( Component.class ).define( "value", "plugin" ).build() )
+                .make()
+                .saveIn( directory );
+        new ByteBuddy()
+                .subclass( Object.class )
+                .name( "generated.ScanConfig" )
+                .annotateType( AnnotationDescription.Builder.ofType( ComponentScan.class )
+                        .defineArray( "value", "generated.community", "plugins" ).build() )
+                .make()
+                .saveIn( directory );
+
+        InspectableClassLoader classLoader = new InspectableClassLoader( new URL[] { directory.toURI().toURL() }, getClass().getClassLoader() );
+        MiniApplicationContext context = new MiniApplicationContext( classLoader.loadClass( "generated.ScanConfig" ) );
+
+        Object service = context.getBean( "service" );
+        Field field = service.getClass().getDeclaredField( "repository" );
+        field.setAccessible( true );
+        assertSame( context.getBean( "repository" ), field.get( service ) );
+        assertEquals( "plugins.Plugin", context.getBean( "plugin" ).getClass().getName() );
+        assertFalse( context.containsBean( "helper" ) );
+        // 扫描只读类文件的字节判断是不是组件，不是组件的类不会被加载
+        assertTrue( classLoader.isLoaded( "plugins.Plugin" ) );
+        assertFalse( classLoader.isLoaded( "generated.community.Helper" ) );
+    }
+}
@@ -0,0 +1,111 @@
+package org.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.spring.ComponentScan;
+import com.spring.MiniApplicationContext;
+import org.example.events.AuditListener;
+import org.example.events.BatchListener;
+import org.example.events.OrderService;
+import org.example.events.RingListener;
+import org.example.reentrant.Announcement;
+import org.example.reentrant.AnnouncingListener;
+import org.example.reentrant.Announcements;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ApplicationEventPublisher
+ */
+public class EventPublisherTest
+{
+    private static final int PUBLISHERS = 4;
+    private static final int EVENTS = 1000;
+
+    @ComponentScan("org.example.events")
+    public static class EventConfig
+    {
+    }
+
+    @ComponentScan("org.example.reentrant")
+    public static class ReentrantConfig
+    {
+    }
+
+    @Test
+    public void shouldDeliverEventsInEveryMode() throws Exception
+    {
+        MiniApplicationContext context = new MiniApplicationContext( EventConfig.class );
+        final OrderService orderService = context.getBean( OrderService.class );
+
+        ExecutorService executor = Executors.newFixedThreadPool( PUBLISHERS );
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for ( int p = 0; p < PUBLISHERS; p++ )
+            {
+                futures.add( executor.submit( new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                    {
+                        for ( int i = 1; i <= EVENTS; i++ )
+                        {
+                            orderService.createOrder( i );
+                        }
+                        return null;
+                    }
+                } ) );
+            }
+            for ( Future<?> future : futures )
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        // 其它类型的事件不会送到这些监听器
+        context.publishEvent( "ignored" );
+
+        long expected = PUBLISHERS * (long) EVENTS * ( EVENTS + 1 ) / 2;
+        AuditListener audit = context.getBean( AuditListener.class );
+        assertEquals( expected, audit.getSum() );
+        assertTrue( audit.getThreads().iterator().next().startsWith( "pool-" ) );
+
+        BatchListener batch = context.getBean( BatchListener.class );
+        RingListener ring = context.getBean( RingListener.class );
+        long deadline = System.currentTimeMillis() + 10000;
+        while ( ( batch.getSum() != expected || ring.getSum() != expected ) && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 10 );
+        }
+        assertEquals( expected, batch.getSum() );
+        assertEquals( expected, ring.getSum() );
+        assertEquals( 1, ring.getThreads().size() );
+        assertTrue( ring.getThreads().contains( "mini-spring-event-ringListener" ) );
+        assertFalse( batch.getThreads().iterator().next().startsWith( "pool-" ) );
+    }
+
+    @Test
+    public void shouldNotDispatchToListenerStillInCreation()
+    {
+        // 监听器初始化时发布的事件不会送给它自己的半成品，之后的事件送给包装之后的bean
+        MiniApplicationContext context = new MiniApplicationContext( ReentrantConfig.class );
+        context.publishEvent( new Announcement( "later" ) );
+
+        Announcements listener = (Announcements) context.getBean( "announcingListener" );
+        assertFalse( listener instanceof AnnouncingListener );
+        assertEquals( Collections.singletonList( "later" ), listener.getReceived() );
+    }
+}
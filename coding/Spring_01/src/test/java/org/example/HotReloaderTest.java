@@ -0,0 +1,258 @@
+package org.example;
+
+import static net.bytebuddy.matcher.ElementMatchers.isDefaultConstructor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.spring.Autowired;
+import com.spring.Component;
+import com.spring.ComponentScan;
+import com.spring.HotReloader;
+import com.spring.MiniApplicationContext;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.modifier.FieldManifestation;
+import net.bytebuddy.description.modifier.Ownership;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.implementation.ExceptionMethod;
+import net.bytebuddy.implementation.FixedValue;
+import net.bytebuddy.implementation.SuperMethodCall;
+import org.example.components.TestConfig;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * HotReloader
+ */
+public class HotReloaderTest
+{
+    private static final String PACKAGE = "hot.components";
+
+    private static TypeDescription writeMessage( File directory, String version ) throws Exception
+    {
+        DynamicType.Unloaded<Object> message = new ByteBuddy()
+                .subclass( Object.class )
+                .name( PACKAGE + ".Message" )
+                .annotateType( AnnotationDescription.Builder.ofType( Component.class ).define( "value", "message" ).build() )
+                .defineField( "VERSION", String.class, Visibility.PUBLIC, Ownership.STATIC, FieldManifestation.FINAL )
+                .value( version )
+                .make();
+        message.saveIn( directory );
+        return message.getTypeDescription();
+    }
+
+    private static void writeComponent( File directory, String simpleName, String beanName, TypeDescription dependency )
+    {
+        DynamicType.Builder<Object> builder = new ByteBuddy()
+                .subclass( Object.class )
+                .name( PACKAGE + "." + simpleName )
+                .annotateType( AnnotationDescription.Builder.ofType( Component.class ).define( "value", beanName ).build() );
+        if ( dependency != null )
+        {
+            builder = builder.defineField( "message", dependency, Visibility.PRIVATE )
+                    .annotateField( AnnotationDescription.Builder.ofType( Autowired.class ).build() );
+        }
+        try
+        {
+            builder.make().saveIn( directory );
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static String version( Object bean ) throws Exception
+    {
+        return (String) bean.getClass().getField( "VERSION" ).get( null );
+    }
+
+    @Test
+    public void shouldReloadChangedClassAndItsDependents() throws Exception
+    {
+        // 目录名里的空格在URL里会被编码成%20
+        File directory = Files.createTempDirectory( "hot reload" ).toFile();
+        TypeDescription message = writeMessage( directory, "v1" );
+        writeComponent( directory, "Consumer", "consumer", message );
+        writeComponent( directory, "Other", "other", null );
+        new ByteBuddy()
+                .subclass( Object.class )
+                .name( PACKAGE + ".HotConfig" )
+                .annotateType( AnnotationDescription.Builder.ofType( ComponentScan.class ).defineArray( "value", PACKAGE ).build() )
+                .make()
+                .saveIn( directory );
+        File indexFile = new File( directory, "META-INF/mini-spring.components" );
+        indexFile.getParentFile().mkdirs();
+        try ( Writer writer = Files.newBufferedWriter( indexFile.toPath(), StandardCharsets.ISO_8859_1 ) )
+        {
+            writer.write( PACKAGE + ".Message=message|singleton|false|\n"
+                    + PACKAGE + ".Consumer=consumer|singleton|false|message:" + PACKAGE + ".Message\n"
+                    + PACKAGE + ".Other=other|singleton|false|\n" );
+        }
+
+        URLClassLoader classLoader = new URLClassLoader( new URL[] { directory.toURI().toURL() }, getClass().getClassLoader() );
+        MiniApplicationContext context = new MiniApplicationContext( classLoader.loadClass( PACKAGE + ".HotConfig" ) );
+        Object oldMessage = context.getBean( "message" );
+        Object other = context.getBean( "other" );
+        assertEquals( "v1", version( oldMessage ) );
+
+        final BlockingQueue<Set<String>> reloads = new LinkedBlockingQueue<>();
+        try ( HotReloader reloader = new HotReloader( context, 50 ) )
+        {
+            reloader.setListener( new Consumer<Set<String>>()
+            {
+                @Override
+                public void accept( Set<String> beanNames )
+                {
+                    reloads.add( beanNames );
+                }
+            } );
+            reloader.start();
+            writeMessage( directory, "v2" );
+
+            Set<String> reloaded = reloads.poll( 10, TimeUnit.SECONDS );
+            assertEquals( 2, reloaded.size() );
+            assertTrue( reloaded.contains( "message" ) );
+            assertTrue( reloaded.contains( "consumer" ) );
+
+            Object newMessage = context.getBean( "message" );
+            assertEquals( "v2", version( newMessage ) );
+            assertNotSame( oldMessage.getClass(), newMessage.getClass() );
+            assertSame( newMessage, injectedMessage( context.getBean( "consumer" ) ) );
+            assertSame( other, context.getBean( "other" ) );
+
+            // 再次热加载时，之前热加载过的类在新的类加载器里重新定义，类加载器的父加载器始终是配置类的类加载器
+            writeComponent( directory, "Other", "other", null );
+            reloaded = reloads.poll( 10, TimeUnit.SECONDS );
+            assertEquals( 3, reloaded.size() );
+            assertTrue( reloaded.contains( "other" ) );
+        }
+
+        Object latestMessage = context.getBean( "message" );
+        assertEquals( "v2", version( latestMessage ) );
+        ClassLoader reloadLoader = latestMessage.getClass().getClassLoader();
+        assertSame( classLoader, reloadLoader.getParent() );
+        assertSame( reloadLoader, context.getBean( "other" ).getClass().getClassLoader() );
+        assertSame( latestMessage, injectedMessage( context.getBean( "consumer" ) ) );
+        assertNotSame( other, context.getBean( "other" ) );
+    }
+
+    private static Object injectedMessage( Object consumer ) throws Exception
+    {
+        Field field = consumer.getClass().getDeclaredField( "message" );
+        field.setAccessible( true );
+        return field.get( consumer );
+    }
+
+    @Test
+    public void shouldReloadBeansUsingChangedHelperAndKeepOldBeansOnFailure() throws Exception
+    {
+        File directory = Files.createTempDirectory( "hot-reload" ).toFile();
+        TypeDescription message = writeMessage( directory, "v1" );
+        writeComponent( directory, "Consumer", "consumer", message );
+        TypeDescription helper = writeHelper( directory, "v1" );
+        // 不是组件的工具类只在方法里用到
+        new ByteBuddy()
+                .subclass( Object.class )
+                .name( PACKAGE + ".HelperUser" )
+                .annotateType( AnnotationDescription.Builder.ofType( Component.class ).define( "value", "helperUser" ).build() )
+                .defineMethod( "helper", Class.class, Visibility.PUBLIC )
+                .intercept( FixedValue.value( helper ) )
+                .make()
+                .saveIn( directory );
+        new ByteBuddy()
+                .subclass( Object.class )
+                .name( PACKAGE + ".HotConfig" )
+                .annotateType( AnnotationDescription.Builder.ofType( ComponentScan.class ).defineArray( "value", PACKAGE ).build() )
+                .make()
+                .saveIn( directory );
+
+        URLClassLoader classLoader = new URLClassLoader( new URL[] { directory.toURI().toURL() }, getClass().getClassLoader() );
+        MiniApplicationContext context = new MiniApplicationContext( classLoader.loadClass( PACKAGE + ".HotConfig" ) );
+        Object oldMessage = context.getBean( "message" );
+        Object consumer = context.getBean( "consumer" );
+        assertEquals( "v1", helperVersion( context.getBean( "helperUser" ) ) );
+
+        final BlockingQueue<Set<String>> reloads = new LinkedBlockingQueue<>();
+        try ( HotReloader reloader = new HotReloader( context, 50 ) )
+        {
+            reloader.setListener( new Consumer<Set<String>>()
+            {
+                @Override
+                public void accept( Set<String> beanNames )
+                {
+                    reloads.add( beanNames );
+                }
+            } );
+            reloader.start();
+            writeHelper( directory, "v2" );
+
+            Set<String> reloaded = reloads.poll( 10, TimeUnit.SECONDS );
+            assertEquals( Collections.singleton( "helperUser" ), reloaded );
+            assertEquals( "v2", helperVersion( context.getBean( "helperUser" ) ) );
+            assertSame( oldMessage, context.getBean( "message" ) );
+
+            // 新版本的构造方法抛异常，热加载失败，原来的bean保持不变
+            new ByteBuddy()
+                    .subclass( Object.class )
+                    .name( PACKAGE + ".Message" )
+                    .annotateType( AnnotationDescription.Builder.ofType( Component.class ).define( "value", "message" ).build() )
+                    .constructor( isDefaultConstructor() )
+                    .intercept( SuperMethodCall.INSTANCE.andThen( ExceptionMethod.throwing( IllegalStateException.class ) ) )
+                    .make()
+                    .saveIn( directory );
+            assertNull( reloads.poll( 1, TimeUnit.SECONDS ) );
+            assertSame( oldMessage, context.getBean( "message" ) );
+            assertSame( consumer, context.getBean( "consumer" ) );
+            assertSame( oldMessage, injectedMessage( consumer ) );
+
+            writeMessage( directory, "v3" );
+            reloaded = reloads.poll( 10, TimeUnit.SECONDS );
+            assertTrue( reloaded.contains( "message" ) );
+            assertEquals( "v3", version( context.getBean( "message" ) ) );
+        }
+    }
+
+    private static TypeDescription writeHelper( File directory, String version ) throws Exception
+    {
+        DynamicType.Unloaded<Object> helper = new ByteBuddy()
+                .subclass( Object.class )
+                .name( PACKAGE + ".Helper" )
+                .defineField( "VERSION", String.class, Visibility.PUBLIC, Ownership.STATIC, FieldManifestation.FINAL )
+                .value( version )
+                .make();
+        helper.saveIn( directory );
+        return helper.getTypeDescription();
+    }
+
+    private static String helperVersion( Object helperUser ) throws Exception
+    {
+        Class<?> helper = (Class<?>) helperUser.getClass().getMethod( "helper" ).invoke( helperUser );
+        return (String) helper.getField( "VERSION" ).get( null );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void shouldRejectChildContextWithoutConfigClass() throws Exception
+    {
+        MiniApplicationContext child = new MiniApplicationContext( new MiniApplicationContext( TestConfig.class ) );
+        new HotReloader( child ).start();
+    }
+}
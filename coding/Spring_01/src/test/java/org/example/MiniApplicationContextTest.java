@@ -0,0 +1,565 @@
+package org.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.mkl.AppConfig;
+import com.mkl.service.UserService;
+import com.spring.BeanPostProcessor;
+import com.spring.ComponentScan;
+import com.spring.Instrumentation;
+import com.spring.Instrumented;
+import com.spring.MiniApplicationContext;
+import com.spring.ObjectFactory;
+import com.spring.ParallelStartup;
+import com.spring.RequestScope;
+import com.spring.ResettableBean;
+import com.spring.SnapshotStartup;
+import com.spring.StartupReport;
+import com.spring.ThreadScope;
+import org.example.async.CacheClient;
+import org.example.async.SlowCache;
+import org.example.async.Warmup;
+import org.example.child.TenantMarker;
+import org.example.child.TenantService;
+import org.example.components.CircularA;
+import org.example.components.CircularB;
+import org.example.components.LazyBean;
+import org.example.components.Marker;
+import org.example.components.PooledBean;
+import org.example.components.RecordingPostProcessor;
+import org.example.components.RequestState;
+import org.example.components.TestConfig;
+import org.example.components.ThreadState;
+import org.example.components.TypedConsumer;
+import org.example.startup.LeftBranch;
+import org.example.startup.RightBranch;
+import org.example.startup.Root;
+import org.example.startup.StartupConfig;
+import org.example.startup.StartupLog;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MiniApplicationContext
+ */
+public class MiniApplicationContextTest
+{
+    @ComponentScan("com.mkl.service")
+    @ParallelStartup(4)
+    public static class ParallelConfig
+    {
+    }
+
+    @ComponentScan("org.example.startup")
+    @ParallelStartup(4)
+    public static class ParallelStartupConfig
+    {
+    }
+
+    @ComponentScan("org.example.invalidpool")
+    public static class InvalidPoolConfig
+    {
+    }
+
+    @ComponentScan("org.example.wrapped")
+    public static class WrappedCycleConfig
+    {
+    }
+
+    @ComponentScan("org.example.components")
+    @Instrumented
+    public static class InstrumentedConfig
+    {
+    }
+
+    @ComponentScan("org.example.components")
+    @SnapshotStartup("target/test-classes/mini-spring.snapshot")
+    public static class SnapshotConfig
+    {
+    }
+
+    @ComponentScan("org.example.child")
+    public static class ChildConfig
+    {
+    }
+
+    @ComponentScan("org.example.async")
+    public static class AsyncConfig
+    {
+    }
+
+    @ComponentScan("org.example.async")
+    @ParallelStartup(2)
+    public static class ParallelAsyncConfig
+    {
+    }
+
+    @Test
+    public void shouldCreateSingletonsBeforeDependents()
+    {
+        MiniApplicationContext context = new MiniApplicationContext( AppConfig.class );
+        assertNotNull( context.getBean( "orderService" ) );
+        assertSame( context.getBean( "orderService" ), context.getBean( "orderService" ) );
+        assertNotNull( (UserService) context.getBean( "userService" ) );
+    }
+
+    @Test
+    public void shouldCreateSingletonsInParallel()
+    {
+        MiniApplicationContext context = new MiniApplicationContext( ParallelConfig.class );
+        assertNotNull( context.getBean( "orderService" ) );
+        assertNotNull( context.getBean( "MklBeanPostProcessor" ) );
+    }
+
+    @Test
+    public void shouldCreateDependenciesBeforeDependents()
+    {
+        StartupLog.reset( 1 );
+        MiniApplicationContext context = new MiniApplicationContext( StartupConfig.class );
+
+        List<String> created = StartupLog.getCreated();
+        assertEquals( 3, created.size() );
+        assertEquals( "root", created.get( 2 ) );
+        Root root = context.getBean( Root.class );
+        assertSame( context.getBean( LeftBranch.class ), root.getLeftBranch() );
+        assertSame( context.getBean( RightBranch.class ), root.getRightBranch() );
+    }
+
+    @Test
+    public void shouldCreateIndependentSingletonsConcurrently()
+    {
+        // 两个分支bean要同时到达barrier才能创建成功，串行创建时第一个会等待超时
+        StartupLog.reset( 2 );
+        MiniApplicationContext context = new MiniApplicationContext( ParallelStartupConfig.class );
+
+        assertTrue( StartupLog.isOverlapped() );
+        List<String> created = StartupLog.getCreated();
+        assertEquals( 3, created.size() );
+        assertEquals( "root", created.get( 2 ) );
+        assertNotNull( context.getBean( Root.class ).getLeftBranch() );
+        assertNotNull( context.getBean( Root.class ).getRightBranch() );
+    }
+
+    @Test
+    public void shouldReuseAndResetPooledBeans()
+    {
+        MiniApplicationContext context = new MiniApplicationContext( TestConfig.class );
+        PooledBean first = (PooledBean) context.borrowBean( "pooledBean" );
+        PooledBean second = (PooledBean) context.borrowBean( "pooledBean" );
+        assertNotSame( first, second );
+
+        first.getBuffer().append( "dirty" );
+        context.releaseBean( "pooledBean", first );
+        context.releaseBean( "pooledBean", second );
+
+        PooledBean borrowed = (PooledBean) context.borrowBean( "pooledBean" );
+        assertTrue( borrowed == first || borrowed == second );
+        assertEquals( 0, borrowed.getBuffer().length() );
+    }
+
+    @Test
+    public void shouldNotDrainPoolThroughGetBean()
+    {
+        MiniApplicationContext context = new MiniApplicationContext( InstrumentedConfig.class );
+        // 启动时预先创建了2个
+        assertEquals( 2, context.getInstrumentation().getPrototypeCreationCount( "pooledBean" ) );
+
+        Object fromGetBean = context.getBean( "pooledBean" );
+        context.getBean( PooledBean.class );
+        context.getBeansOfType( ResettableBean.class );
+        assertEquals( 5, context.getInstrumentation().getPrototypeCreationCount( "pooledBean" ) );
+
+        // 池子里的2个还在，借出时不需要新建
+        Object first = context.borrowBean( "pooledBean" );
+        Object second = context.borrowBean( "pooledBean" );
+        assertNotSame( fromGetBean, first );
+        assertNotSame( fromGetBean, second );
+        assertEquals( 5, context.getInstrumentation().getPrototypeCreationCount( "pooledBean" ) );
+        context.releaseBean( "pooledBean", first );
+        context.releaseBean( "pooledBean", second );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldRejectEmptyPool()
+    {
+        new MiniApplicationContext( InvalidPoolConfig.class );
+    }
+
+    @Test
+    public void shouldRejectCycleWhoseEarlyReferenceIsWrappedLater()
+    {
+        MiniApplicationContext context = new MiniApplicationContext( WrappedCycleConfig.class );
+        try
+        {
+            // wrappedA先创建，wrappedB拿到的是原始对象，之后wrappedA被换成了代理
+            context.getBean( "wrappedA" );
+            fail();
+        }
+        catch ( IllegalStateException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "wrappedA" ) );
+        }
+    }
+
+    @Test
+    public void shouldResolveCircularDependencies()
+    {
+        MiniApplicationContext context = new MiniApplicationContext( TestConfig.class );
+        CircularA circularA = (CircularA) context.getBean( "circularA" );
+        CircularB circularB = (CircularB) context.getBean( "circularB" );
+        assertSame( circularB, circularA.getCircularB() );
+        assertSame( circularA, circularB.getCircularA() );
+    }
+
+    @Test
+    public void shouldCreateLazySingletonOnceOnConcurrentFirstAccess() throws Exception
+    {
+        final MiniApplicationContext context = new MiniApplicationContext( TestConfig.class );
+        int createdAtStartup = LazyBean.CREATED.get();
+
+        ExecutorService executor = Executors.newFixedThreadPool( 16 );
+        try
+        {
+            List<Future<Object>> futures = new ArrayList<>();
+            for ( int i = 0; i < 16; i++ )
+            {
+                futures.add( executor.submit( new Callable<Object>()
+                {
+                    @Override
+                    public Object call()
+                    {
+                        return context.getBean( "lazyBean" );
+                    }
+                } ) );
+            }
+            Object first = futures.get( 0 ).get();
+            assertNotNull( first );
+            for ( Future<Object> future : futures )
+            {
+                assertSame( first, future.get() );
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertEquals( createdAtStartup + 1, LazyBean.CREATED.get() );
+    }
+
+    @Test
+    public void shouldLookUpAndInjectByType()
+    {
+        MiniApplicationContext context = new MiniApplicationContext( TestConfig.class );
+        CircularA circularA = context.getBean( CircularA.class );
+        assertSame( circularA, context.getBean( "circularA" ) );
+        assertSame( circularA, context.getBean( TypedConsumer.class ).getDependency() );
+
+        Map<String, ResettableBean> resettableBeans = context.getBeansOfType( ResettableBean.class );
+        assertEquals( 1, resettableBeans.size() );
+        assertTrue( resettableBeans.get( "pooledBean" ) instanceof PooledBean );
+    }
+
+    @Test
+    public void shouldOnlyApplyPostProcessorsToTargetedBeans()
+    {
+        MiniApplicationContext context = new MiniApplicationContext( TestConfig.class );
+        RecordingPostProcessor postProcessor = context.getBean( RecordingPostProcessor.class );
+        assertNotNull( postProcessor.getMarker() );
+        assertEquals( Collections.singletonList( "circularA" ), postProcessor.getProcessed() );
+    }
+
+    @Test
+    public void shouldReportStartupPhases()
+    {
+        MiniApplicationContext context = new MiniApplicationContext( InstrumentedConfig.class );
+        context.borrowBean( "pooledBean" );
+        context.borrowBean( "pooledBean" );
+        context.borrowBean( "pooledBean" );
+
+        StartupReport report = context.getInstrumentation().getReport();
+        assertTrue( report.getStartupNanos() > 0 );
+        assertTrue( report.getContext().containsKey( Instrumentation.Phase.SCAN ) );
+        assertTrue( report.getBeans().get( "circularA" ).containsKey( Instrumentation.Phase.INSTANTIATE ) );
+        assertTrue( report.getBeans().get( "circularA" ).containsKey( Instrumentation.Phase.BEFORE_POST_PROCESS ) );
+        assertTrue( report.getPostProcessors().containsKey( RecordingPostProcessor.class.getName() ) );
+        // 池子里预先创建了2个，第3次借出时新建
+        assertEquals( 3, context.getInstrumentation().getPrototypeCreationCount( "pooledBean" ) );
+    }
+
+    @Test
+    public void shouldNotRecordWhenDisabled()
+    {
+        MiniApplicationContext context = new MiniApplicationContext( TestConfig.class );
+        assertTrue( context.getInstrumentation().getReport().getBeans().isEmpty() );
+    }
+
+    @Test
+    public void shouldStartFromSnapshot() throws Exception
+    {
+        File snapshot = new File( "target/test-classes/mini-spring.snapshot" );
+        snapshot.delete();
+
+        MiniApplicationContext first = new MiniApplicationContext( SnapshotConfig.class );
+        assertTrue( snapshot.exists() );
+        assertFalse( first.isStartedFromSnapshot() );
+        assertSnapshotContext( first );
+
+        MiniApplicationContext second = new MiniApplicationContext( SnapshotConfig.class );
+        assertTrue( second.isStartedFromSnapshot() );
+        assertSnapshotContext( second );
+        assertEquals( first.getBeansOfType( BeanPostProcessor.class ).keySet(), second.getBeansOfType( BeanPostProcessor.class ).keySet() );
+        assertEquals( Collections.singleton( "marker" ), second.getBeansOfType( Marker.class ).keySet() );
+
+        // 快照损坏时退回完整扫描，并重新写入
+        try ( FileOutputStream outputStream = new FileOutputStream( snapshot ) )
+        {
+            outputStream.write( new byte[] { 1, 2, 3 } );
+        }
+        MiniApplicationContext rescanned = new MiniApplicationContext( SnapshotConfig.class );
+        assertFalse( rescanned.isStartedFromSnapshot() );
+        assertSnapshotContext( rescanned );
+        assertTrue( snapshot.length() > 3 );
+        assertTrue( new MiniApplicationContext( SnapshotConfig.class ).isStartedFromSnapshot() );
+
+        // 组件实现的接口变了也要重新扫描
+        File tagged = new File( "target/test-classes/org/example/components/Tagged.class" );
+        byte[] original = Files.readAllBytes( tagged.toPath() );
+        try
+        {
+            byte[] changed = Arrays.copyOf( original, original.length + 1 );
+            Files.write( tagged.toPath(), changed );
+            assertFalse( new MiniApplicationContext( SnapshotConfig.class ).isStartedFromSnapshot() );
+        }
+        finally
+        {
+            Files.write( tagged.toPath(), original );
+        }
+    }
+
+    private void assertSnapshotContext( MiniApplicationContext context )
+    {
+        CircularA circularA = context.getBean( CircularA.class );
+        assertSame( circularA, context.getBean( CircularB.class ).getCircularA() );
+        assertSame( circularA, context.getBean( TypedConsumer.class ).getDependency() );
+        assertFalse( context.getBean( RecordingPostProcessor.class ).getProcessed().isEmpty() );
+    }
+
+    @Test
+    public void shouldShareRequestScopedBeanWithinOneRequest() throws Exception
+    {
+        final MiniApplicationContext context = new MiniApplicationContext( TestConfig.class );
+        final List<RequestState> seen = new ArrayList<>();
+        RequestState first = RequestScope.call( new Callable<RequestState>()
+        {
+            @Override
+            public RequestState call() throws Exception
+            {
+                RequestState state = context.getBean( RequestState.class );
+                assertSame( state, context.getBean( "requestState" ) );
+                // 交给其它线程继续处理同一个请求
+                final RequestScope.Attributes attributes = RequestScope.currentAttributes();
+                ExecutorService executor = Executors.newSingleThreadExecutor();
+                try
+                {
+                    seen.add( executor.submit( new Callable<RequestState>()
+                    {
+                        @Override
+                        public RequestState call() throws Exception
+                        {
+                            return RequestScope.call( attributes, new Callable<RequestState>()
+                            {
+                                @Override
+                                public RequestState call()
+                                {
+                                    return context.getBean( RequestState.class );
+                                }
+                            } );
+                        }
+                    } ).get() );
+                }
+                finally
+                {
+                    executor.shutdown();
+                }
+                assertFalse( state.isDestroyed() );
+                return state;
+            }
+        } );
+
+        assertSame( first, seen.get( 0 ) );
+        assertTrue( first.isDestroyed() );
+        assertNull( RequestScope.currentAttributes() );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void shouldRejectRequestScopedBeanOutsideRequest()
+    {
+        new MiniApplicationContext( TestConfig.class ).getBean( RequestState.class );
+    }
+
+    @Test
+    public void shouldDestroyRequestScopedBeanThatLostTheRace() throws Exception
+    {
+        final RequestScope scope = new RequestScope();
+        final RequestState winner = new RequestState();
+        final RequestState loser = new RequestState();
+        RequestScope.call( new Callable<Void>()
+        {
+            @Override
+            public Void call()
+            {
+                // 创建过程中同一个bean先被放进了作用域，这次创建的对象作废
+                Object bean = scope.get( "requestState", new ObjectFactory<Object>()
+                {
+                    @Override
+                    public Object getObject()
+                    {
+                        assertSame( winner, scope.get( "requestState", new ObjectFactory<Object>()
+                        {
+                            @Override
+                            public Object getObject()
+                            {
+                                return winner;
+                            }
+                        } ) );
+                        return loser;
+                    }
+                } );
+                assertSame( winner, bean );
+                assertTrue( loser.isDestroyed() );
+                assertFalse( winner.isDestroyed() );
+                return null;
+            }
+        } );
+        assertTrue( winner.isDestroyed() );
+    }
+
+    @Test
+    public void shouldRejectNullRequestScopedBean() throws Exception
+    {
+        final RequestScope scope = new RequestScope();
+        RequestScope.call( new Callable<Void>()
+        {
+            @Override
+            public Void call()
+            {
+                try
+                {
+                    scope.get( "missing", new ObjectFactory<Object>()
+                    {
+                        @Override
+                        public Object getObject()
+                        {
+                            return null;
+                        }
+                    } );
+                    fail();
+                }
+                catch ( IllegalStateException e )
+                {
+                    assertTrue( e.getMessage().contains( "missing" ) );
+                }
+                return null;
+            }
+        } );
+    }
+
+    @Test
+    public void shouldBindThreadScopedBeanToThread() throws Exception
+    {
+        final MiniApplicationContext context = new MiniApplicationContext( TestConfig.class );
+        ThreadState state = context.getBean( ThreadState.class );
+        assertSame( state, context.getBean( ThreadState.class ) );
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            assertNotSame( state, executor.submit( new Callable<Object>()
+            {
+                @Override
+                public Object call()
+                {
+                    return context.getBean( ThreadState.class );
+                }
+            } ).get() );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        ( (ThreadScope) context.getRegisteredScope( "thread" ) ).clear();
+        assertNotSame( state, context.getBean( ThreadState.class ) );
+    }
+
+    @Test
+    public void shouldOverrideParentBeansInChildContext()
+    {
+        MiniApplicationContext parent = new MiniApplicationContext( TestConfig.class );
+        MiniApplicationContext child = new MiniApplicationContext( ChildConfig.class, parent );
+
+        TenantService tenantService = child.getBean( TenantService.class );
+        assertSame( parent.getBean( CircularA.class ), tenantService.getCircularA() );
+        assertSame( child.getBean( "circularA" ), parent.getBean( "circularA" ) );
+        assertTrue( tenantService.getMarker() instanceof TenantMarker );
+        assertSame( tenantService.getMarker(), child.getBeansOfType( Marker.class ).get( "marker" ) );
+        assertFalse( parent.getBean( Marker.class ) instanceof TenantMarker );
+        assertFalse( parent.containsBean( "tenantService" ) );
+    }
+
+    @Test
+    public void shouldRegisterSingletonsInEmptyChildContext()
+    {
+        MiniApplicationContext parent = new MiniApplicationContext( TestConfig.class );
+        MiniApplicationContext child = new MiniApplicationContext( parent );
+        Marker marker = new Marker();
+        child.registerSingleton( "marker", marker );
+
+        assertSame( marker, child.getBean( Marker.class ) );
+        assertNotSame( marker, parent.getBean( Marker.class ) );
+        assertSame( parent.getBean( CircularA.class ), child.getBean( CircularA.class ) );
+        assertSame( parent.getRegisteredScope( "request" ), child.getRegisteredScope( "request" ) );
+    }
+
+    @Test
+    public void shouldInitializeInBackground() throws Exception
+    {
+        assertBackgroundInitialization( AsyncConfig.class );
+        assertBackgroundInitialization( ParallelAsyncConfig.class );
+    }
+
+    private void assertBackgroundInitialization( Class<?> configClass ) throws Exception
+    {
+        // 两个慢bean必须同时在初始化，并且容器在它们完成之前就返回
+        Warmup.reset();
+        MiniApplicationContext context = new MiniApplicationContext( configClass );
+        assertFalse( context.isReady() );
+
+        Warmup.release();
+        context.getReadiness().get( 5, TimeUnit.SECONDS );
+        assertTrue( context.isReady() );
+        assertTrue( context.getBean( SlowCache.class ).isInitialized() );
+        // 依赖慢bean的bean等它初始化完成后才创建
+        assertTrue( context.getBean( CacheClient.class ).isCacheReadyAtInit() );
+    }
+}
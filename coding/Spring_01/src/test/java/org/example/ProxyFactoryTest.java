@@ -0,0 +1,119 @@
+package org.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.spring.MethodInterceptor;
+import com.spring.MethodInvocation;
+import com.spring.ProxyFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * ProxyFactory
+ */
+public class ProxyFactoryTest
+{
+    public static class Calculator
+    {
+        public int add( int a, int b )
+        {
+            return a + b;
+        }
+    }
+
+    public static class Task implements Callable<String>
+    {
+        @Override
+        public String call()
+        {
+            return "done";
+        }
+    }
+
+    interface Counter
+    {
+        int next( int step );
+    }
+
+    static class PackagePrivateCounter implements Counter
+    {
+        private int value;
+
+        @Override
+        public int next( int step )
+        {
+            return value += step;
+        }
+    }
+
+    static class PackagePrivateGreeter
+    {
+        public String greet( String name )
+        {
+            return "hello " + name;
+        }
+    }
+
+    private static MethodInterceptor recording( final List<String> calls, final String name )
+    {
+        return new MethodInterceptor()
+        {
+            @Override
+            public Object invoke( MethodInvocation invocation ) throws Throwable
+            {
+                calls.add( name + ":" + invocation.getMethod().getName() );
+                return invocation.proceed();
+            }
+        };
+    }
+
+    @Test
+    public void shouldProxyClassesWithoutInterfaces()
+    {
+        List<String> calls = new ArrayList<>();
+        Calculator proxy = (Calculator) ProxyFactory.getProxy( new Calculator(), recording( calls, "first" ), recording( calls, "second" ) );
+        assertNotSame( Calculator.class, proxy.getClass() );
+        assertEquals( 5, proxy.add( 2, 3 ) );
+        assertEquals( 2, calls.size() );
+        assertEquals( "first:add", calls.get( 0 ) );
+        assertEquals( "second:add", calls.get( 1 ) );
+    }
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void shouldProxyInterfacesAndReuseProxyClass() throws Exception
+    {
+        List<String> calls = new ArrayList<>();
+        Task task = new Task();
+        Callable<String> proxy = (Callable<String>) ProxyFactory.getProxy( task, recording( calls, "interceptor" ) );
+        Callable<String> another = (Callable<String>) ProxyFactory.getProxy( new Task() );
+
+        assertTrue( !( proxy instanceof Task ) );
+        assertEquals( "done", proxy.call() );
+        assertEquals( "done", another.call() );
+        assertEquals( 1, calls.size() );
+        assertSame( proxy.getClass(), another.getClass() );
+        assertEquals( task.toString(), proxy.toString() );
+    }
+
+    @Test
+    public void shouldProxyPackagePrivateTypes()
+    {
+        List<String> calls = new ArrayList<>();
+        Counter counter = (Counter) ProxyFactory.getProxy( new PackagePrivateCounter(), recording( calls, "counter" ) );
+        PackagePrivateGreeter greeter = (PackagePrivateGreeter) ProxyFactory.getProxy( new PackagePrivateGreeter(), recording( calls, "greeter" ) );
+
+        assertEquals( 2, counter.next( 2 ) );
+        assertEquals( 5, counter.next( 3 ) );
+        assertEquals( "hello world", greeter.greet( "world" ) );
+        assertEquals( 3, calls.size() );
+        assertEquals( "greeter:greet", calls.get( 2 ) );
+        assertEquals( Counter.class.getPackage(), counter.getClass().getPackage() );
+    }
+}
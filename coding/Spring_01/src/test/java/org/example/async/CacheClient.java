@@ -0,0 +1,23 @@
+package org.example.async;
+
+import com.spring.Autowired;
+import com.spring.Component;
+import com.spring.InitializingBean;
+
+@Component("cacheClient")
+public class CacheClient implements InitializingBean {
+
+    @Autowired
+    private SlowCache slowCache;
+
+    private boolean cacheReadyAtInit;
+
+    public boolean isCacheReadyAtInit() {
+        return cacheReadyAtInit;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        cacheReadyAtInit = slowCache.isInitialized();
+    }
+}
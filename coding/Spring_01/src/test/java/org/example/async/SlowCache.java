@@ -0,0 +1,22 @@
+package org.example.async;
+
+import com.spring.AsyncInit;
+import com.spring.Component;
+import com.spring.InitializingBean;
+
+@Component("slowCache")
+@AsyncInit
+public class SlowCache implements InitializingBean {
+
+    private volatile boolean initialized;
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Warmup.await();
+        initialized = true;
+    }
+}
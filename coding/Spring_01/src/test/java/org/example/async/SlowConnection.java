@@ -0,0 +1,15 @@
+package org.example.async;
+
+import com.spring.AsyncInit;
+import com.spring.Component;
+import com.spring.InitializingBean;
+
+@Component("slowConnection")
+@AsyncInit
+public class SlowConnection implements InitializingBean {
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Warmup.await();
+    }
+}
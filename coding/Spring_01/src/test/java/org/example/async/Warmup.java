@@ -0,0 +1,28 @@
+package org.example.async;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 控制后台初始化的进度：两个慢bean要同时到达barrier，再等测试放行
+ */
+public class Warmup {
+
+    private static volatile CyclicBarrier barrier;
+    private static volatile CountDownLatch release;
+
+    public static void reset() {
+        barrier = new CyclicBarrier(2);
+        release = new CountDownLatch(1);
+    }
+
+    public static void release() {
+        release.countDown();
+    }
+
+    static void await() throws Exception {
+        barrier.await(5, TimeUnit.SECONDS);
+        release.await(5, TimeUnit.SECONDS);
+    }
+}
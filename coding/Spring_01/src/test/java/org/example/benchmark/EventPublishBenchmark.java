@@ -0,0 +1,70 @@
+package org.example.benchmark;
+
+import com.spring.MiniApplicationContext;
+import org.example.benchmark.events.BatchTick;
+import org.example.benchmark.events.EventBenchmarkConfig;
+import org.example.benchmark.events.RingTick;
+import org.example.benchmark.events.SyncTick;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发布事件的吞吐量和每次发布的内存分配，事件对象提前创建好，只测分发本身；
+ * ring在队列满时会等待消费线程，测到的是消费线程的处理速度
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventPublishBenchmark {
+
+    private final SyncTick syncTick = new SyncTick();
+    private final BatchTick batchTick = new BatchTick();
+    private final RingTick ringTick = new RingTick();
+    private MiniApplicationContext context;
+
+    @Setup
+    public void setup() {
+        context = new MiniApplicationContext(EventBenchmarkConfig.class);
+    }
+
+    @Benchmark
+    public void sync() {
+        context.publishEvent(syncTick);
+    }
+
+    @Benchmark
+    public void batch() {
+        context.publishEvent(batchTick);
+    }
+
+    @Benchmark
+    public void ringBuffer() {
+        context.publishEvent(ringTick);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void ringBufferContended() {
+        context.publishEvent(ringTick);
+    }
+
+    @Benchmark
+    public void noListener() {
+        context.publishEvent(this);
+    }
+
+}
@@ -0,0 +1,80 @@
+package org.example.benchmark;
+
+import com.spring.MiniApplicationContext;
+import org.example.benchmark.components.BenchmarkConfig;
+import org.example.benchmark.components.DependencyA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getBean的吞吐量：单例和prototype，单线程和多线程；
+ * emptyPrototype和prototype的差值除以3就是每个Autowired属性的注入开销
+ * prototypeInstrumented 打开Instrumentation之后创建prototype的开销
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GetBeanBenchmark {
+
+    private MiniApplicationContext context;
+    private MiniApplicationContext instrumentedContext;
+
+    @Setup
+    public void setup() {
+        context = new MiniApplicationContext(BenchmarkConfig.class);
+        instrumentedContext = new MiniApplicationContext(BenchmarkConfig.class);
+        instrumentedContext.getInstrumentation().setEnabled(true);
+    }
+
+    @Benchmark
+    public Object singleton() {
+        return context.getBean("dependencyA");
+    }
+
+    @Benchmark
+    public Object singletonByType() {
+        return context.getBean(DependencyA.class);
+    }
+
+    @Benchmark
+    public Object emptyPrototype() {
+        return context.getBean("emptyPrototypeBean");
+    }
+
+    @Benchmark
+    public Object prototype() {
+        return context.getBean("prototypeBean");
+    }
+
+    @Benchmark
+    public Object prototypeInstrumented() {
+        return instrumentedContext.getBean("prototypeBean");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object singletonConcurrent() {
+        return context.getBean("dependencyA");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object prototypeConcurrent() {
+        return context.getBean("prototypeBean");
+    }
+
+}
@@ -0,0 +1,68 @@
+package org.example.benchmark;
+
+import com.spring.Autowired;
+import com.spring.MiniApplicationContext;
+import org.example.benchmark.components.BenchmarkConfig;
+import org.example.benchmark.components.PrototypeBean;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 创建一个有3个Autowired属性的prototype bean:
+ * reflection 是原来createBean的做法，每次都遍历getDeclaredFields、setAccessible、Field.set
+ * getBean 走缓存的InjectionMetadata
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrototypeCreationBenchmark {
+
+    private MiniApplicationContext context;
+
+    @Setup
+    public void setup() {
+        context = new MiniApplicationContext(BenchmarkConfig.class);
+    }
+
+    @Benchmark
+    public Object reflection() throws Exception {
+        Object instance = PrototypeBean.class.getDeclaredConstructor().newInstance();
+        for (Field declaredField : PrototypeBean.class.getDeclaredFields()) {
+            if (declaredField.isAnnotationPresent(Autowired.class)) {
+                Object bean = context.getBean(declaredField.getName());
+                declaredField.setAccessible(true);
+                declaredField.set(instance, bean);
+            }
+        }
+        return instance;
+    }
+
+    @Benchmark
+    public Object getBean() {
+        return context.getBean("prototypeBean");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PrototypeCreationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
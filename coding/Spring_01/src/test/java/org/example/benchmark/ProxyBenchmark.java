@@ -0,0 +1,95 @@
+package org.example.benchmark;
+
+import com.spring.MethodInterceptor;
+import com.spring.MethodInvocation;
+import com.spring.ProxyFactory;
+import org.example.benchmark.components.Greeter;
+import org.example.benchmark.components.SimpleGreeter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 和MklBeanPostProcessor一样包一层代理之后的调用开销(拦截器里不打印)：
+ * direct 直接调用，jdkProxy 原来的Proxy + Method.invoke，generatedProxy ProxyFactory生成的代理(一个拦截器)，
+ * bareGeneratedProxy 没有拦截器的生成代理，和jdkProxy一样不经过拦截器链，只看代理本身的转发开销
+ * createJdkProxy/createGeneratedProxy 是prototype bean每次getBean都要付出的创建代理的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProxyBenchmark {
+
+    private final MethodInterceptor interceptor = new MethodInterceptor() {
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            return invocation.proceed();
+        }
+    };
+
+    private Greeter target;
+    private Greeter jdkProxy;
+    private Greeter generatedProxy;
+    private Greeter bareGeneratedProxy;
+    private String name = "mkl";
+
+    @Setup
+    public void setup() {
+        target = new SimpleGreeter();
+        jdkProxy = createJdkProxy();
+        generatedProxy = createGeneratedProxy();
+        bareGeneratedProxy = (Greeter) ProxyFactory.getProxy(target);
+    }
+
+    @Benchmark
+    public String direct() {
+        return target.greet(name);
+    }
+
+    @Benchmark
+    public String jdkProxy() {
+        return jdkProxy.greet(name);
+    }
+
+    @Benchmark
+    public String generatedProxy() {
+        return generatedProxy.greet(name);
+    }
+
+    @Benchmark
+    public String bareGeneratedProxy() {
+        return bareGeneratedProxy.greet(name);
+    }
+
+    @Benchmark
+    public Greeter createJdkProxy() {
+        final Greeter bean = target;
+        return (Greeter) Proxy.newProxyInstance(ProxyBenchmark.class.getClassLoader(), bean.getClass().getInterfaces(), new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                return method.invoke(bean, args);
+            }
+        });
+    }
+
+    @Benchmark
+    public Greeter createGeneratedProxy() {
+        return (Greeter) ProxyFactory.getProxy(target, interceptor);
+    }
+
+}
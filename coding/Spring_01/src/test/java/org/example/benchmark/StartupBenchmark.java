@@ -0,0 +1,48 @@
+package org.example.benchmark;
+
+import com.spring.MiniApplicationContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动一个有N个组件的容器，分别比较串行创建和@ParallelStartup
+ * 组件类只加载一次，这里测的是读取索引、建立依赖关系和创建bean的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Param({"100", "1000"})
+    private int components;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private Class<?> configClass;
+
+    @Setup
+    public void setup() throws Exception {
+        configClass = SyntheticComponents.generate(components, parallel);
+    }
+
+    @Benchmark
+    public MiniApplicationContext startup() {
+        return new MiniApplicationContext(configClass);
+    }
+
+}
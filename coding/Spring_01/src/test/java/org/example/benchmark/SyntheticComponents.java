@@ -0,0 +1,73 @@
+package org.example.benchmark;
+
+import com.spring.Autowired;
+import com.spring.Component;
+import com.spring.ComponentScan;
+import com.spring.ParallelStartup;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * 生成N个组件类和扫描它们的配置类，写到临时目录里，连同组件索引一起用单独的类加载器加载
+ * 第i个组件注入第(i-1)/2个组件，依赖关系是一棵二叉树
+ */
+public class SyntheticComponents {
+
+    private static final String PACKAGE = "synthetic.components";
+
+    public static Class<?> generate(int count, boolean parallel) throws IOException, ClassNotFoundException {
+        File directory = Files.createTempDirectory("synthetic-components").toFile();
+        directory.deleteOnExit();
+
+        StringBuilder index = new StringBuilder();
+        TypeDescription[] types = new TypeDescription[count];
+        for (int i = 0; i < count; i++) {
+            String className = PACKAGE + ".Component" + i;
+            DynamicType.Builder<Object> builder = new ByteBuddy()
+                    .subclass(Object.class)
+                    .name(className)
+                    .annotateType(AnnotationDescription.Builder.ofType(Component.class).define("value", "component" + i).build());
+            String injectionPoints = "";
+            if (i > 0) {
+                TypeDescription dependency = types[(i - 1) / 2];
+                builder = builder.defineField("dependency", dependency, Visibility.PRIVATE)
+                        .annotateField(AnnotationDescription.Builder.ofType(Autowired.class).build());
+                injectionPoints = "dependency:" + dependency.getName();
+            }
+            DynamicType.Unloaded<Object> unloaded = builder.make();
+            unloaded.saveIn(directory);
+            types[i] = unloaded.getTypeDescription();
+            index.append(className).append("=component").append(i).append("|singleton|false|").append(injectionPoints).append('\n');
+        }
+
+        DynamicType.Builder<Object> config = new ByteBuddy()
+                .subclass(Object.class)
+                .name(PACKAGE + ".SyntheticConfig")
+                .annotateType(AnnotationDescription.Builder.ofType(ComponentScan.class).defineArray("value", PACKAGE).build());
+        if (parallel) {
+            config = config.annotateType(AnnotationDescription.Builder.ofType(ParallelStartup.class).build());
+        }
+        config.make().saveIn(directory);
+
+        File indexFile = new File(directory, "META-INF/mini-spring.components");
+        indexFile.getParentFile().mkdirs();
+        try (Writer writer = Files.newBufferedWriter(indexFile.toPath(), StandardCharsets.ISO_8859_1)) {
+            writer.write(index.toString());
+        }
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{directory.toURI().toURL()}, SyntheticComponents.class.getClassLoader());
+        return classLoader.loadClass(PACKAGE + ".SyntheticConfig");
+    }
+
+}
@@ -0,0 +1,10 @@
+package org.example.benchmark.components;
+
+import com.spring.ComponentScan;
+
+/**
+ * 基准测试用的配置，只扫描没有BeanPostProcessor的组件
+ */
+@ComponentScan("org.example.benchmark.components")
+public class BenchmarkConfig {
+}
@@ -0,0 +1,7 @@
+package org.example.benchmark.components;
+
+import com.spring.Component;
+
+@Component("dependencyC")
+public class DependencyC {
+}
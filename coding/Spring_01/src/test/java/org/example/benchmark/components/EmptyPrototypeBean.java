@@ -0,0 +1,9 @@
+package org.example.benchmark.components;
+
+import com.spring.Component;
+import com.spring.scope;
+
+@Component("emptyPrototypeBean")
+@scope("prototype")
+public class EmptyPrototypeBean {
+}
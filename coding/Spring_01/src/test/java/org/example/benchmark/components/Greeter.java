@@ -0,0 +1,7 @@
+package org.example.benchmark.components;
+
+public interface Greeter {
+
+    String greet(String name);
+
+}
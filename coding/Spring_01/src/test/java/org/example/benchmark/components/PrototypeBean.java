@@ -0,0 +1,22 @@
+package org.example.benchmark.components;
+
+import com.spring.Autowired;
+import com.spring.Component;
+import com.spring.scope;
+
+@Component("prototypeBean")
+@scope("prototype")
+public class PrototypeBean {
+
+    @Autowired
+    private DependencyA dependencyA;
+
+    @Autowired
+    private DependencyB dependencyB;
+
+    @Autowired
+    private DependencyC dependencyC;
+
+    private String name;
+
+}
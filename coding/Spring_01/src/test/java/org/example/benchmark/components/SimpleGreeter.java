@@ -0,0 +1,9 @@
+package org.example.benchmark.components;
+
+public class SimpleGreeter implements Greeter {
+
+    @Override
+    public String greet(String name) {
+        return name;
+    }
+}
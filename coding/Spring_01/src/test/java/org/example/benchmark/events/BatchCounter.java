@@ -0,0 +1,17 @@
+package org.example.benchmark.events;
+
+import com.spring.ApplicationListener;
+import com.spring.Component;
+import com.spring.EventDispatch;
+
+@EventDispatch(EventDispatch.Mode.BATCH)
+@Component("batchCounter")
+public class BatchCounter implements ApplicationListener<BatchTick> {
+
+    private long count;
+
+    @Override
+    public void onApplicationEvent(BatchTick event) {
+        count++;
+    }
+}
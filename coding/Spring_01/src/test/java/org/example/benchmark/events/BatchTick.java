@@ -0,0 +1,4 @@
+package org.example.benchmark.events;
+
+public class BatchTick {
+}
@@ -0,0 +1,7 @@
+package org.example.benchmark.events;
+
+import com.spring.ComponentScan;
+
+@ComponentScan("org.example.benchmark.events")
+public class EventBenchmarkConfig {
+}
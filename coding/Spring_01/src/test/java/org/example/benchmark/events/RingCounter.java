@@ -0,0 +1,17 @@
+package org.example.benchmark.events;
+
+import com.spring.ApplicationListener;
+import com.spring.Component;
+import com.spring.EventDispatch;
+
+@EventDispatch(EventDispatch.Mode.RING_BUFFER)
+@Component("ringCounter")
+public class RingCounter implements ApplicationListener<RingTick> {
+
+    private long count;
+
+    @Override
+    public void onApplicationEvent(RingTick event) {
+        count++;
+    }
+}
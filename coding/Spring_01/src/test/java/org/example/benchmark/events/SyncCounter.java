@@ -0,0 +1,15 @@
+package org.example.benchmark.events;
+
+import com.spring.ApplicationListener;
+import com.spring.Component;
+
+@Component("syncCounter")
+public class SyncCounter implements ApplicationListener<SyncTick> {
+
+    private long count;
+
+    @Override
+    public void onApplicationEvent(SyncTick event) {
+        count++;
+    }
+}
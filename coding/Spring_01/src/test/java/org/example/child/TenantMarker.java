@@ -0,0 +1,8 @@
+package org.example.child;
+
+import com.spring.Component;
+import org.example.components.Marker;
+
+@Component("marker")
+public class TenantMarker extends Marker {
+}
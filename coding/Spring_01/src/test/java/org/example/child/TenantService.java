@@ -0,0 +1,24 @@
+package org.example.child;
+
+import com.spring.Autowired;
+import com.spring.Component;
+import org.example.components.CircularA;
+import org.example.components.Marker;
+
+@Component("tenantService")
+public class TenantService {
+
+    @Autowired
+    private CircularA circularA;
+
+    @Autowired
+    private Marker marker;
+
+    public CircularA getCircularA() {
+        return circularA;
+    }
+
+    public Marker getMarker() {
+        return marker;
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.components;
+
+import com.spring.Autowired;
+import com.spring.Component;
+
+@Component("circularA")
+public class CircularA {
+
+    @Autowired
+    private CircularB circularB;
+
+    public CircularB getCircularB() {
+        return circularB;
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.components;
+
+import com.spring.Autowired;
+import com.spring.Component;
+
+@Component("circularB")
+public class CircularB {
+
+    @Autowired
+    private CircularA circularA;
+
+    public CircularA getCircularA() {
+        return circularA;
+    }
+}
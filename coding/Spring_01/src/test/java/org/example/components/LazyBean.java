@@ -0,0 +1,19 @@
+package org.example.components;
+
+import com.spring.Component;
+import com.spring.Lazy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component("lazyBean")
+@Lazy
+public class LazyBean {
+
+    public static final AtomicInteger CREATED = new AtomicInteger();
+
+    public LazyBean() throws InterruptedException {
+        CREATED.incrementAndGet();
+        // 放大并发第一次访问的窗口
+        Thread.sleep(50);
+    }
+}
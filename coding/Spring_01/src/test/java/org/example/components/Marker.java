@@ -0,0 +1,7 @@
+package org.example.components;
+
+import com.spring.Component;
+
+@Component("marker")
+public class Marker implements Tagged {
+}
@@ -0,0 +1,23 @@
+package org.example.components;
+
+import com.spring.Component;
+import com.spring.PoolSize;
+import com.spring.ResettableBean;
+import com.spring.scope;
+
+@Component("pooledBean")
+@scope("pooled")
+@PoolSize(2)
+public class PooledBean implements ResettableBean {
+
+    private StringBuilder buffer = new StringBuilder();
+
+    public StringBuilder getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public void reset() {
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.components;
+
+import com.spring.ApplyTo;
+import com.spring.Autowired;
+import com.spring.BeanPostProcessor;
+import com.spring.Component;
+import com.spring.Order;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Component("recordingPostProcessor")
+@ApplyTo(types = CircularA.class)
+@Order(1)
+public class RecordingPostProcessor implements BeanPostProcessor {
+
+    @Autowired
+    private Marker marker;
+
+    private final List<String> processed = new CopyOnWriteArrayList<>();
+
+    public Marker getMarker() {
+        return marker;
+    }
+
+    public List<String> getProcessed() {
+        return processed;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        processed.add(beanName);
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return bean;
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.components;
+
+import com.spring.Component;
+import com.spring.DisposableBean;
+import com.spring.scope;
+
+@Component("requestState")
+@scope("request")
+public class RequestState implements DisposableBean {
+
+    private boolean destroyed;
+
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    @Override
+    public void destroy() {
+        destroyed = true;
+    }
+}
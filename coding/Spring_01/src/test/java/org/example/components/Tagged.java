@@ -0,0 +1,7 @@
+package org.example.components;
+
+/**
+ * 不是组件，只是组件实现的接口
+ */
+public interface Tagged {
+}
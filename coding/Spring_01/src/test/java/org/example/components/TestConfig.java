@@ -0,0 +1,10 @@
+package org.example.components;
+
+import com.spring.ComponentScan;
+
+/**
+ * 单元测试用的配置
+ */
+@ComponentScan("org.example.components")
+public class TestConfig {
+}
@@ -0,0 +1,9 @@
+package org.example.components;
+
+import com.spring.Component;
+import com.spring.scope;
+
+@Component("threadState")
+@scope("thread")
+public class ThreadState {
+}
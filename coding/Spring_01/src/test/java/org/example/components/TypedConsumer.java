@@ -0,0 +1,16 @@
+package org.example.components;
+
+import com.spring.Autowired;
+import com.spring.Component;
+
+@Component("typedConsumer")
+public class TypedConsumer {
+
+    // 属性名和beanName不一致，按类型注入
+    @Autowired
+    private CircularA dependency;
+
+    public CircularA getDependency() {
+        return dependency;
+    }
+}
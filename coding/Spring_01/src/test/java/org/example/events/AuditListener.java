@@ -0,0 +1,29 @@
+package org.example.events;
+
+import com.spring.ApplicationListener;
+import com.spring.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component("auditListener")
+public class AuditListener implements ApplicationListener<OrderCreated> {
+
+    private final AtomicLong sum = new AtomicLong();
+    private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public Set<String> getThreads() {
+        return threads;
+    }
+
+    @Override
+    public void onApplicationEvent(OrderCreated event) {
+        sum.addAndGet(event.getOrderId());
+        threads.add(Thread.currentThread().getName());
+    }
+}
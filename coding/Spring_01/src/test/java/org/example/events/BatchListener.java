@@ -0,0 +1,31 @@
+package org.example.events;
+
+import com.spring.ApplicationListener;
+import com.spring.Component;
+import com.spring.EventDispatch;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@EventDispatch(value = EventDispatch.Mode.BATCH, batchSize = 16)
+@Component("batchListener")
+public class BatchListener implements ApplicationListener<OrderCreated> {
+
+    private final AtomicLong sum = new AtomicLong();
+    private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public Set<String> getThreads() {
+        return threads;
+    }
+
+    @Override
+    public void onApplicationEvent(OrderCreated event) {
+        sum.addAndGet(event.getOrderId());
+        threads.add(Thread.currentThread().getName());
+    }
+}
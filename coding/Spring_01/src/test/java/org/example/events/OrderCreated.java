@@ -0,0 +1,14 @@
+package org.example.events;
+
+public class OrderCreated {
+
+    private final long orderId;
+
+    public OrderCreated(long orderId) {
+        this.orderId = orderId;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+}
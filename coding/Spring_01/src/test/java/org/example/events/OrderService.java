@@ -0,0 +1,20 @@
+package org.example.events;
+
+import com.spring.ApplicationEventPublisher;
+import com.spring.ApplicationEventPublisherAware;
+import com.spring.Component;
+
+@Component("orderService")
+public class OrderService implements ApplicationEventPublisherAware {
+
+    private ApplicationEventPublisher publisher;
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    public void createOrder(long orderId) {
+        publisher.publishEvent(new OrderCreated(orderId));
+    }
+}
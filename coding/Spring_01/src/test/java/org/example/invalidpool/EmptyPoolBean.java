@@ -0,0 +1,11 @@
+package org.example.invalidpool;
+
+import com.spring.Component;
+import com.spring.PoolSize;
+import com.spring.scope;
+
+@Component("emptyPoolBean")
+@scope("pooled")
+@PoolSize(0)
+public class EmptyPoolBean {
+}
@@ -0,0 +1,14 @@
+package org.example.reentrant;
+
+public class Announcement {
+
+    private final String text;
+
+    public Announcement(String text) {
+        this.text = text;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
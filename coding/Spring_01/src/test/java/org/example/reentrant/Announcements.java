@@ -0,0 +1,8 @@
+package org.example.reentrant;
+
+import java.util.List;
+
+public interface Announcements {
+
+    List<String> getReceived();
+}
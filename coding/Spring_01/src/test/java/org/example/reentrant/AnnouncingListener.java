@@ -0,0 +1,40 @@
+package org.example.reentrant;
+
+import com.spring.ApplicationEventPublisher;
+import com.spring.ApplicationEventPublisherAware;
+import com.spring.ApplicationListener;
+import com.spring.Component;
+import com.spring.InitializingBean;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 初始化时发布自己监听的事件，这时它自己还在创建中
+ */
+@Component("announcingListener")
+public class AnnouncingListener implements ApplicationListener<Announcement>, ApplicationEventPublisherAware, InitializingBean, Announcements {
+
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private ApplicationEventPublisher publisher;
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        publisher.publishEvent(new Announcement("init"));
+    }
+
+    @Override
+    public void onApplicationEvent(Announcement event) {
+        received.add(event.getText());
+    }
+
+    @Override
+    public List<String> getReceived() {
+        return received;
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.reentrant;
+
+import com.spring.ApplyTo;
+import com.spring.BeanPostProcessor;
+import com.spring.Component;
+import com.spring.ProxyFactory;
+
+@Component("listenerWrapper")
+@ApplyTo(types = AnnouncingListener.class)
+public class ListenerWrapper implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return ProxyFactory.getProxy(bean);
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.startup;
+
+import com.spring.Component;
+
+@Component("leftBranch")
+public class LeftBranch {
+
+    public LeftBranch() throws Exception {
+        StartupLog.branchCreated("leftBranch");
+    }
+}
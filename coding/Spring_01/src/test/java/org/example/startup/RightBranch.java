@@ -0,0 +1,11 @@
+package org.example.startup;
+
+import com.spring.Component;
+
+@Component("rightBranch")
+public class RightBranch {
+
+    public RightBranch() throws Exception {
+        StartupLog.branchCreated("rightBranch");
+    }
+}
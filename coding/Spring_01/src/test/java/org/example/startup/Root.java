@@ -0,0 +1,26 @@
+package org.example.startup;
+
+import com.spring.Autowired;
+import com.spring.Component;
+
+@Component("root")
+public class Root {
+
+    @Autowired
+    private LeftBranch leftBranch;
+
+    @Autowired
+    private RightBranch rightBranch;
+
+    public Root() {
+        StartupLog.created("root");
+    }
+
+    public LeftBranch getLeftBranch() {
+        return leftBranch;
+    }
+
+    public RightBranch getRightBranch() {
+        return rightBranch;
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.startup;
+
+import com.spring.ComponentScan;
+
+/**
+ * root依赖两个互不依赖的分支bean
+ */
+@ComponentScan("org.example.startup")
+public class StartupConfig {
+}
@@ -0,0 +1,46 @@
+package org.example.startup;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录启动时bean的创建顺序；两个互不依赖的分支bean在构造方法里等待对方，只有并行创建时才能同时到达barrier
+ */
+public class StartupLog {
+
+    private static final List<String> created = new CopyOnWriteArrayList<>();
+    private static volatile CyclicBarrier barrier;
+    private static volatile boolean overlapped;
+
+    /**
+     * @param branches 需要同时到达的分支数，串行启动时传1
+     */
+    public static void reset(int branches) {
+        created.clear();
+        barrier = new CyclicBarrier(branches);
+        overlapped = false;
+    }
+
+    public static List<String> getCreated() {
+        return created;
+    }
+
+    /**
+     * 两个分支bean是否同时处于创建中
+     */
+    public static boolean isOverlapped() {
+        return overlapped;
+    }
+
+    static void created(String beanName) {
+        created.add(beanName);
+    }
+
+    static void branchCreated(String beanName) throws Exception {
+        barrier.await(5, TimeUnit.SECONDS);
+        overlapped = barrier.getParties() > 1;
+        created(beanName);
+    }
+}
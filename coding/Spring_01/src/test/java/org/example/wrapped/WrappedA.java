@@ -0,0 +1,17 @@
+package org.example.wrapped;
+
+import com.spring.Autowired;
+import com.spring.Component;
+import com.spring.Lazy;
+
+@Component("wrappedA")
+@Lazy
+public class WrappedA {
+
+    @Autowired
+    private WrappedB wrappedB;
+
+    public WrappedB getWrappedB() {
+        return wrappedB;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.wrapped;
+
+import com.spring.Autowired;
+import com.spring.Component;
+import com.spring.Lazy;
+
+@Component("wrappedB")
+@Lazy
+public class WrappedB {
+
+    @Autowired
+    private WrappedA wrappedA;
+
+    public WrappedA getWrappedA() {
+        return wrappedA;
+    }
+}
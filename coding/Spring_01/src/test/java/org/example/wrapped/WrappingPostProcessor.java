@@ -0,0 +1,24 @@
+package org.example.wrapped;
+
+import com.spring.ApplyTo;
+import com.spring.BeanPostProcessor;
+import com.spring.Component;
+import com.spring.ProxyFactory;
+
+/**
+ * 和MklBeanPostProcessor一样在初始化之后把bean换成代理
+ */
+@Component("wrappingPostProcessor")
+@ApplyTo(types = WrappedA.class)
+public class WrappingPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return ProxyFactory.getProxy(bean);
+    }
+}
@@ -0,0 +1,178 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mkl.mybatis.mybatisDemo.BinaryChangeLogWriter.BYTE;
+import static com.mkl.mybatis.mybatisDemo.BinaryChangeLogWriter.CHAR;
+import static com.mkl.mybatis.mybatisDemo.BinaryChangeLogWriter.DOUBLE;
+import static com.mkl.mybatis.mybatisDemo.BinaryChangeLogWriter.END_RECORD;
+import static com.mkl.mybatis.mybatisDemo.BinaryChangeLogWriter.FALSE;
+import static com.mkl.mybatis.mybatisDemo.BinaryChangeLogWriter.FLOAT;
+import static com.mkl.mybatis.mybatisDemo.BinaryChangeLogWriter.INT;
+import static com.mkl.mybatis.mybatisDemo.BinaryChangeLogWriter.LONG;
+import static com.mkl.mybatis.mybatisDemo.BinaryChangeLogWriter.NEW_FIELD;
+import static com.mkl.mybatis.mybatisDemo.BinaryChangeLogWriter.NULL;
+import static com.mkl.mybatis.mybatisDemo.BinaryChangeLogWriter.SHORT;
+import static com.mkl.mybatis.mybatisDemo.BinaryChangeLogWriter.STRING;
+import static com.mkl.mybatis.mybatisDemo.BinaryChangeLogWriter.TRUE;
+
+/**
+ * 读取{@link BinaryChangeLogWriter}写出的变更日志，逐条回调给DiffConsumer。
+ * 两个值是同一种基本类型时回调对应的重载，不装箱；字符串和其他对象都按String读回
+ *
+ * @author Mengkaili
+ * @since 2021/7/12
+ */
+public class BinaryChangeLogReader {
+
+    private final DataInput in;
+    private final List<String> fieldNames = new ArrayList<>();
+
+    public BinaryChangeLogReader(DataInput in) {
+        this.in = in;
+    }
+
+    /**
+     * 读取一条记录的所有变化
+     *
+     * @return 已经读到末尾时返回false
+     */
+    public boolean readRecord(DiffConsumer consumer) throws IOException {
+        long ref;
+        try {
+            ref = readVarLong();
+        } catch (EOFException e) {
+            return false;
+        }
+        while (ref != END_RECORD) {
+            String fieldName;
+            if (ref == NEW_FIELD) {
+                fieldName = readString();
+                fieldNames.add(fieldName);
+            } else {
+                fieldName = fieldNames.get((int) ref - 2);
+            }
+            readChange(fieldName, consumer);
+            ref = readVarLong();
+        }
+        return true;
+    }
+
+    private void readChange(String fieldName, DiffConsumer consumer) throws IOException {
+        int oldTag = in.readUnsignedByte();
+        Object oldText = oldTag == STRING ? readString() : null;
+        long oldBits = readBits(oldTag);
+        int newTag = in.readUnsignedByte();
+        Object newText = newTag == STRING ? readString() : null;
+        long newBits = readBits(newTag);
+
+        int kind = oldTag == TRUE ? FALSE : oldTag;
+        if (kind != (newTag == TRUE ? FALSE : newTag) || kind == NULL || kind == STRING) {
+            consumer.accept(fieldName, box(oldTag, oldBits, oldText), box(newTag, newBits, newText));
+            return;
+        }
+        switch (kind) {
+            case INT:
+                consumer.accept(fieldName, (int) oldBits, (int) newBits);
+                break;
+            case LONG:
+                consumer.accept(fieldName, oldBits, newBits);
+                break;
+            case DOUBLE:
+                consumer.accept(fieldName, Double.longBitsToDouble(oldBits), Double.longBitsToDouble(newBits));
+                break;
+            case FLOAT:
+                consumer.accept(fieldName, Float.intBitsToFloat((int) oldBits), Float.intBitsToFloat((int) newBits));
+                break;
+            case FALSE:
+                consumer.accept(fieldName, oldBits != 0, newBits != 0);
+                break;
+            case CHAR:
+                consumer.accept(fieldName, (char) oldBits, (char) newBits);
+                break;
+            case SHORT:
+                consumer.accept(fieldName, (short) oldBits, (short) newBits);
+                break;
+            case BYTE:
+                consumer.accept(fieldName, (byte) oldBits, (byte) newBits);
+                break;
+            default:
+                throw new IllegalStateException("未知的类型: " + kind);
+        }
+    }
+
+    // 基本类型的值按位读到long里
+    private long readBits(int tag) throws IOException {
+        switch (tag) {
+            case INT:
+            case LONG:
+            case SHORT:
+                long zigzag = readVarLong();
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            case DOUBLE:
+                return Double.doubleToRawLongBits(in.readDouble());
+            case FLOAT:
+                return Float.floatToRawIntBits(in.readFloat());
+            case TRUE:
+                return 1;
+            case CHAR:
+                return in.readChar();
+            case BYTE:
+                return in.readByte();
+            case NULL:
+            case FALSE:
+            case STRING:
+                return 0;
+            default:
+                throw new IllegalStateException("未知的类型: " + tag);
+        }
+    }
+
+    private static Object box(int tag, long bits, Object text) {
+        switch (tag) {
+            case INT:
+                return (int) bits;
+            case LONG:
+                return bits;
+            case DOUBLE:
+                return Double.longBitsToDouble(bits);
+            case FLOAT:
+                return Float.intBitsToFloat((int) bits);
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            case CHAR:
+                return (char) bits;
+            case SHORT:
+                return (short) bits;
+            case BYTE:
+                return (byte) bits;
+            default:
+                return text;
+        }
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[(int) readVarLong()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+}
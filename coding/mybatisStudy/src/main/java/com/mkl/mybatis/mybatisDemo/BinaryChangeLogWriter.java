@@ -0,0 +1,234 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 紧凑的二进制变更日志，用{@link BinaryChangeLogReader}读回。
+ * <p>
+ * 每个对象的变化是一条记录，以{@link #endRecord()}结束。每个变化先写属性引用：属性名第一次出现时写1和属性名，
+ * 之后只写编号+2；0表示记录结束。然后依次写旧值和新值，每个值是一个类型字节加上值本身，
+ * 整数用zigzag变长编码，浮点数按位写入，字符串写UTF-8，其他对象写toString的结果
+ *
+ * @author Mengkaili
+ * @since 2021/7/12
+ */
+public class BinaryChangeLogWriter implements DiffConsumer {
+
+    static final int END_RECORD = 0;
+    static final int NEW_FIELD = 1;
+
+    static final int NULL = 0;
+    static final int INT = 1;
+    static final int LONG = 2;
+    static final int DOUBLE = 3;
+    static final int FLOAT = 4;
+    static final int FALSE = 5;
+    static final int TRUE = 6;
+    static final int CHAR = 7;
+    static final int SHORT = 8;
+    static final int BYTE = 9;
+    static final int STRING = 10;
+
+    private final DataOutput out;
+    private final Map<String, Integer> fieldIds = new HashMap<>();
+
+    public BinaryChangeLogWriter(DataOutput out) {
+        this.out = out;
+    }
+
+    /**
+     * 结束当前对象的记录
+     */
+    public void endRecord() {
+        try {
+            writeVarLong(END_RECORD);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, Object oldValue, Object newValue) {
+        try {
+            field(fieldName);
+            value(oldValue);
+            value(newValue);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, int oldValue, int newValue) {
+        try {
+            field(fieldName);
+            out.writeByte(INT);
+            writeVarLong(zigzag(oldValue));
+            out.writeByte(INT);
+            writeVarLong(zigzag(newValue));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, long oldValue, long newValue) {
+        try {
+            field(fieldName);
+            out.writeByte(LONG);
+            writeVarLong(zigzag(oldValue));
+            out.writeByte(LONG);
+            writeVarLong(zigzag(newValue));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, double oldValue, double newValue) {
+        try {
+            field(fieldName);
+            out.writeByte(DOUBLE);
+            out.writeDouble(oldValue);
+            out.writeByte(DOUBLE);
+            out.writeDouble(newValue);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, float oldValue, float newValue) {
+        try {
+            field(fieldName);
+            out.writeByte(FLOAT);
+            out.writeFloat(oldValue);
+            out.writeByte(FLOAT);
+            out.writeFloat(newValue);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, boolean oldValue, boolean newValue) {
+        try {
+            field(fieldName);
+            out.writeByte(oldValue ? TRUE : FALSE);
+            out.writeByte(newValue ? TRUE : FALSE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, short oldValue, short newValue) {
+        try {
+            field(fieldName);
+            out.writeByte(SHORT);
+            writeVarLong(zigzag(oldValue));
+            out.writeByte(SHORT);
+            writeVarLong(zigzag(newValue));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, byte oldValue, byte newValue) {
+        try {
+            field(fieldName);
+            out.writeByte(BYTE);
+            out.writeByte(oldValue);
+            out.writeByte(BYTE);
+            out.writeByte(newValue);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, char oldValue, char newValue) {
+        try {
+            field(fieldName);
+            out.writeByte(CHAR);
+            out.writeChar(oldValue);
+            out.writeByte(CHAR);
+            out.writeChar(newValue);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void field(String fieldName) throws IOException {
+        Integer id = fieldIds.get(fieldName);
+        if (id == null) {
+            fieldIds.put(fieldName, fieldIds.size());
+            writeVarLong(NEW_FIELD);
+            writeString(fieldName);
+        } else {
+            writeVarLong(id + 2);
+        }
+    }
+
+    private void value(Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            writeVarLong(zigzag((Integer) value));
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            writeVarLong(zigzag((long) (Long) value));
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeChar((Character) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            writeVarLong(zigzag((Short) value));
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else {
+            out.writeByte(STRING);
+            writeString(value.toString());
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        out.write(bytes);
+    }
+
+    private static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    // 每个字节7位，最高位表示后面还有
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+}
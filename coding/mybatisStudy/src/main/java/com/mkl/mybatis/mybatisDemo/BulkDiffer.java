@@ -0,0 +1,406 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 按key批量比较两批记录，结果是新增、删除、变化的记录组成的流，而不是先在内存里拼好一个Map。
+ * <p>
+ * 两批记录先按key的hash分到多个分区，每个分区由一个线程独立比较：旧记录放进HashMap，再逐条匹配新记录。
+ * 设置了{@link #spillTo}时，分区超过内存上限就写到磁盘，比较时分区仍然放不下的话再按另一个hash拆分；
+ * 没有设置时所有记录都留在内存里。key必须唯一，旧记录或新记录里出现重复的key都会报错。
+ * <p>
+ * 返回的流要用完或者关闭，关闭时停止比较线程并删除溢出文件：
+ * <pre>
+ * try (Stream&lt;RecordChange&lt;Integer, User&gt;&gt; changes = differ.diff(oldUsers, newUsers)) {
+ *     changes.forEach(System.out::println);
+ * }
+ * </pre>
+ *
+ * @author Mengkaili
+ * @since 2021/7/8
+ */
+public class BulkDiffer<K, T> {
+
+    // 一个分区最多拆分几层，key的hash大量相同时不再继续拆分
+    private static final int MAX_DEPTH = 4;
+    private static final int SPLIT = 16;
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final Object PARTITION_DONE = new Object();
+    // 新记录处理过的key在Map里换成这个标记，同一个key再次出现时就是重复
+    private static final Object MATCHED = new Object();
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final Function<? super T, ? extends K> keyExtractor;
+    private final ObjectDiffer<T> differ;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int maxInMemory = 1 << 20;
+    private RecordCodec<T> codec;
+    private File spillDirectory;
+
+    public BulkDiffer(Class<T> type, Function<? super T, ? extends K> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+        this.differ = ObjectDiffer.forClass(type);
+    }
+
+    /**
+     * 同时比较的分区数，默认是CPU核数
+     */
+    public BulkDiffer<K, T> parallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    /**
+     * 内存里最多保留的记录数，分区阶段和比较阶段各自不超过这个数
+     */
+    public BulkDiffer<K, T> maxInMemory(int maxInMemory) {
+        this.maxInMemory = Math.max(1, maxInMemory);
+        return this;
+    }
+
+    /**
+     * 超过内存上限的分区用codec写到directory下的临时目录，directory为null时使用java.io.tmpdir
+     */
+    public BulkDiffer<K, T> spillTo(RecordCodec<T> codec, File directory) {
+        this.codec = codec;
+        this.spillDirectory = directory != null ? directory : new File(System.getProperty("java.io.tmpdir"));
+        return this;
+    }
+
+    public Stream<RecordChange<K, T>> diff(Iterable<? extends T> oldRecords, Iterable<? extends T> newRecords) {
+        return diff(oldRecords.iterator(), newRecords.iterator());
+    }
+
+    public Stream<RecordChange<K, T>> diff(Stream<? extends T> oldRecords, Stream<? extends T> newRecords) {
+        return diff(oldRecords.iterator(), newRecords.iterator());
+    }
+
+    /**
+     * 在调用线程里读完两批记录并分区，之后的比较在后台线程进行，边比较边把结果交给返回的流
+     */
+    public Stream<RecordChange<K, T>> diff(Iterator<? extends T> oldRecords, Iterator<? extends T> newRecords) {
+        DiffRun run = new DiffRun();
+        try {
+            run.start(oldRecords, newRecords);
+        } catch (IOException | RuntimeException e) {
+            run.close();
+            throw e instanceof RuntimeException ? (RuntimeException) e : new IllegalStateException("分区失败", e);
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(run, Spliterator.NONNULL), false).onClose(run::close);
+    }
+
+    private K keyOf(T record) {
+        K key = keyExtractor.apply(record);
+        if (key == null) {
+            throw new IllegalStateException("记录的key为null: " + record);
+        }
+        return key;
+    }
+
+    // 不同层用不同的salt，保证上一层落在同一个分区的key在下一层能分开
+    private static int indexOf(Object key, int salt, int buckets) {
+        int h = key.hashCode() ^ (salt * 0x9E3779B9);
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return (h & Integer.MAX_VALUE) % buckets;
+    }
+
+    private interface RecordAction<T> {
+        void accept(T record) throws Exception;
+    }
+
+    /**
+     * 一次比较：分区、后台比较线程、结果队列和溢出文件
+     */
+    private final class DiffRun implements Iterator<RecordChange<K, T>>, Closeable {
+
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        // 比较阶段每个线程的HashMap最多放这么多旧记录，超过了就继续拆分
+        private final int joinLimit = Math.max(1, maxInMemory / parallelism);
+        private final int partitions = parallelism * 4;
+        private ExecutorService executor;
+        private File directory;
+        private int fileCount;
+        private int remaining;
+        private Object next;
+        private volatile boolean closed;
+
+        void start(Iterator<? extends T> oldRecords, Iterator<? extends T> newRecords) throws IOException {
+            // 两批记录共用内存上限
+            int bucketLimit = Math.max(1, maxInMemory / (2 * partitions));
+            List<Bucket> oldBuckets = split(oldRecords, 0, partitions, bucketLimit);
+            List<Bucket> newBuckets = split(newRecords, 0, partitions, bucketLimit);
+
+            remaining = partitions;
+            executor = Executors.newFixedThreadPool(Math.min(parallelism, partitions), runnable -> {
+                Thread thread = new Thread(runnable, "bulk-diff-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < partitions; i++) {
+                Bucket oldBucket = oldBuckets.get(i);
+                Bucket newBucket = newBuckets.get(i);
+                executor.execute(() -> {
+                    try {
+                        join(oldBucket, newBucket, 0);
+                        queue.put(PARTITION_DONE);
+                    } catch (InterruptedException e) {
+                        // 流已经关闭
+                    } catch (Throwable e) {
+                        if (!closed) {
+                            try {
+                                queue.put(e);
+                            } catch (InterruptedException ignored) {
+                                // 流已经关闭
+                            }
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+        }
+
+        private List<Bucket> split(Iterator<? extends T> records, int salt, int count, int bucketLimit) throws IOException {
+            List<Bucket> buckets = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                buckets.add(new Bucket(bucketLimit));
+            }
+            while (records.hasNext()) {
+                T record = records.next();
+                buckets.get(indexOf(keyOf(record), salt, count)).add(record);
+            }
+            for (Bucket bucket : buckets) {
+                bucket.finish();
+            }
+            return buckets;
+        }
+
+        private List<Bucket> split(Bucket source, int salt) throws Exception {
+            List<Bucket> buckets = new ArrayList<>(SPLIT);
+            int bucketLimit = Math.max(1, joinLimit / (2 * SPLIT));
+            for (int i = 0; i < SPLIT; i++) {
+                buckets.add(new Bucket(bucketLimit));
+            }
+            source.forEach(record -> buckets.get(indexOf(keyOf(record), salt, SPLIT)).add(record));
+            source.delete();
+            for (Bucket bucket : buckets) {
+                bucket.finish();
+            }
+            return buckets;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void join(Bucket oldBucket, Bucket newBucket, int depth) throws Exception {
+            if (codec != null && oldBucket.size() > joinLimit && depth < MAX_DEPTH) {
+                List<Bucket> oldParts = split(oldBucket, depth + 1);
+                List<Bucket> newParts = split(newBucket, depth + 1);
+                for (int i = 0; i < SPLIT; i++) {
+                    join(oldParts.get(i), newParts.get(i), depth + 1);
+                }
+                return;
+            }
+
+            Map<K, Object> recordsByKey = new HashMap<>(Math.max(16, (int) (oldBucket.size() / 0.75f) + 1));
+            oldBucket.forEach(record -> {
+                K key = keyOf(record);
+                if (recordsByKey.put(key, record) != null) {
+                    throw new IllegalStateException("重复的key: " + key);
+                }
+            });
+            oldBucket.delete();
+
+            newBucket.forEach(record -> {
+                K key = keyOf(record);
+                Object oldRecord = recordsByKey.put(key, MATCHED);
+                if (oldRecord == MATCHED) {
+                    throw new IllegalStateException("重复的key: " + key);
+                }
+                if (oldRecord == null) {
+                    queue.put(new RecordChange<>(RecordChange.Type.ADDED, key, null, record));
+                } else if (differ.differs((T) oldRecord, record)) {
+                    queue.put(new RecordChange<>(RecordChange.Type.CHANGED, key, (T) oldRecord, record));
+                }
+            });
+            newBucket.delete();
+
+            for (Map.Entry<K, Object> entry : recordsByKey.entrySet()) {
+                if (entry.getValue() != MATCHED) {
+                    queue.put(new RecordChange<>(RecordChange.Type.REMOVED, entry.getKey(), (T) entry.getValue(), null));
+                }
+            }
+        }
+
+        private synchronized File newSpillFile() throws IOException {
+            if (closed) {
+                throw new IOException("流已经关闭");
+            }
+            if (directory == null) {
+                directory = Files.createTempDirectory(spillDirectory.toPath(), "bulk-diff").toFile();
+            }
+            return new File(directory, (fileCount++) + ".spill");
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && remaining > 0) {
+                Object item;
+                try {
+                    item = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    close();
+                    throw new IllegalStateException("等待比较结果时被中断", e);
+                }
+                if (item == PARTITION_DONE) {
+                    remaining--;
+                } else if (item instanceof Throwable) {
+                    close();
+                    throw new IllegalStateException("批量比较失败", (Throwable) item);
+                } else {
+                    next = item;
+                }
+            }
+            if (next == null) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public RecordChange<K, T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            RecordChange<K, T> change = (RecordChange<K, T>) next;
+            next = null;
+            return change;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            if (executor != null) {
+                executor.shutdownNow();
+                try {
+                    executor.awaitTermination(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            queue.clear();
+            if (directory != null) {
+                File[] files = directory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+                directory.delete();
+            }
+        }
+
+        /**
+         * 一个分区的一批记录，超过limit后把内存里的记录追加到溢出文件
+         */
+        private final class Bucket {
+
+            private final int limit;
+            private List<T> buffer = new ArrayList<>();
+            private File file;
+            private DataOutputStream out;
+            private int spilled;
+
+            Bucket(int limit) {
+                this.limit = limit;
+            }
+
+            void add(T record) throws IOException {
+                buffer.add(record);
+                if (codec != null && buffer.size() >= limit) {
+                    spill();
+                }
+            }
+
+            int size() {
+                return spilled + buffer.size();
+            }
+
+            private void spill() throws IOException {
+                if (out == null) {
+                    file = newSpillFile();
+                    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+                }
+                for (T record : buffer) {
+                    codec.write(record, out);
+                }
+                spilled += buffer.size();
+                buffer = new ArrayList<>();
+            }
+
+            // 写完之后关闭溢出文件，之后只读
+            void finish() throws IOException {
+                if (out != null) {
+                    out.close();
+                    out = null;
+                }
+            }
+
+            void forEach(RecordAction<T> action) throws Exception {
+                if (file != null) {
+                    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                        for (int i = 0; i < spilled; i++) {
+                            action.accept(codec.read(in));
+                        }
+                    }
+                }
+                for (T record : buffer) {
+                    action.accept(record);
+                }
+            }
+
+            void delete() {
+                buffer = null;
+                if (file != null) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+}
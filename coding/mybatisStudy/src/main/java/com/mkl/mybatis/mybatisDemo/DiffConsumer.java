@@ -0,0 +1,49 @@
+package com.mkl.mybatis.mybatisDemo;
+
+/**
+ * 接收两个对象之间发生变化的属性，只有变化的属性才会回调。
+ * <p>
+ * 基本类型的属性回调对应的重载方法，值不装箱；默认实现装箱后转给{@link #accept(String, Object, Object)}，
+ * 需要避免装箱的实现（比如{@link JsonPatchWriter}、{@link BinaryChangeLogWriter}）覆盖这些重载即可
+ *
+ * @author Mengkaili
+ * @since 2021/7/5
+ */
+@FunctionalInterface
+public interface DiffConsumer {
+
+    void accept(String fieldName, Object oldValue, Object newValue);
+
+    default void accept(String fieldName, int oldValue, int newValue) {
+        accept(fieldName, (Object) oldValue, (Object) newValue);
+    }
+
+    default void accept(String fieldName, long oldValue, long newValue) {
+        accept(fieldName, (Object) oldValue, (Object) newValue);
+    }
+
+    default void accept(String fieldName, double oldValue, double newValue) {
+        accept(fieldName, (Object) oldValue, (Object) newValue);
+    }
+
+    default void accept(String fieldName, float oldValue, float newValue) {
+        accept(fieldName, (Object) oldValue, (Object) newValue);
+    }
+
+    default void accept(String fieldName, boolean oldValue, boolean newValue) {
+        accept(fieldName, (Object) oldValue, (Object) newValue);
+    }
+
+    default void accept(String fieldName, short oldValue, short newValue) {
+        accept(fieldName, (Object) oldValue, (Object) newValue);
+    }
+
+    default void accept(String fieldName, byte oldValue, byte newValue) {
+        accept(fieldName, (Object) oldValue, (Object) newValue);
+    }
+
+    default void accept(String fieldName, char oldValue, char newValue) {
+        accept(fieldName, (Object) oldValue, (Object) newValue);
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import org.apache.ibatis.annotations.AutomapConstructor;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 针对一个实体类和一组结果列生成的映射器：列和属性的对应关系、TypeHandler、构造方法和setter都只解析一次，
+ * 之后每一行按列序号读取，通过MethodHandle调用构造方法和setter。
+ * <p>
+ * 构造方法的选择和MyBatis自动映射一致：有无参构造方法时使用它；否则使用唯一的构造方法
+ * （或者标注了{@link AutomapConstructor}的那个），按列的顺序传入前几列。其余的列按属性名（忽略大小写，
+ * 开启mapUnderscoreToCamelCase时去掉下划线）调用setter，没有对应属性的列忽略，值为null时不调用setter
+ *
+ * @author Mengkaili
+ * @since 2021/7/30
+ */
+public final class EntityRowMapper<T> {
+
+    private final MethodHandle constructor;
+    private final TypeHandler<?>[] argumentHandlers;
+    private final int[] propertyColumns;
+    private final TypeHandler<?>[] propertyHandlers;
+    private final MethodHandle[] setters;
+    private final boolean[] setNulls;
+
+    private EntityRowMapper(MethodHandle constructor, TypeHandler<?>[] argumentHandlers,
+                            int[] propertyColumns, TypeHandler<?>[] propertyHandlers, MethodHandle[] setters, boolean[] setNulls) {
+        this.constructor = constructor;
+        this.argumentHandlers = argumentHandlers;
+        this.propertyColumns = propertyColumns;
+        this.propertyHandlers = propertyHandlers;
+        this.setters = setters;
+        this.setNulls = setNulls;
+    }
+
+    /**
+     * 按结果集的列生成映射器，生成的映射器可以用于列相同的所有结果集，由调用方缓存
+     *
+     * @return 无法按上面的规则映射时返回null，调用方应该使用MyBatis默认的映射
+     */
+    public static <T> EntityRowMapper<T> create(Class<T> type, Columns columns, Configuration configuration) {
+        String[] labels = columns.labels;
+        Constructor<?> constructor = findConstructor(type);
+        if (constructor == null || constructor.getParameterCount() > labels.length) {
+            return null;
+        }
+        TypeHandlerRegistry registry = configuration.getTypeHandlerRegistry();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            TypeHandler<?>[] argumentHandlers = new TypeHandler<?>[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                argumentHandlers[i] = typeHandler(registry, parameterTypes[i], columns.jdbcTypes[i]);
+                if (argumentHandlers[i] == null) {
+                    return null;
+                }
+            }
+            constructor.setAccessible(true);
+            MethodHandle constructorHandle = lookup.unreflectConstructor(constructor)
+                    .asSpreader(Object[].class, parameterTypes.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+
+            // 构造方法用掉的列之后的列按属性名调用setter
+            MetaClass metaClass = MetaClass.forClass(type, configuration.getReflectorFactory());
+            List<Integer> propertyColumns = new ArrayList<>();
+            List<TypeHandler<?>> propertyHandlers = new ArrayList<>();
+            List<MethodHandle> setters = new ArrayList<>();
+            List<Boolean> setNulls = new ArrayList<>();
+            for (int i = parameterTypes.length; i < labels.length; i++) {
+                String property = metaClass.findProperty(labels[i], configuration.isMapUnderscoreToCamelCase());
+                if (property == null || !metaClass.hasSetter(property)) {
+                    continue;
+                }
+                Class<?> propertyType = metaClass.getSetterType(property);
+                TypeHandler<?> handler = typeHandler(registry, propertyType, columns.jdbcTypes[i]);
+                MethodHandle setter = findSetter(lookup, type, property, propertyType);
+                if (handler == null || setter == null) {
+                    return null;
+                }
+                propertyColumns.add(i + 1);
+                propertyHandlers.add(handler);
+                setters.add(setter.asType(MethodType.methodType(void.class, Object.class, Object.class)));
+                // 基本类型的属性遇到null时不调用setter，和MyBatis一致
+                setNulls.add(configuration.isCallSettersOnNulls() && !propertyType.isPrimitive());
+            }
+            int[] columnIndexes = new int[propertyColumns.size()];
+            boolean[] setNullFlags = new boolean[setNulls.size()];
+            for (int i = 0; i < columnIndexes.length; i++) {
+                columnIndexes[i] = propertyColumns.get(i);
+                setNullFlags[i] = setNulls.get(i);
+            }
+            return new EntityRowMapper<>(constructorHandle, argumentHandlers, columnIndexes,
+                    propertyHandlers.toArray(new TypeHandler<?>[0]), setters.toArray(new MethodHandle[0]), setNullFlags);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T map(ResultSet resultSet) throws SQLException {
+        try {
+            Object[] arguments = new Object[argumentHandlers.length];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = argumentHandlers[i].getResult(resultSet, i + 1);
+            }
+            Object row = (Object) constructor.invokeExact(arguments);
+            for (int i = 0; i < setters.length; i++) {
+                Object value = propertyHandlers[i].getResult(resultSet, propertyColumns[i]);
+                if (value != null || setNulls[i]) {
+                    setters[i].invokeExact(row, value);
+                }
+            }
+            return (T) row;
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Constructor<?> findConstructor(Class<?> type) {
+        Constructor<?>[] constructors = type.getDeclaredConstructors();
+        for (Constructor<?> constructor : constructors) {
+            if (constructor.getParameterCount() == 0) {
+                return constructor;
+            }
+        }
+        if (constructors.length == 1) {
+            return constructors[0];
+        }
+        for (Constructor<?> constructor : constructors) {
+            if (constructor.isAnnotationPresent(AutomapConstructor.class)) {
+                return constructor;
+            }
+        }
+        return null;
+    }
+
+    private static TypeHandler<?> typeHandler(TypeHandlerRegistry registry, Class<?> javaType, int jdbcType) {
+        JdbcType type;
+        try {
+            type = JdbcType.forCode(jdbcType);
+        } catch (RuntimeException e) {
+            type = null;
+        }
+        TypeHandler<?> handler = type == null ? null : registry.getTypeHandler(javaType, type);
+        return handler != null ? handler : registry.getTypeHandler(javaType);
+    }
+
+    // 优先用setter方法，没有时直接写属性
+    private static MethodHandle findSetter(MethodHandles.Lookup lookup, Class<?> type, String property, Class<?> propertyType) throws IllegalAccessException {
+        String setterName = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                Method method = c.getDeclaredMethod(setterName, propertyType);
+                method.setAccessible(true);
+                return lookup.unreflect(method);
+            } catch (NoSuchMethodException e) {
+                // 继续找父类
+            }
+        }
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                Field field = c.getDeclaredField(property);
+                field.setAccessible(true);
+                return lookup.unreflectSetter(field);
+            } catch (NoSuchFieldException e) {
+                // 继续找父类
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 结果集的列名和列类型，作为映射器缓存的key
+     */
+    public static final class Columns {
+
+        final String[] labels;
+        final int[] jdbcTypes;
+        private final int hash;
+
+        private Columns(String[] labels, int[] jdbcTypes) {
+            this.labels = labels;
+            this.jdbcTypes = jdbcTypes;
+            this.hash = Arrays.hashCode(labels) * 31 + Arrays.hashCode(jdbcTypes);
+        }
+
+        public static Columns of(ResultSetMetaData metaData, Configuration configuration) throws SQLException {
+            int columnCount = metaData.getColumnCount();
+            String[] labels = new String[columnCount];
+            int[] jdbcTypes = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                labels[i] = configuration.isUseColumnLabel() ? metaData.getColumnLabel(i + 1) : metaData.getColumnName(i + 1);
+                jdbcTypes[i] = metaData.getColumnType(i + 1);
+            }
+            return new Columns(labels, jdbcTypes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Columns)) {
+                return false;
+            }
+            Columns other = (Columns) o;
+            return Arrays.equals(labels, other.labels) && Arrays.equals(jdbcTypes, other.jdbcTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,234 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一个属性的变化：属性名、属性类型、旧值和新值。
+ * 基本类型的值按位保存在long里，不装箱；需要时用{@link #replay}按原来的类型回调，或者用getOldLong等方法读取
+ *
+ * @author Mengkaili
+ * @since 2021/7/12
+ */
+public final class FieldChange {
+
+    private final String fieldName;
+    private final Class<?> type;
+    private final long oldBits;
+    private final long newBits;
+    private final Object oldRef;
+    private final Object newRef;
+
+    private FieldChange(String fieldName, Class<?> type, long oldBits, long newBits, Object oldRef, Object newRef) {
+        this.fieldName = fieldName;
+        this.type = type;
+        this.oldBits = oldBits;
+        this.newBits = newBits;
+        this.oldRef = oldRef;
+        this.newRef = newRef;
+    }
+
+    public static FieldChange ofObject(String fieldName, Object oldValue, Object newValue) {
+        return new FieldChange(fieldName, Object.class, 0, 0, oldValue, newValue);
+    }
+
+    public static FieldChange ofInt(String fieldName, int oldValue, int newValue) {
+        return new FieldChange(fieldName, int.class, oldValue, newValue, null, null);
+    }
+
+    public static FieldChange ofLong(String fieldName, long oldValue, long newValue) {
+        return new FieldChange(fieldName, long.class, oldValue, newValue, null, null);
+    }
+
+    public static FieldChange ofDouble(String fieldName, double oldValue, double newValue) {
+        return new FieldChange(fieldName, double.class, Double.doubleToRawLongBits(oldValue), Double.doubleToRawLongBits(newValue), null, null);
+    }
+
+    public static FieldChange ofFloat(String fieldName, float oldValue, float newValue) {
+        return new FieldChange(fieldName, float.class, Float.floatToRawIntBits(oldValue), Float.floatToRawIntBits(newValue), null, null);
+    }
+
+    public static FieldChange ofBoolean(String fieldName, boolean oldValue, boolean newValue) {
+        return new FieldChange(fieldName, boolean.class, oldValue ? 1 : 0, newValue ? 1 : 0, null, null);
+    }
+
+    public static FieldChange ofShort(String fieldName, short oldValue, short newValue) {
+        return new FieldChange(fieldName, short.class, oldValue, newValue, null, null);
+    }
+
+    public static FieldChange ofByte(String fieldName, byte oldValue, byte newValue) {
+        return new FieldChange(fieldName, byte.class, oldValue, newValue, null, null);
+    }
+
+    public static FieldChange ofChar(String fieldName, char oldValue, char newValue) {
+        return new FieldChange(fieldName, char.class, oldValue, newValue, null, null);
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * 基本类型的属性返回对应的基本类型，其余返回Object.class
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    public boolean isPrimitive() {
+        return type.isPrimitive();
+    }
+
+    /**
+     * 整数类型（int、long、short、byte、char）的旧值
+     */
+    public long getOldLong() {
+        return oldBits;
+    }
+
+    public long getNewLong() {
+        return newBits;
+    }
+
+    /**
+     * 浮点类型（double、float）的旧值
+     */
+    public double getOldDouble() {
+        return toDouble(oldBits);
+    }
+
+    public double getNewDouble() {
+        return toDouble(newBits);
+    }
+
+    public boolean getOldBoolean() {
+        return oldBits != 0;
+    }
+
+    public boolean getNewBoolean() {
+        return newBits != 0;
+    }
+
+    /**
+     * 旧值，基本类型会装箱
+     */
+    public Object getOldValue() {
+        return box(oldBits, oldRef);
+    }
+
+    public Object getNewValue() {
+        return box(newBits, newRef);
+    }
+
+    /**
+     * 按属性原来的类型回调consumer，基本类型不装箱
+     */
+    public void replay(DiffConsumer consumer) {
+        if (type == int.class) {
+            consumer.accept(fieldName, (int) oldBits, (int) newBits);
+        } else if (type == long.class) {
+            consumer.accept(fieldName, oldBits, newBits);
+        } else if (type == double.class) {
+            consumer.accept(fieldName, Double.longBitsToDouble(oldBits), Double.longBitsToDouble(newBits));
+        } else if (type == float.class) {
+            consumer.accept(fieldName, Float.intBitsToFloat((int) oldBits), Float.intBitsToFloat((int) newBits));
+        } else if (type == boolean.class) {
+            consumer.accept(fieldName, oldBits != 0, newBits != 0);
+        } else if (type == short.class) {
+            consumer.accept(fieldName, (short) oldBits, (short) newBits);
+        } else if (type == byte.class) {
+            consumer.accept(fieldName, (byte) oldBits, (byte) newBits);
+        } else if (type == char.class) {
+            consumer.accept(fieldName, (char) oldBits, (char) newBits);
+        } else {
+            consumer.accept(fieldName, oldRef, newRef);
+        }
+    }
+
+    private double toDouble(long bits) {
+        return type == float.class ? Float.intBitsToFloat((int) bits) : Double.longBitsToDouble(bits);
+    }
+
+    private Object box(long bits, Object ref) {
+        if (type == int.class) {
+            return (int) bits;
+        } else if (type == long.class) {
+            return bits;
+        } else if (type == double.class) {
+            return Double.longBitsToDouble(bits);
+        } else if (type == float.class) {
+            return Float.intBitsToFloat((int) bits);
+        } else if (type == boolean.class) {
+            return bits != 0;
+        } else if (type == short.class) {
+            return (short) bits;
+        } else if (type == byte.class) {
+            return (byte) bits;
+        } else if (type == char.class) {
+            return (char) bits;
+        }
+        return ref;
+    }
+
+    @Override
+    public String toString() {
+        return fieldName + ": " + getOldValue() + " -> " + getNewValue();
+    }
+
+    /**
+     * 把回调收集成FieldChange
+     */
+    static final class Collector implements DiffConsumer {
+
+        private final List<FieldChange> changes = new ArrayList<>();
+
+        List<FieldChange> getChanges() {
+            return changes;
+        }
+
+        @Override
+        public void accept(String fieldName, Object oldValue, Object newValue) {
+            changes.add(ofObject(fieldName, oldValue, newValue));
+        }
+
+        @Override
+        public void accept(String fieldName, int oldValue, int newValue) {
+            changes.add(ofInt(fieldName, oldValue, newValue));
+        }
+
+        @Override
+        public void accept(String fieldName, long oldValue, long newValue) {
+            changes.add(ofLong(fieldName, oldValue, newValue));
+        }
+
+        @Override
+        public void accept(String fieldName, double oldValue, double newValue) {
+            changes.add(ofDouble(fieldName, oldValue, newValue));
+        }
+
+        @Override
+        public void accept(String fieldName, float oldValue, float newValue) {
+            changes.add(ofFloat(fieldName, oldValue, newValue));
+        }
+
+        @Override
+        public void accept(String fieldName, boolean oldValue, boolean newValue) {
+            changes.add(ofBoolean(fieldName, oldValue, newValue));
+        }
+
+        @Override
+        public void accept(String fieldName, short oldValue, short newValue) {
+            changes.add(ofShort(fieldName, oldValue, newValue));
+        }
+
+        @Override
+        public void accept(String fieldName, byte oldValue, byte newValue) {
+            changes.add(ofByte(fieldName, oldValue, newValue));
+        }
+
+        @Override
+        public void accept(String fieldName, char oldValue, char newValue) {
+            changes.add(ofChar(fieldName, oldValue, newValue));
+        }
+    }
+}
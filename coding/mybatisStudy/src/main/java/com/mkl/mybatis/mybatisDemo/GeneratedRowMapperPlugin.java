@@ -0,0 +1,180 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按需开启的结果映射：对types里列出的实体类，不走MyBatis默认的逐行自动映射，
+ * 而是按结果类型和结果集的列生成一次{@link EntityRowMapper}，之后的查询直接复用。
+ * <p>
+ * 只处理简单的情况：resultType或者没有显式映射的resultMap、没有嵌套和鉴别器、不分页、只有一个结果集，
+ * 其余的查询和生成失败的情况都交给MyBatis默认的映射。
+ * <pre>
+ * &lt;plugin interceptor="com.mkl.mybatis.mybatisDemo.GeneratedRowMapperPlugin"&gt;
+ *     &lt;property name="types" value="User,Book"/&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ *
+ * @author Mengkaili
+ * @since 2021/7/30
+ */
+@Intercepts(@Signature(type = ResultSetHandler.class, method = "handleResultSets", args = {Statement.class}))
+public class GeneratedRowMapperPlugin implements Interceptor {
+
+    // 生成失败的列组合也缓存起来，避免每次查询都重新尝试
+    private static final Object UNSUPPORTED = new Object();
+
+    private final Map<Class<?>, Map<EntityRowMapper.Columns, Object>> mappers = new ConcurrentHashMap<>();
+    private final AtomicLong mappedRows = new AtomicLong();
+    private String typeNames = "";
+    private volatile Set<Class<?>> types;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MetaObject handler = SystemMetaObject.forObject(invocation.getTarget());
+        MappedStatement mappedStatement = (MappedStatement) handler.getValue("mappedStatement");
+        RowBounds rowBounds = (RowBounds) handler.getValue("rowBounds");
+        Class<?> type = mappableType(mappedStatement, rowBounds);
+        if (type == null) {
+            return invocation.proceed();
+        }
+        Statement statement = (Statement) invocation.getArgs()[0];
+        ResultSet resultSet = firstResultSet(statement);
+        if (resultSet == null) {
+            return invocation.proceed();
+        }
+        Configuration configuration = mappedStatement.getConfiguration();
+        EntityRowMapper<?> mapper;
+        try {
+            mapper = mapper(type, EntityRowMapper.Columns.of(resultSet.getMetaData(), configuration), configuration);
+        } catch (SQLException e) {
+            mapper = null;
+        }
+        if (mapper == null) {
+            return invocation.proceed();
+        }
+        @SuppressWarnings("unchecked")
+        ResultHandler<Object> resultHandler = (ResultHandler<Object>) handler.getValue("resultHandler");
+        try {
+            List<Object> rows = new ArrayList<>();
+            DefaultResultContext<Object> context = new DefaultResultContext<>();
+            long count = 0;
+            while (!context.isStopped() && resultSet.next()) {
+                Object row = mapper.map(resultSet);
+                count++;
+                if (resultHandler == null) {
+                    rows.add(row);
+                } else {
+                    // 和默认映射一样：有ResultHandler时逐行交给它，返回空列表
+                    context.nextResultObject(row);
+                    resultHandler.handleResult(context);
+                }
+            }
+            mappedRows.addAndGet(count);
+            return rows;
+        } finally {
+            resultSet.close();
+        }
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return target instanceof ResultSetHandler ? Plugin.wrap(target, this) : target;
+    }
+
+    /**
+     * types：逗号分隔的类名或别名
+     */
+    @Override
+    public void setProperties(Properties properties) {
+        typeNames = properties.getProperty("types", "");
+        types = null;
+    }
+
+    /**
+     * 用生成的映射器映射的行数
+     */
+    public long getMappedRows() {
+        return mappedRows.get();
+    }
+
+    private Class<?> mappableType(MappedStatement mappedStatement, RowBounds rowBounds) {
+        Configuration configuration = mappedStatement.getConfiguration();
+        List<ResultMap> resultMaps = mappedStatement.getResultMaps();
+        if (resultMaps.size() != 1 || mappedStatement.getResultSets() != null
+                || rowBounds.getOffset() != RowBounds.NO_ROW_OFFSET || rowBounds.getLimit() != RowBounds.NO_ROW_LIMIT
+                || configuration.getAutoMappingBehavior() == AutoMappingBehavior.NONE) {
+            return null;
+        }
+        ResultMap resultMap = resultMaps.get(0);
+        if (!resultMap.getResultMappings().isEmpty() || resultMap.getDiscriminator() != null
+                || Boolean.FALSE.equals(resultMap.getAutoMapping())) {
+            return null;
+        }
+        return types(configuration).contains(resultMap.getType()) ? resultMap.getType() : null;
+    }
+
+    // 别名要等配置解析完才能用，第一次查询时再解析
+    private Set<Class<?>> types(Configuration configuration) {
+        Set<Class<?>> resolved = types;
+        if (resolved == null) {
+            resolved = new HashSet<>();
+            for (String name : typeNames.split(",")) {
+                if (!name.trim().isEmpty()) {
+                    resolved.add(configuration.getTypeAliasRegistry().resolveAlias(name.trim()));
+                }
+            }
+            types = resolved = Collections.unmodifiableSet(resolved);
+        }
+        return resolved;
+    }
+
+    private EntityRowMapper<?> mapper(Class<?> type, EntityRowMapper.Columns columns, Configuration configuration) {
+        Object mapper = mappers.computeIfAbsent(type, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(columns, key -> {
+                    EntityRowMapper<?> created = EntityRowMapper.create(type, key, configuration);
+                    return created == null ? UNSUPPORTED : created;
+                });
+        return mapper == UNSUPPORTED ? null : (EntityRowMapper<?>) mapper;
+    }
+
+    // 和DefaultResultSetHandler一样跳过前面的更新计数
+    private static ResultSet firstResultSet(Statement statement) throws SQLException {
+        ResultSet resultSet = statement.getResultSet();
+        while (resultSet == null) {
+            if (statement.getMoreResults()) {
+                resultSet = statement.getResultSet();
+            } else if (statement.getUpdateCount() == -1) {
+                break;
+            }
+        }
+        return resultSet;
+    }
+
+}
@@ -0,0 +1,289 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 把属性变化写成RFC 6902 JSON Patch，每个对象一个数组，写完一个对象后调用{@link #finish()}：
+ * <pre>
+ * [{"op":"replace","path":"/price","value":18.7}]
+ * </pre>
+ * 旧值为null时写add，新值为null时写remove，其余写replace；{@link #withTests()}会在每个操作前加一个test，
+ * 应用patch时先校验旧值。out是StringBuilder时数字直接追加，不生成中间字符串
+ *
+ * @author Mengkaili
+ * @since 2021/7/12
+ */
+public class JsonPatchWriter implements DiffConsumer {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Appendable out;
+    private final StringBuilder builder;
+    private boolean tests;
+    private boolean started;
+
+    public JsonPatchWriter(Appendable out) {
+        this.out = out;
+        this.builder = out instanceof StringBuilder ? (StringBuilder) out : null;
+    }
+
+    /**
+     * 在每个操作前写一个test操作，值为旧值
+     */
+    public JsonPatchWriter withTests() {
+        this.tests = true;
+        return this;
+    }
+
+    /**
+     * 结束当前对象的patch，没有变化时写一个空数组
+     */
+    public void finish() {
+        try {
+            out.append(started ? "]" : "[]");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        started = false;
+    }
+
+    @Override
+    public void accept(String fieldName, Object oldValue, Object newValue) {
+        try {
+            if (oldValue != null && tests) {
+                operation("test", fieldName);
+                value(oldValue);
+                out.append('}');
+            }
+            if (newValue == null) {
+                operation("remove", fieldName);
+            } else {
+                operation(oldValue == null ? "add" : "replace", fieldName);
+                value(newValue);
+            }
+            out.append('}');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, int oldValue, int newValue) {
+        try {
+            if (tests) {
+                operation("test", fieldName);
+                number(oldValue);
+                out.append('}');
+            }
+            operation("replace", fieldName);
+            number(newValue);
+            out.append('}');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, long oldValue, long newValue) {
+        try {
+            if (tests) {
+                operation("test", fieldName);
+                number(oldValue);
+                out.append('}');
+            }
+            operation("replace", fieldName);
+            number(newValue);
+            out.append('}');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, double oldValue, double newValue) {
+        try {
+            if (tests) {
+                operation("test", fieldName);
+                number(oldValue);
+                out.append('}');
+            }
+            operation("replace", fieldName);
+            number(newValue);
+            out.append('}');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, float oldValue, float newValue) {
+        try {
+            if (tests) {
+                operation("test", fieldName);
+                number(oldValue);
+                out.append('}');
+            }
+            operation("replace", fieldName);
+            number(newValue);
+            out.append('}');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, boolean oldValue, boolean newValue) {
+        try {
+            if (tests) {
+                operation("test", fieldName);
+                out.append(oldValue ? "true" : "false").append('}');
+            }
+            operation("replace", fieldName);
+            out.append(newValue ? "true" : "false").append('}');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(String fieldName, short oldValue, short newValue) {
+        accept(fieldName, (int) oldValue, (int) newValue);
+    }
+
+    @Override
+    public void accept(String fieldName, byte oldValue, byte newValue) {
+        accept(fieldName, (int) oldValue, (int) newValue);
+    }
+
+    @Override
+    public void accept(String fieldName, char oldValue, char newValue) {
+        try {
+            if (tests) {
+                operation("test", fieldName);
+                string(oldValue);
+                out.append('}');
+            }
+            operation("replace", fieldName);
+            string(newValue);
+            out.append('}');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // {"op":"replace","path":"/name" 之后由调用方写value和右括号
+    private void operation(String op, String fieldName) throws IOException {
+        out.append(started ? ",{\"op\":\"" : "[{\"op\":\"");
+        started = true;
+        out.append(op).append("\",\"path\":\"/");
+        // JSON Pointer里~和/要转义
+        for (int i = 0; i < fieldName.length(); i++) {
+            char c = fieldName.charAt(i);
+            if (c == '~') {
+                out.append("~0");
+            } else if (c == '/') {
+                out.append("~1");
+            } else {
+                escape(c);
+            }
+        }
+        out.append('"');
+        if (!"remove".equals(op)) {
+            out.append(",\"value\":");
+        }
+    }
+
+    private void value(Object value) throws IOException {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            number(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            number((long) (Long) value);
+        } else if (value instanceof Double) {
+            number((double) (Double) value);
+        } else if (value instanceof Float) {
+            number((float) (Float) value);
+        } else if (value instanceof Boolean) {
+            out.append(value.toString());
+        } else if (value instanceof Character) {
+            string((Character) value);
+        } else {
+            out.append('"');
+            CharSequence text = value instanceof CharSequence ? (CharSequence) value : value.toString();
+            for (int i = 0; i < text.length(); i++) {
+                escape(text.charAt(i));
+            }
+            out.append('"');
+        }
+    }
+
+    private void number(int value) throws IOException {
+        if (builder != null) {
+            builder.append(value);
+        } else {
+            out.append(Integer.toString(value));
+        }
+    }
+
+    private void number(long value) throws IOException {
+        if (builder != null) {
+            builder.append(value);
+        } else {
+            out.append(Long.toString(value));
+        }
+    }
+
+    // JSON没有NaN和Infinity，写成字符串
+    private void number(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append('"').append(Double.toString(value)).append('"');
+        } else if (builder != null) {
+            builder.append(value);
+        } else {
+            out.append(Double.toString(value));
+        }
+    }
+
+    private void number(float value) throws IOException {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            out.append('"').append(Float.toString(value)).append('"');
+        } else if (builder != null) {
+            builder.append(value);
+        } else {
+            out.append(Float.toString(value));
+        }
+    }
+
+    private void string(char value) throws IOException {
+        out.append('"');
+        escape(value);
+        out.append('"');
+    }
+
+    private void escape(char c) throws IOException {
+        switch (c) {
+            case '"':
+                out.append("\\\"");
+                break;
+            case '\\':
+                out.append("\\\\");
+                break;
+            case '\n':
+                out.append("\\n");
+                break;
+            case '\r':
+                out.append("\\r");
+                break;
+            case '\t':
+                out.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                } else {
+                    out.append(c);
+                }
+        }
+    }
+
+}
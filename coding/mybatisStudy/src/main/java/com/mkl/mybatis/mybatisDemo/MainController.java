@@ -1,11 +1,25 @@
 package com.mkl.mybatis.mybatisDemo;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.mkl.mybatis.mybatisDemo.User;
 import com.mkl.mybatis.mybatisDemo.UserMapper;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -16,9 +30,20 @@ import java.util.List;
 @RequestMapping("/")
 public class MainController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    // 每写这么多行刷新一次，第一行写完立即刷新
+    private static final int FLUSH_ROWS = 256;
+
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
 //    @RequestMapping("/")
 //    public Object index() {
 //        User userParam = new User();
@@ -30,4 +55,66 @@ public class MainController {
 //        return userList;
 //    }
 
+    /**
+     * 分页查询用户，返回的nextPageToken作为下一次请求的pageToken，为null时已经是最后一页
+     */
+    @GetMapping("/users")
+    public UserPage listUsers(@RequestParam(required = false) String schoolName,
+                              @RequestParam(required = false) String pageToken,
+                              @RequestParam(defaultValue = "20") int pageSize) {
+        try {
+            return UserPage.query(userMapper, schoolName, pageToken, pageSize);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * UserMapper二级缓存的命中率、淘汰数量和估算的内存占用
+     */
+    @GetMapping("/users/cache-stats")
+    public TinyLfuCache.Stats userCacheStats() {
+        TinyLfuCache cache = TinyLfuCache.lookup(sqlSessionFactory.getConfiguration(), UserMapper.class.getName());
+        if (cache == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "UserMapper没有配置TinyLfuCache");
+        }
+        return cache.getStats();
+    }
+
+    /**
+     * 导出用户，每行一个JSON对象（NDJSON）。边从数据库读边写响应，内存占用和总行数无关
+     */
+    @GetMapping("/users/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(required = false) String schoolName) {
+        User userParam = new User(null, null);
+        userParam.setSchoolName(schoolName);
+        ObjectWriter writer = objectMapper.writerFor(User.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            int[] rows = {0};
+            IOException[] failure = {null};
+            userMapper.streamUserBySchoolName(userParam, context -> {
+                try {
+                    writer.writeValue(generator, context.getResultObject());
+                    if (++rows[0] == 1 || rows[0] % FLUSH_ROWS == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    // 客户端断开时停止读取
+                    failure[0] = e;
+                    context.stop();
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            if (rows[0] > 0) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
 }
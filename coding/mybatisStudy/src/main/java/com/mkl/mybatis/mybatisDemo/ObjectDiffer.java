@@ -0,0 +1,379 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 按类生成的对象比较器，和{@link ReflectionStudy#diffObj}的结果一致，但是：
+ * 每个类只解析一次属性，包括父类的属性；用MethodHandle读取属性；基本类型的属性直接比较，不装箱；
+ * 只有发生变化的属性才会生成结果
+ *
+ * @author Mengkaili
+ * @since 2021/7/5
+ */
+public final class ObjectDiffer<T> {
+
+    private static final ClassValue<ObjectDiffer<?>> DIFFERS = new ClassValue<ObjectDiffer<?>>() {
+        @Override
+        protected ObjectDiffer<?> computeValue(Class<?> type) {
+            return new ObjectDiffer<>(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final FieldDiffer[] fieldDiffers;
+
+    private ObjectDiffer(Class<T> type) {
+        this.type = type;
+        List<FieldDiffer> fieldDiffers = new ArrayList<>();
+        collectFields(type, Collections.<String>emptySet(), fieldDiffers);
+        this.fieldDiffers = fieldDiffers.toArray(new FieldDiffer[0]);
+    }
+
+    /**
+     * 获取某个类的比较器，第一次获取时生成，之后直接复用
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ObjectDiffer<T> forClass(Class<T> type) {
+        return (ObjectDiffer<T>) DIFFERS.get(type);
+    }
+
+    /**
+     * 比较两个对象，类不同时返回空的结果，和diffObj一样
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, String> diffObj(Object oldObj, Object newObj) {
+        if (!oldObj.getClass().equals(newObj.getClass())) {
+            return new HashMap<>();
+        }
+        return forClass((Class<Object>) oldObj.getClass()).diff(oldObj, newObj);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * 属性名 -> "from旧值to新值"，格式和diffObj一致
+     */
+    public Map<String, String> diff(T oldObj, T newObj) {
+        Map<String, String> diffMap = new HashMap<>();
+        diff(oldObj, newObj, (fieldName, oldValue, newValue) -> diffMap.put(fieldName, "from" + oldValue + "to" + newValue));
+        return diffMap;
+    }
+
+    /**
+     * 发生变化的属性，基本类型的值不装箱
+     */
+    public List<FieldChange> changes(T oldObj, T newObj) {
+        FieldChange.Collector collector = new FieldChange.Collector();
+        diff(oldObj, newObj, collector);
+        return collector.getChanges();
+    }
+
+    /**
+     * 依次比较每个属性，变化的属性交给consumer，基本类型的属性回调对应的重载方法
+     *
+     * @return 变化的属性个数
+     */
+    public int diff(T oldObj, T newObj, DiffConsumer consumer) {
+        int changes = 0;
+        try {
+            for (FieldDiffer fieldDiffer : fieldDiffers) {
+                if (fieldDiffer.diff(oldObj, newObj, consumer)) {
+                    changes++;
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        return changes;
+    }
+
+    /**
+     * 只判断是否有属性变化，遇到第一个变化的属性就返回，不会装箱
+     */
+    public boolean differs(T oldObj, T newObj) {
+        try {
+            for (FieldDiffer fieldDiffer : fieldDiffers) {
+                if (fieldDiffer.diff(oldObj, newObj, null)) {
+                    return true;
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        return false;
+    }
+
+    // 先父类后子类，父类和子类的同名属性都会比较，子类的在后面覆盖结果
+    /**
+     * 父类的属性在前；子类重新声明了同名属性时跳过父类的那个，否则结果里会有两个同名的属性
+     */
+    private static void collectFields(Class<?> type, Set<String> declaredBelow, List<FieldDiffer> fieldDiffers) {
+        if (type == null || type == Object.class) {
+            return;
+        }
+        Set<String> fieldNames = new HashSet<>(declaredBelow);
+        List<Field> fields = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                continue;
+            }
+            if (fieldNames.add(field.getName())) {
+                fields.add(field);
+            }
+        }
+        collectFields(type.getSuperclass(), fieldNames, fieldDiffers);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Field field : fields) {
+            field.setAccessible(true);
+            try {
+                fieldDiffers.add(createFieldDiffer(field, lookup.unreflectGetter(field)));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("无法读取属性" + field, e);
+            }
+        }
+    }
+
+    private static FieldDiffer createFieldDiffer(Field field, MethodHandle getter) {
+        Class<?> fieldType = field.getType();
+        String name = field.getName();
+        // 统一成(Object)基本类型，调用时用invokeExact
+        MethodHandle handle = getter.asType(MethodType.methodType(fieldType.isPrimitive() ? fieldType : Object.class, Object.class));
+        if (fieldType == int.class) {
+            return new IntFieldDiffer(name, handle);
+        } else if (fieldType == long.class) {
+            return new LongFieldDiffer(name, handle);
+        } else if (fieldType == double.class) {
+            return new DoubleFieldDiffer(name, handle);
+        } else if (fieldType == float.class) {
+            return new FloatFieldDiffer(name, handle);
+        } else if (fieldType == boolean.class) {
+            return new BooleanFieldDiffer(name, handle);
+        } else if (fieldType == short.class) {
+            return new ShortFieldDiffer(name, handle);
+        } else if (fieldType == byte.class) {
+            return new ByteFieldDiffer(name, handle);
+        } else if (fieldType == char.class) {
+            return new CharFieldDiffer(name, handle);
+        }
+        return new ObjectFieldDiffer(name, handle);
+    }
+
+    private abstract static class FieldDiffer {
+
+        final String name;
+        // 实例字段而不是static final常量，JIT不会把它当常量折叠，invokeExact要经过MethodHandle的调用适配，
+        // 比直接读字段慢；好处是不用生成字节码，每个属性一个handle即可
+        final MethodHandle getter;
+
+        FieldDiffer(String name, MethodHandle getter) {
+            this.name = name;
+            this.getter = getter;
+        }
+
+        /**
+         * @param consumer 为null时只判断，不回调
+         * @return 属性是否变化
+         */
+        abstract boolean diff(Object oldObj, Object newObj, DiffConsumer consumer) throws Throwable;
+    }
+
+    private static final class ObjectFieldDiffer extends FieldDiffer {
+
+        ObjectFieldDiffer(String name, MethodHandle getter) {
+            super(name, getter);
+        }
+
+        @Override
+        boolean diff(Object oldObj, Object newObj, DiffConsumer consumer) throws Throwable {
+            Object oldValue = (Object) getter.invokeExact(oldObj);
+            Object newValue = (Object) getter.invokeExact(newObj);
+            if (Objects.equals(oldValue, newValue)) {
+                return false;
+            }
+            if (consumer != null) {
+                consumer.accept(name, oldValue, newValue);
+            }
+            return true;
+        }
+    }
+
+    private static final class IntFieldDiffer extends FieldDiffer {
+
+        IntFieldDiffer(String name, MethodHandle getter) {
+            super(name, getter);
+        }
+
+        @Override
+        boolean diff(Object oldObj, Object newObj, DiffConsumer consumer) throws Throwable {
+            int oldValue = (int) getter.invokeExact(oldObj);
+            int newValue = (int) getter.invokeExact(newObj);
+            if (oldValue == newValue) {
+                return false;
+            }
+            if (consumer != null) {
+                consumer.accept(name, oldValue, newValue);
+            }
+            return true;
+        }
+    }
+
+    private static final class LongFieldDiffer extends FieldDiffer {
+
+        LongFieldDiffer(String name, MethodHandle getter) {
+            super(name, getter);
+        }
+
+        @Override
+        boolean diff(Object oldObj, Object newObj, DiffConsumer consumer) throws Throwable {
+            long oldValue = (long) getter.invokeExact(oldObj);
+            long newValue = (long) getter.invokeExact(newObj);
+            if (oldValue == newValue) {
+                return false;
+            }
+            if (consumer != null) {
+                consumer.accept(name, oldValue, newValue);
+            }
+            return true;
+        }
+    }
+
+    private static final class DoubleFieldDiffer extends FieldDiffer {
+
+        DoubleFieldDiffer(String name, MethodHandle getter) {
+            super(name, getter);
+        }
+
+        @Override
+        boolean diff(Object oldObj, Object newObj, DiffConsumer consumer) throws Throwable {
+            double oldValue = (double) getter.invokeExact(oldObj);
+            double newValue = (double) getter.invokeExact(newObj);
+            // 和Double.equals一致：NaN等于NaN，0.0不等于-0.0
+            if (Double.doubleToLongBits(oldValue) == Double.doubleToLongBits(newValue)) {
+                return false;
+            }
+            if (consumer != null) {
+                consumer.accept(name, oldValue, newValue);
+            }
+            return true;
+        }
+    }
+
+    private static final class FloatFieldDiffer extends FieldDiffer {
+
+        FloatFieldDiffer(String name, MethodHandle getter) {
+            super(name, getter);
+        }
+
+        @Override
+        boolean diff(Object oldObj, Object newObj, DiffConsumer consumer) throws Throwable {
+            float oldValue = (float) getter.invokeExact(oldObj);
+            float newValue = (float) getter.invokeExact(newObj);
+            if (Float.floatToIntBits(oldValue) == Float.floatToIntBits(newValue)) {
+                return false;
+            }
+            if (consumer != null) {
+                consumer.accept(name, oldValue, newValue);
+            }
+            return true;
+        }
+    }
+
+    private static final class BooleanFieldDiffer extends FieldDiffer {
+
+        BooleanFieldDiffer(String name, MethodHandle getter) {
+            super(name, getter);
+        }
+
+        @Override
+        boolean diff(Object oldObj, Object newObj, DiffConsumer consumer) throws Throwable {
+            boolean oldValue = (boolean) getter.invokeExact(oldObj);
+            boolean newValue = (boolean) getter.invokeExact(newObj);
+            if (oldValue == newValue) {
+                return false;
+            }
+            if (consumer != null) {
+                consumer.accept(name, oldValue, newValue);
+            }
+            return true;
+        }
+    }
+
+    private static final class ShortFieldDiffer extends FieldDiffer {
+
+        ShortFieldDiffer(String name, MethodHandle getter) {
+            super(name, getter);
+        }
+
+        @Override
+        boolean diff(Object oldObj, Object newObj, DiffConsumer consumer) throws Throwable {
+            short oldValue = (short) getter.invokeExact(oldObj);
+            short newValue = (short) getter.invokeExact(newObj);
+            if (oldValue == newValue) {
+                return false;
+            }
+            if (consumer != null) {
+                consumer.accept(name, oldValue, newValue);
+            }
+            return true;
+        }
+    }
+
+    private static final class ByteFieldDiffer extends FieldDiffer {
+
+        ByteFieldDiffer(String name, MethodHandle getter) {
+            super(name, getter);
+        }
+
+        @Override
+        boolean diff(Object oldObj, Object newObj, DiffConsumer consumer) throws Throwable {
+            byte oldValue = (byte) getter.invokeExact(oldObj);
+            byte newValue = (byte) getter.invokeExact(newObj);
+            if (oldValue == newValue) {
+                return false;
+            }
+            if (consumer != null) {
+                consumer.accept(name, oldValue, newValue);
+            }
+            return true;
+        }
+    }
+
+    private static final class CharFieldDiffer extends FieldDiffer {
+
+        CharFieldDiffer(String name, MethodHandle getter) {
+            super(name, getter);
+        }
+
+        @Override
+        boolean diff(Object oldObj, Object newObj, DiffConsumer consumer) throws Throwable {
+            char oldValue = (char) getter.invokeExact(oldObj);
+            char newValue = (char) getter.invokeExact(newObj);
+            if (oldValue == newValue) {
+                return false;
+            }
+            if (consumer != null) {
+                consumer.accept(name, oldValue, newValue);
+            }
+            return true;
+        }
+    }
+
+}
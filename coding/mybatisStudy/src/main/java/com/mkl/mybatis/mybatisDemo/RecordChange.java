@@ -0,0 +1,95 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量比较的一条结果：按key匹配后，记录新增、删除或者发生了变化
+ *
+ * @author Mengkaili
+ * @since 2021/7/8
+ */
+public final class RecordChange<K, T> {
+
+    public enum Type {
+        ADDED, REMOVED, CHANGED
+    }
+
+    private final Type type;
+    private final K key;
+    private final T oldRecord;
+    private final T newRecord;
+
+    RecordChange(Type type, K key, T oldRecord, T newRecord) {
+        this.type = type;
+        this.key = key;
+        this.oldRecord = oldRecord;
+        this.newRecord = newRecord;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    /**
+     * 新增的记录没有旧值，返回null
+     */
+    public T getOldRecord() {
+        return oldRecord;
+    }
+
+    /**
+     * 删除的记录没有新值，返回null
+     */
+    public T getNewRecord() {
+        return newRecord;
+    }
+
+    /**
+     * 发生变化的属性，格式和{@link ReflectionStudy#diffObj}一致，只有CHANGED才有内容
+     */
+    public Map<String, String> diffFields() {
+        if (type != Type.CHANGED) {
+            return new HashMap<>();
+        }
+        return ObjectDiffer.diffObj(oldRecord, newRecord);
+    }
+
+    /**
+     * 发生变化的属性，只有CHANGED才有内容
+     */
+    public List<FieldChange> getFieldChanges() {
+        if (type != Type.CHANGED) {
+            return new ArrayList<>();
+        }
+        return ObjectDiffer.forClass(classOf(oldRecord)).changes(oldRecord, newRecord);
+    }
+
+    /**
+     * 把发生变化的属性直接交给consumer，比如{@link JsonPatchWriter}、{@link BinaryChangeLogWriter}
+     *
+     * @return 变化的属性个数
+     */
+    public int diffFields(DiffConsumer consumer) {
+        if (type != Type.CHANGED) {
+            return 0;
+        }
+        return ObjectDiffer.forClass(classOf(oldRecord)).diff(oldRecord, newRecord, consumer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Class<T> classOf(T record) {
+        return (Class<T>) record.getClass();
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + key;
+    }
+}
@@ -0,0 +1,19 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 记录写入溢出文件、再读回来的方式，{@link BulkDiffer}内存放不下时使用
+ *
+ * @author Mengkaili
+ * @since 2021/7/8
+ */
+public interface RecordCodec<T> {
+
+    void write(T record, DataOutput out) throws IOException;
+
+    T read(DataInput in) throws IOException;
+
+}
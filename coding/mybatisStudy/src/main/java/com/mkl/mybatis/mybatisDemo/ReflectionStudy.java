@@ -35,6 +35,19 @@ public class ReflectionStudy {
             System.out.println("属性" + stringStringEntry.getKey() + "；变化为：" + stringStringEntry.getValue());
         }
 
+        System.out.println("按类生成比较器，只解析一次属性，基本类型不装箱：");
+
+        ObjectDiffer.forClass(Book.class).diff(oldBook, newBook,
+                (fieldName, oldValue, newValue) -> System.out.println("属性" + fieldName + "；变化为：from" + oldValue + "to" + newValue));
+
+        System.out.println("直接写成JSON Patch，不生成中间的字符串：");
+
+        StringBuilder patch = new StringBuilder();
+        JsonPatchWriter patchWriter = new JsonPatchWriter(patch);
+        diffObj(oldBook, newBook, patchWriter);
+        patchWriter.finish();
+        System.out.println(patch);
+
     }
 
     public static Map<String, String> diffObj(Object oldObj, Object newObj) {
@@ -66,6 +79,19 @@ public class ReflectionStudy {
         return diffMap;
     }
 
+    /**
+     * 把变化的属性交给consumer，基本类型的属性不装箱，类不同时不回调
+     *
+     * @return 变化的属性个数
+     */
+    @SuppressWarnings("unchecked")
+    public static int diffObj(Object oldObj, Object newObj, DiffConsumer consumer) {
+        if (!oldObj.getClass().equals(newObj.getClass())) {
+            return 0;
+        }
+        return ObjectDiffer.forClass((Class<Object>) oldObj.getClass()).diff(oldObj, newObj, consumer);
+    }
+
     public static Map<String, String> diffUser(User oldUser, User newUser) {
         Map<String, String> diffMap = new HashMap<>();
         if ((oldUser.getId() == null && newUser.getId() != null) || (oldUser.getId() != null && !oldUser.getId().equals(newUser.getId()))) {
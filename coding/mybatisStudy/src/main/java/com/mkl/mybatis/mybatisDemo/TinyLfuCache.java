@@ -0,0 +1,683 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.Configuration;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MyBatis二级缓存，按访问频率淘汰（W-TinyLFU），同时限制条数和写入后的存活时间。
+ * <p>
+ * 新数据先进入占总容量1%的窗口区（LRU），被挤出窗口后和主区（分为试用区和保护区的SLRU）里最久没用的数据比较访问频率，
+ * 频率高的留下。访问频率用4位计数的Count-Min Sketch估算，计数总量达到容量的10倍时全部减半，让旧的热点逐渐冷却。
+ * 少数查询非常热、大量查询只出现一次时，一次性的查询不会把热点挤出去。
+ * 所有数据另外按写入顺序串成一个链表，写入、查询条数和统计时先从链表头部移除过期的数据，过期数据不占容量，也不参与淘汰的比较。
+ * <p>
+ * 在mapper里配置：
+ * <pre>
+ * &lt;cache type="com.mkl.mybatis.mybatisDemo.TinyLfuCache"&gt;
+ *     &lt;property name="maximumSize" value="1000"/&gt;
+ *     &lt;property name="expireAfterWriteMillis" value="300000"/&gt;
+ * &lt;/cache&gt;
+ * </pre>
+ * 同一个namespace里的insert、update、delete默认会清空缓存，清空时保留访问频率。
+ * 数据保存在堆内，写入时把查询结果的列表复制成不可修改的快照，每次命中返回快照的一份浅拷贝，
+ * 调用方增删返回的列表不会影响缓存和其它调用方，但列表里的实体对象是共享的，不能修改。
+ * 统计信息用{@link #getStats()}获取，运行中的实例用{@link #lookup(Configuration, String)}按namespace找到
+ *
+ * @author Mengkaili
+ * @since 2021/7/23
+ */
+public class TinyLfuCache implements Cache, InitializingObject {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    // 一个缓存项除了值本身之外的开销：Node对象和HashMap的Entry
+    private static final long ENTRY_OVERHEAD = 64 + 32;
+
+    private final String id;
+    private int maximumSize = 1024;
+    private long expireAfterWriteMillis;
+
+    private final Map<Object, Node> data = new HashMap<>();
+    private final AccessQueue window = new AccessQueue();
+    private final AccessQueue probation = new AccessQueue();
+    private final AccessQueue protectedQueue = new AccessQueue();
+    private final WriteQueue writeOrder = new WriteQueue();
+    private FrequencySketch sketch;
+    private int windowMaximum;
+    private int protectedMaximum;
+    private int windowSize;
+    private int protectedSize;
+    private long expireAfterWriteNanos;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long expirationCount;
+    private long weightedBytes;
+
+    public TinyLfuCache(String id) {
+        this.id = id;
+        initialize();
+    }
+
+    /**
+     * 按namespace从MyBatis的配置里找到这个缓存，MyBatis会在外面包一层LoggingCache，这里去掉装饰器；
+     * namespace没有配置缓存或者配置的不是TinyLfuCache时返回null
+     */
+    public static TinyLfuCache lookup(Configuration configuration, String namespace) {
+        if (!configuration.hasCache(namespace)) {
+            return null;
+        }
+        Object cache = configuration.getCache(namespace);
+        // MyBatis自带的装饰器都把被装饰的缓存保存在delegate属性里
+        while (!(cache instanceof TinyLfuCache)) {
+            MetaObject metaObject = SystemMetaObject.forObject(cache);
+            if (!metaObject.hasGetter("delegate")) {
+                return null;
+            }
+            cache = metaObject.getValue("delegate");
+        }
+        return (TinyLfuCache) cache;
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * 写入后的存活时间，小于等于0时不过期
+     */
+    public void setExpireAfterWriteMillis(long expireAfterWriteMillis) {
+        this.expireAfterWriteMillis = expireAfterWriteMillis;
+    }
+
+    /**
+     * MyBatis设置完属性后调用，按配置重新分配各区的容量
+     */
+    @Override
+    public synchronized void initialize() {
+        if (maximumSize < 1) {
+            throw new IllegalStateException("maximumSize必须大于0: " + maximumSize);
+        }
+        data.clear();
+        window.clear();
+        probation.clear();
+        protectedQueue.clear();
+        writeOrder.clear();
+        windowSize = 0;
+        protectedSize = 0;
+        weightedBytes = 0;
+        windowMaximum = Math.max(1, maximumSize / 100);
+        protectedMaximum = (maximumSize - windowMaximum) * 4 / 5;
+        expireAfterWriteNanos = expireAfterWriteMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMillis) : 0;
+        sketch = new FrequencySketch(maximumSize);
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        // 复制快照和估算大小都要遍历查询结果，放在锁外面
+        Object snapshot = snapshot(value);
+        long weight = estimateSize(snapshot);
+        int hash = spread(key.hashCode());
+        synchronized (this) {
+            put(key, snapshot, hash, weight);
+        }
+    }
+
+    private void put(Object key, Object value, int hash, long weight) {
+        sketch.increment(hash);
+        long now = System.nanoTime();
+        // 先移除过期的数据，淘汰时只在没过期的数据之间比较频率
+        expire(now);
+        Node node = data.get(key);
+        if (node != null) {
+            weightedBytes += weight - node.weight;
+            node.value = value;
+            node.weight = weight;
+            node.writeTime = now;
+            writeOrder.moveToTail(node);
+            onAccess(node);
+            return;
+        }
+        node = new Node(key, value, hash, now);
+        node.weight = weight;
+        weightedBytes += weight;
+        data.put(key, node);
+        writeOrder.add(node);
+        node.queue = WINDOW;
+        window.add(node);
+        windowSize++;
+        evict();
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        return copy(get(key));
+    }
+
+    private synchronized Object get(Object key) {
+        Node node = data.get(key);
+        if (node == null) {
+            sketch.increment(spread(key.hashCode()));
+            missCount++;
+            return null;
+        }
+        sketch.increment(node.hash);
+        if (isExpired(node, System.nanoTime())) {
+            remove(node);
+            expirationCount++;
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        onAccess(node);
+        return node.value;
+    }
+
+    @Override
+    public synchronized Object removeObject(Object key) {
+        Node node = data.get(key);
+        if (node == null) {
+            return null;
+        }
+        remove(node);
+        return node.value;
+    }
+
+    /**
+     * 清空数据，访问频率保留下来，清空后热点数据重新写入时仍然优先留下
+     */
+    @Override
+    public synchronized void clear() {
+        data.clear();
+        window.clear();
+        probation.clear();
+        protectedQueue.clear();
+        writeOrder.clear();
+        windowSize = 0;
+        protectedSize = 0;
+        weightedBytes = 0;
+    }
+
+    @Override
+    public synchronized int getSize() {
+        expire(System.nanoTime());
+        return data.size();
+    }
+
+    public synchronized Stats getStats() {
+        expire(System.nanoTime());
+        return new Stats(hitCount, missCount, evictionCount, expirationCount, data.size(),
+                weightedBytes + data.size() * ENTRY_OVERHEAD + sketch.sizeInBytes());
+    }
+
+    // 查询结果是ArrayList，缓存里保存不可修改的副本，之后调用方修改自己拿到的列表不会改到缓存
+    private static Object snapshot(Object value) {
+        return value instanceof List ? Collections.unmodifiableList(new ArrayList<>((List<?>) value)) : value;
+    }
+
+    // 每次命中返回一个新的列表，和没有缓存时一样可以修改
+    private static Object copy(Object value) {
+        return value instanceof List ? new ArrayList<>((List<?>) value) : value;
+    }
+
+    private boolean isExpired(Node node, long now) {
+        return expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos;
+    }
+
+    // 写入时间越早越靠近链表头部，遇到第一个没过期的就可以停下
+    private void expire(long now) {
+        Node node;
+        while ((node = writeOrder.head()) != null && isExpired(node, now)) {
+            remove(node);
+            expirationCount++;
+        }
+    }
+
+    private void onAccess(Node node) {
+        if (node.queue == WINDOW) {
+            window.moveToTail(node);
+        } else if (node.queue == PROBATION) {
+            // 试用区被再次访问，升到保护区，保护区满了把最久没用的降回试用区
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedQueue.add(node);
+            protectedSize++;
+            while (protectedSize > protectedMaximum) {
+                Node demoted = protectedQueue.poll();
+                protectedSize--;
+                demoted.queue = PROBATION;
+                probation.add(demoted);
+            }
+        } else {
+            protectedQueue.moveToTail(node);
+        }
+    }
+
+    private void evict() {
+        // 窗口满了，最久没用的进入试用区，作为候选
+        while (windowSize > windowMaximum) {
+            Node candidate = window.poll();
+            windowSize--;
+            candidate.queue = PROBATION;
+            probation.add(candidate);
+        }
+        while (data.size() > maximumSize) {
+            Node candidate = probation.tail();
+            Node victim = probation.head();
+            if (victim == null) {
+                victim = protectedQueue.head();
+                candidate = victim;
+            }
+            if (candidate == victim) {
+                evict(victim);
+            } else if (sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+                evict(victim);
+            } else {
+                evict(candidate);
+            }
+        }
+    }
+
+    private void evict(Node node) {
+        remove(node);
+        evictionCount++;
+    }
+
+    private void remove(Node node) {
+        data.remove(node.key);
+        weightedBytes -= node.weight;
+        writeOrder.remove(node);
+        if (node.queue == WINDOW) {
+            window.remove(node);
+            windowSize--;
+        } else if (node.queue == PROBATION) {
+            probation.remove(node);
+        } else {
+            protectedQueue.remove(node);
+            protectedSize--;
+        }
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45D9F3B;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final ClassValue<Field[]> REFERENCE_FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+                        try {
+                            field.setAccessible(true);
+                            fields.add(field);
+                        } catch (RuntimeException e) {
+                            // JDK内部的类读不到，只算浅大小
+                        }
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
+    private static final ClassValue<Long> SHALLOW_SIZES = new ClassValue<Long>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            long size = 12;
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    Class<?> fieldType = field.getType();
+                    if (fieldType == long.class || fieldType == double.class) {
+                        size += 8;
+                    } else if (fieldType == short.class || fieldType == char.class) {
+                        size += 2;
+                    } else if (fieldType == byte.class || fieldType == boolean.class) {
+                        size += 1;
+                    } else {
+                        size += 4;
+                    }
+                }
+            }
+            return align(size);
+        }
+    };
+
+    /**
+     * 估算查询结果占用的堆内存：集合逐个元素计算，实体对象计算自身和两层以内引用的对象，按64位JVM压缩指针估算
+     */
+    static long estimateSize(Object value) {
+        return estimateSize(value, 3);
+    }
+
+    private static long estimateSize(Object value, int depth) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return 24 + align(16 + ((String) value).length());
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            return 16;
+        }
+        if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            long size = 24 + align(16 + 4L * collection.size());
+            for (Object element : collection) {
+                size += estimateSize(element, depth);
+            }
+            return size;
+        }
+        long size = SHALLOW_SIZES.get(value.getClass());
+        if (depth > 1) {
+            for (Field field : REFERENCE_FIELDS.get(value.getClass())) {
+                try {
+                    size += estimateSize(field.get(value), depth - 1);
+                } catch (IllegalAccessException e) {
+                    // 读不到的属性不计算
+                }
+            }
+        }
+        return size;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * 缓存的统计信息快照
+     */
+    public static final class Stats {
+
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long expirationCount;
+        private final int size;
+        private final long estimatedBytes;
+
+        Stats(long hitCount, long missCount, long evictionCount, long expirationCount, int size, long estimatedBytes) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.expirationCount = expirationCount;
+            this.size = size;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * 命中率，还没有访问过时为0
+         */
+        public double getHitRate() {
+            long requests = hitCount + missCount;
+            return requests == 0 ? 0 : (double) hitCount / requests;
+        }
+
+        /**
+         * 因为超过条数上限被淘汰的数量，不包括过期和清空
+         */
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public long getExpirationCount() {
+            return expirationCount;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * 估算的堆内存占用，包括缓存的值、每项的额外开销和频率统计表
+         */
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hitRate=%.3f, hits=%d, misses=%d, evictions=%d, expirations=%d, size=%d, estimatedBytes=%d",
+                    getHitRate(), hitCount, missCount, evictionCount, expirationCount, size, estimatedBytes);
+        }
+    }
+
+    private static final class Node {
+
+        final Object key;
+        final int hash;
+        Object value;
+        long weight;
+        long writeTime;
+        int queue;
+        Node prev;
+        Node next;
+        Node writePrev;
+        Node writeNext;
+
+        Node(Object key, Object value, int hash, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+            this.writeTime = writeTime;
+        }
+    }
+
+    /**
+     * 按访问顺序排列的双向链表，头部是最久没有访问的
+     */
+    private static final class AccessQueue {
+
+        private Node head;
+        private Node tail;
+
+        Node head() {
+            return head;
+        }
+
+        Node tail() {
+            return tail;
+        }
+
+        void add(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        Node poll() {
+            Node node = head;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        void moveToTail(Node node) {
+            if (node != tail) {
+                remove(node);
+                add(node);
+            }
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+        }
+    }
+
+    /**
+     * 按写入时间排列的双向链表，头部是最早写入的；和AccessQueue共用Node，用另外一组指针
+     */
+    private static final class WriteQueue {
+
+        private Node head;
+        private Node tail;
+
+        Node head() {
+            return head;
+        }
+
+        void add(Node node) {
+            node.writePrev = tail;
+            node.writeNext = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.writeNext = node;
+            }
+            tail = node;
+        }
+
+        void remove(Node node) {
+            if (node.writePrev == null) {
+                head = node.writeNext;
+            } else {
+                node.writePrev.writeNext = node.writeNext;
+            }
+            if (node.writeNext == null) {
+                tail = node.writePrev;
+            } else {
+                node.writeNext.writePrev = node.writePrev;
+            }
+            node.writePrev = null;
+            node.writeNext = null;
+        }
+
+        void moveToTail(Node node) {
+            if (node != tail) {
+                remove(node);
+                add(node);
+            }
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+        }
+    }
+
+    /**
+     * 4位计数的Count-Min Sketch，每个long里有16个计数器，每个key在4行里各占一个，取最小值作为频率
+     */
+    static final class FrequencySketch {
+
+        private static final int[] SEEDS = {0x97CB3127, 0xB492B66F, 0x9AE16A3B, 0x0D6E8FD9};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int length = Integer.highestOneBit(Math.max(1, Math.min(maximumSize, 1 << 24)) - 1) << 1;
+            this.table = new long[Math.max(8, length)];
+            this.sampleSize = 10 * Math.max(1, maximumSize);
+        }
+
+        int frequency(int hash) {
+            int frequency = 15;
+            for (int i = 0; i < 4; i++) {
+                int h = rehash(hash, i);
+                int offset = offset(h, i);
+                frequency = Math.min(frequency, (int) ((table[h & (table.length - 1)] >>> offset) & 0xF));
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int h = rehash(hash, i);
+                int index = h & (table.length - 1);
+                int offset = offset(h, i);
+                if (((table[index] >>> offset) & 0xF) != 0xF) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        // 所有计数减半，让过去的热点逐渐冷却
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions /= 2;
+        }
+
+        long sizeInBytes() {
+            return 16 + 8L * table.length;
+        }
+
+        private static int rehash(int hash, int i) {
+            int h = (hash ^ SEEDS[i]) * 0x9E3779B9;
+            return h ^ (h >>> 15);
+        }
+
+        // 第i行使用每个long里的第4i到4i+3个计数器
+        private static int offset(int h, int i) {
+            return ((i << 2) + ((h >>> 28) & 3)) << 2;
+        }
+    }
+
+}
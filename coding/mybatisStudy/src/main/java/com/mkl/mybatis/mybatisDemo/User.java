@@ -7,6 +7,7 @@ package com.mkl.mybatis.mybatisDemo;
 public class User {
     private Integer id;
     private String name;
+    private String schoolName;
 
     public User(Integer id, String name) {
         this.id = id;
@@ -28,4 +29,12 @@ public class User {
     public void setName(String name) {
         this.name = name;
     }
+
+    public String getSchoolName() {
+        return schoolName;
+    }
+
+    public void setSchoolName(String schoolName) {
+        this.schoolName = schoolName;
+    }
 }
@@ -0,0 +1,195 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 批量写入用户：调用方逐个{@link #add}，攒够batchSize个就在一个事务里写入，内存里最多保留一批。
+ * <p>
+ * 每批按rowsPerStatement拆成多行VALUES的INSERT，用BATCH执行器一起发给数据库，事务提交前统一执行。
+ * 某一批失败时只回滚这一批，之前提交的批次保留，异常抛给调用方。
+ * 每批都在新的事务里提交（REQUIRES_NEW），调用方自己有事务时会被挂起，不会把各批并进调用方的事务；
+ * 调用方的事务回滚不影响已经提交的批次，调用方事务里锁住的行也不要再交给这里写入，否则会互相等待。
+ * <pre>
+ * try (UserBulkWriter writer = new UserBulkWriter(sqlSessionFactory, transactionManager).upsert()) {
+ *     users.forEach(writer::add);
+ * }
+ * </pre>
+ *
+ * @author Mengkaili
+ * @since 2021/7/27
+ */
+public class UserBulkWriter implements Closeable {
+
+    private final SqlSessionTemplate batchTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserMapper userMapper;
+    private boolean upsert;
+    private int batchSize = 5000;
+    private int rowsPerStatement = 500;
+
+    private List<User> buffer = new ArrayList<>();
+    private long rows;
+    private long affectedRows;
+    private int batches;
+    private long startTime;
+    private long elapsedNanos;
+
+    public UserBulkWriter(SqlSessionFactory sqlSessionFactory, PlatformTransactionManager transactionManager) {
+        this.batchTemplate = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.userMapper = batchTemplate.getMapper(UserMapper.class);
+    }
+
+    /**
+     * id已经存在时更新，而不是报错
+     */
+    public UserBulkWriter upsert() {
+        this.upsert = true;
+        return this;
+    }
+
+    /**
+     * 每个事务写入的行数，也是内存里最多保留的行数
+     */
+    public UserBulkWriter batchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        return this;
+    }
+
+    /**
+     * 每条INSERT语句里VALUES的行数，受数据库对语句长度和参数个数的限制
+     */
+    public UserBulkWriter rowsPerStatement(int rowsPerStatement) {
+        this.rowsPerStatement = Math.max(1, rowsPerStatement);
+        return this;
+    }
+
+    public void add(User user) {
+        if (startTime == 0) {
+            startTime = System.nanoTime();
+        }
+        buffer.add(user);
+        if (buffer.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * 写入所有用户并提交，返回统计
+     */
+    public Report write(Iterator<? extends User> users) {
+        while (users.hasNext()) {
+            add(users.next());
+        }
+        flush();
+        return getReport();
+    }
+
+    public Report write(Stream<? extends User> users) {
+        return write(users.iterator());
+    }
+
+    /**
+     * 在一个新的事务里写入缓冲的用户
+     */
+    public void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        List<User> batch = buffer;
+        buffer = new ArrayList<>(Math.min(batchSize, 1024));
+        Integer affected = transactionTemplate.execute(status -> {
+            for (int from = 0; from < batch.size(); from += rowsPerStatement) {
+                List<User> statementRows = batch.subList(from, Math.min(from + rowsPerStatement, batch.size()));
+                if (upsert) {
+                    userMapper.upsertUsers(statementRows);
+                } else {
+                    userMapper.insertUsers(statementRows);
+                }
+            }
+            // 在事务里执行，出错时这一批回滚
+            int count = 0;
+            for (BatchResult result : batchTemplate.flushStatements()) {
+                for (int updateCount : result.getUpdateCounts()) {
+                    count += Math.max(updateCount, 0);
+                }
+            }
+            return count;
+        });
+        rows += batch.size();
+        affectedRows += affected == null ? 0 : affected;
+        batches++;
+        elapsedNanos = System.nanoTime() - startTime;
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    public Report getReport() {
+        return new Report(rows, affectedRows, batches, elapsedNanos);
+    }
+
+    /**
+     * 已经提交的行数、批次和耗时
+     */
+    public static final class Report {
+
+        private final long rows;
+        private final long affectedRows;
+        private final int batches;
+        private final long elapsedNanos;
+
+        Report(long rows, long affectedRows, int batches, long elapsedNanos) {
+            this.rows = rows;
+            this.affectedRows = affectedRows;
+            this.batches = batches;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * 数据库返回的影响行数，MySQL的upsert更新已有行时每行算2
+         */
+        public long getAffectedRows() {
+            return affectedRows;
+        }
+
+        public int getBatches() {
+            return batches;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("rows=%d, affectedRows=%d, batches=%d, elapsed=%dms, rowsPerSecond=%.0f",
+                    rows, affectedRows, batches, getElapsedMillis(), getRowsPerSecond());
+        }
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.mkl.mybatis.mybatisDemo;
 
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.util.List;
 
@@ -11,4 +13,30 @@ import java.util.List;
 @Mapper
 public interface UserMapper {
     List<User> queryUserBySchoolName(User user);
+
+    /**
+     * 和queryUserBySchoolName条件相同，但是每读到一行就交给resultHandler，不在内存里保留结果。
+     * 每次从数据库取的行数由mybatis-config.xml里的user.stream.fetchSize控制
+     */
+    void streamUserBySchoolName(User user, ResultHandler<User> resultHandler);
+
+    /**
+     * 按id升序取afterId之后的limit个用户，afterId为null时从头开始，分页用{@link UserPage#query}
+     */
+    List<User> queryUserAfterId(@Param("schoolName") String schoolName, @Param("afterId") Integer afterId, @Param("limit") int limit);
+
+    /**
+     * 按id更新name和schoolName，会清空本namespace的二级缓存
+     */
+    int updateUser(User user);
+
+    /**
+     * 一条多行INSERT写入所有用户，id为null时自动生成；大批量写入用{@link UserBulkWriter}
+     */
+    int insertUsers(@Param("users") List<User> users);
+
+    /**
+     * 和insertUsers相同，id已经存在时更新name和schoolName
+     */
+    int upsertUsers(@Param("users") List<User> users);
 }
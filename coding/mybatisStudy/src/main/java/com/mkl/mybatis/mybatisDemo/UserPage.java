@@ -0,0 +1,93 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 一页用户和取下一页用的token，token为null表示没有下一页。
+ * <p>
+ * token里是本页最后一个id和查询条件的hash，对调用方不透明；下一页直接从这个id之后开始查，
+ * 不管翻到第几页都只走一次索引定位，不像OFFSET那样越往后越慢
+ *
+ * @author Mengkaili
+ * @since 2021/7/19
+ */
+public class UserPage {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final byte TOKEN_VERSION = 1;
+
+    private final List<User> users;
+    private final String nextPageToken;
+
+    public UserPage(List<User> users, String nextPageToken) {
+        this.users = users;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    /**
+     * 分页查询，pageToken为null时取第一页，之后传入上一页返回的token
+     *
+     * @throws IllegalArgumentException pageSize不在1到{@link #MAX_PAGE_SIZE}之间，pageToken不合法，或者不是这个schoolName的查询返回的
+     */
+    public static UserPage query(UserMapper userMapper, String schoolName, String pageToken, int pageSize) {
+        // 要多取一行，pageSize太大时pageSize + 1会溢出
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize必须在1到" + MAX_PAGE_SIZE + "之间: " + pageSize);
+        }
+        Integer afterId = pageToken == null ? null : decodeToken(pageToken, schoolName);
+        // 多取一行，判断是否还有下一页
+        List<User> users = userMapper.queryUserAfterId(schoolName, afterId, pageSize + 1);
+        if (users.size() <= pageSize) {
+            return new UserPage(users, null);
+        }
+        users = new ArrayList<>(users.subList(0, pageSize));
+        return new UserPage(users, encodeToken(users.get(pageSize - 1).getId(), schoolName));
+    }
+
+    private static String encodeToken(int lastId, String schoolName) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(9);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(TOKEN_VERSION);
+            out.writeInt(lastId);
+            out.writeInt(Objects.hashCode(schoolName));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * 解析token里的id，token不合法或者和查询条件不匹配时抛出IllegalArgumentException
+     */
+    private static int decodeToken(String token, String schoolName) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            if (in.readByte() != TOKEN_VERSION) {
+                throw new IllegalArgumentException("不支持的分页token: " + token);
+            }
+            int lastId = in.readInt();
+            if (in.readInt() != Objects.hashCode(schoolName) || in.read() != -1) {
+                throw new IllegalArgumentException("分页token和查询条件不匹配: " + token);
+            }
+            return lastId;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("不合法的分页token: " + token, e);
+        }
+    }
+}
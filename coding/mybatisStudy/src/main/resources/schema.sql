@@ -0,0 +1,8 @@
+CREATE TABLE IF NOT EXISTS `user` (
+    id         INT NOT NULL AUTO_INCREMENT,
+    name       VARCHAR(64),
+    schoolName VARCHAR(64),
+    PRIMARY KEY (id),
+    -- 按学校分页：等值过滤schoolName后按id顺序读取
+    KEY idx_user_school_id (schoolName, id)
+);
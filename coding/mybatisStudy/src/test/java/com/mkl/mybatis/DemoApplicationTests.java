@@ -1,9 +1,10 @@
 package com.mkl.mybatis;
 
+import com.mkl.mybatis.mybatisDemo.DemoApplication;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(classes = DemoApplication.class)
 class DemoApplicationTests {
 
 	@Test
@@ -0,0 +1,106 @@
+package com.mkl.mybatis.benchmark;
+
+import com.mkl.mybatis.mybatisDemo.BinaryChangeLogWriter;
+import com.mkl.mybatis.mybatisDemo.Book;
+import com.mkl.mybatis.mybatisDemo.DiffConsumer;
+import com.mkl.mybatis.mybatisDemo.JsonPatchWriter;
+import com.mkl.mybatis.mybatisDemo.ObjectDiffer;
+import com.mkl.mybatis.mybatisDemo.ReflectionStudy;
+import com.mkl.mybatis.mybatisDemo.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 反射版本的diffObj和按类生成的ObjectDiffer对比，reflective*和compiled*都是返回Map的diffObj，结果格式相同；
+ * unchanged是审计写入时最常见的情况：两个对象完全相同，consumerUnchanged是同样的比较改用DiffConsumer接收结果，不创建Map；
+ * jsonPatch和binaryLog把变化直接写到复用的缓冲区里
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiffBenchmark {
+
+    private final User oldUser = new User(1, "yee");
+    private final User newUser = new User(1, "yeecode");
+    private final Book oldBook = new Book("语文", 15.7);
+    private final Book newBook = new Book("语文", 18.7);
+    private final Book sameBook = new Book("语文", 15.7);
+    private final ObjectDiffer<Book> bookDiffer = ObjectDiffer.forClass(Book.class);
+    private final StringBuilder patch = new StringBuilder();
+    private final JsonPatchWriter patchWriter = new JsonPatchWriter(patch);
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    private final BinaryChangeLogWriter logWriter = new BinaryChangeLogWriter(new DataOutputStream(log));
+
+    @Benchmark
+    public Map<String, String> reflectiveUser() {
+        return ReflectionStudy.diffObj(oldUser, newUser);
+    }
+
+    @Benchmark
+    public Map<String, String> compiledUser() {
+        return ObjectDiffer.diffObj(oldUser, newUser);
+    }
+
+    @Benchmark
+    public Map<String, String> reflectiveBook() {
+        return ReflectionStudy.diffObj(oldBook, newBook);
+    }
+
+    @Benchmark
+    public Map<String, String> compiledBook() {
+        return ObjectDiffer.diffObj(oldBook, newBook);
+    }
+
+    @Benchmark
+    public Map<String, String> reflectiveUnchanged() {
+        return ReflectionStudy.diffObj(oldBook, sameBook);
+    }
+
+    @Benchmark
+    public Map<String, String> compiledUnchanged() {
+        return ObjectDiffer.diffObj(oldBook, sameBook);
+    }
+
+    @Benchmark
+    public int consumerUnchanged(final Blackhole blackhole) {
+        return bookDiffer.diff(oldBook, sameBook, new DiffConsumer() {
+            @Override
+            public void accept(String fieldName, Object oldValue, Object newValue) {
+                blackhole.consume(newValue);
+            }
+        });
+    }
+
+    @Benchmark
+    public int jsonPatch() {
+        patch.setLength(0);
+        bookDiffer.diff(oldBook, newBook, patchWriter);
+        patchWriter.finish();
+        return patch.length();
+    }
+
+    @Benchmark
+    public int binaryLog() {
+        log.reset();
+        bookDiffer.diff(oldBook, newBook, logWriter);
+        logWriter.endRecord();
+        return log.size();
+    }
+
+}
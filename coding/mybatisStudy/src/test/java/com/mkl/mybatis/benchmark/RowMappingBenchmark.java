@@ -0,0 +1,112 @@
+package com.mkl.mybatis.benchmark;
+
+import com.mkl.mybatis.mybatisDemo.User;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同一条查询分别用MyBatis默认的自动映射和生成的映射器读取，数据在H2内存库里，
+ * 两边的SQL执行和JDBC读取成本相同，差别主要来自每行的映射；二级缓存关闭，每次都真正查询
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMappingBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:rowMappingBenchmark;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String QUERY = "com.mkl.mybatis.mybatisDemo.UserMapper.queryUserBySchoolName";
+
+    @Param({"1000", "100000"})
+    private int rows;
+
+    private Connection keepAlive;
+    private SqlSessionFactory defaultFactory;
+    private SqlSessionFactory generatedFactory;
+    private final User filter = new User(null, null);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        keepAlive = DriverManager.getConnection(URL, "sa", "");
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS `user`");
+            statement.execute("CREATE TABLE `user` (id INT NOT NULL AUTO_INCREMENT, name VARCHAR(64), schoolName VARCHAR(64), PRIMARY KEY (id))");
+        }
+        try (PreparedStatement insert = keepAlive.prepareStatement("INSERT INTO `user` (id, name, schoolName) VALUES (?, ?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                insert.setInt(1, i);
+                insert.setString(2, "user" + i);
+                insert.setString(3, "School" + i % 100);
+                insert.addBatch();
+                if (i % 1000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        defaultFactory = build("");
+        generatedFactory = build("User");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        keepAlive.close();
+    }
+
+    private static SqlSessionFactory build(String types) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("jdbc.driver", "org.h2.Driver");
+        properties.setProperty("jdbc.url", URL);
+        properties.setProperty("jdbc.username", "sa");
+        properties.setProperty("jdbc.password", "");
+        properties.setProperty("generatedRowMapper.types", types);
+        try (Reader reader = Resources.getResourceAsReader("mybatis-config.xml")) {
+            SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(reader, properties);
+            factory.getConfiguration().setCacheEnabled(false);
+            return factory;
+        }
+    }
+
+    private List<User> select(SqlSessionFactory factory) {
+        try (SqlSession session = factory.openSession()) {
+            return session.selectList(QUERY, filter);
+        }
+    }
+
+    @Benchmark
+    public List<User> defaultMapping() {
+        return select(defaultFactory);
+    }
+
+    @Benchmark
+    public List<User> generatedMapping() {
+        return select(generatedFactory);
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkDifferTest {
+
+    static class UserCodec implements RecordCodec<User> {
+        int written;
+
+        @Override
+        public void write(User record, DataOutput out) throws IOException {
+            written++;
+            out.writeInt(record.getId());
+            out.writeUTF(record.getName());
+        }
+
+        @Override
+        public User read(DataInput in) throws IOException {
+            return new User(in.readInt(), in.readUTF());
+        }
+    }
+
+    // 旧：0..9999；新：删掉0..99，修改能被7整除的，新增10000..10049
+    private static List<User> oldUsers() {
+        return IntStream.range(0, 10000).mapToObj(i -> new User(i, "user" + i)).collect(Collectors.toList());
+    }
+
+    private static Stream<User> newUsers() {
+        return IntStream.range(100, 10050).mapToObj(i -> new User(i, i % 7 == 0 && i < 10000 ? "changed" + i : "user" + i));
+    }
+
+    private static void assertChanges(Stream<RecordChange<Integer, User>> changes) {
+        Map<RecordChange.Type, Integer> counts = new HashMap<>();
+        try (Stream<RecordChange<Integer, User>> stream = changes) {
+            stream.forEach(change -> {
+                counts.merge(change.getType(), 1, Integer::sum);
+                if (change.getType() == RecordChange.Type.CHANGED) {
+                    assertEquals("fromuser" + change.getKey() + "tochanged" + change.getKey(), change.diffFields().get("name"));
+                } else if (change.getType() == RecordChange.Type.ADDED) {
+                    assertNull(change.getOldRecord());
+                    assertTrue(change.getKey() >= 10000);
+                } else {
+                    assertNull(change.getNewRecord());
+                    assertTrue(change.getKey() < 100);
+                }
+            });
+        }
+        assertEquals(50, counts.get(RecordChange.Type.ADDED));
+        assertEquals(100, counts.get(RecordChange.Type.REMOVED));
+        assertEquals((int) IntStream.range(100, 10000).filter(i -> i % 7 == 0).count(), counts.get(RecordChange.Type.CHANGED));
+    }
+
+    @Test
+    void shouldDiffInMemory() {
+        assertChanges(new BulkDiffer<>(User.class, User::getId).parallelism(3).diff(oldUsers().stream(), newUsers()));
+    }
+
+    @Test
+    void shouldSpillWhenOverMemoryLimit(@TempDir File directory) {
+        UserCodec codec = new UserCodec();
+        BulkDiffer<Integer, User> differ = new BulkDiffer<>(User.class, User::getId)
+                .parallelism(2)
+                .maxInMemory(200)
+                .spillTo(codec, directory);
+        assertChanges(differ.diff(oldUsers(), newUsers().collect(Collectors.toList())));
+        assertTrue(codec.written > 0);
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    void shouldCleanUpWhenClosedEarly(@TempDir File directory) {
+        BulkDiffer<Integer, User> differ = new BulkDiffer<>(User.class, User::getId)
+                .maxInMemory(100)
+                .spillTo(new UserCodec(), directory);
+        try (Stream<RecordChange<Integer, User>> changes = differ.diff(oldUsers(), new ArrayList<>())) {
+            Iterator<RecordChange<Integer, User>> iterator = changes.iterator();
+            assertEquals(RecordChange.Type.REMOVED, iterator.next().getType());
+        }
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    void shouldRejectDuplicateKeys() {
+        List<User> users = Arrays.asList(new User(1, "a"), new User(1, "b"));
+        BulkDiffer<Integer, User> differ = new BulkDiffer<>(User.class, User::getId);
+        assertThrows(IllegalStateException.class, () -> differ.diff(users, users).count());
+        // 新记录里的重复不能被当成新增
+        List<User> single = Collections.singletonList(new User(1, "a"));
+        assertThrows(IllegalStateException.class, () -> differ.diff(single, users).count());
+        assertThrows(IllegalStateException.class, () -> differ.diff(Collections.<User>emptyList(), users).count());
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeLogTest {
+
+    static class Sample {
+        private int count;
+        private long total;
+        private double ratio;
+        private float weight;
+        private boolean active;
+        private short level;
+        private byte flags;
+        private char grade;
+        private String note;
+        private Integer score;
+
+        Sample(int count, long total, double ratio, float weight, boolean active, short level, byte flags, char grade, String note, Integer score) {
+            this.count = count;
+            this.total = total;
+            this.ratio = ratio;
+            this.weight = weight;
+            this.active = active;
+            this.level = level;
+            this.flags = flags;
+            this.grade = grade;
+            this.note = note;
+            this.score = score;
+        }
+    }
+
+    private final Sample oldSample = new Sample(1, 10L, 0.5, 1.5f, false, (short) 3, (byte) 1, 'A', "a\"b", null);
+    private final Sample newSample = new Sample(-2, 1L << 40, Double.NaN, 2.5f, true, (short) -3, (byte) 2, 'B', null, 7);
+
+    @Test
+    void shouldKeepPrimitivesTyped() {
+        List<FieldChange> changes = ObjectDiffer.forClass(Sample.class).changes(oldSample, newSample);
+        assertEquals(10, changes.size());
+        assertEquals(int.class, changes.get(0).getType());
+        assertEquals(-2L, changes.get(0).getNewLong());
+        assertEquals(1.5, changes.get(3).getOldDouble());
+        assertTrue(changes.get(4).getNewBoolean());
+        assertEquals('B', changes.get(7).getNewValue());
+        assertFalse(changes.get(8).isPrimitive());
+        assertEquals("a\"b", changes.get(8).getOldValue());
+    }
+
+    @Test
+    void shouldWriteJsonPatch() {
+        StringBuilder patch = new StringBuilder();
+        JsonPatchWriter writer = new JsonPatchWriter(patch);
+        ReflectionStudy.diffObj(new Book("语文", 15.7), new Book("数学", 18.7), writer);
+        writer.finish();
+        assertEquals("[{\"op\":\"replace\",\"path\":\"/name\",\"value\":\"数学\"},"
+                + "{\"op\":\"replace\",\"path\":\"/price\",\"value\":18.7}]", patch.toString());
+
+        patch.setLength(0);
+        ObjectDiffer.forClass(Sample.class).diff(oldSample, newSample, writer.withTests());
+        writer.finish();
+        assertEquals("[{\"op\":\"test\",\"path\":\"/count\",\"value\":1},{\"op\":\"replace\",\"path\":\"/count\",\"value\":-2},"
+                + "{\"op\":\"test\",\"path\":\"/total\",\"value\":10},{\"op\":\"replace\",\"path\":\"/total\",\"value\":1099511627776},"
+                + "{\"op\":\"test\",\"path\":\"/ratio\",\"value\":0.5},{\"op\":\"replace\",\"path\":\"/ratio\",\"value\":\"NaN\"},"
+                + "{\"op\":\"test\",\"path\":\"/weight\",\"value\":1.5},{\"op\":\"replace\",\"path\":\"/weight\",\"value\":2.5},"
+                + "{\"op\":\"test\",\"path\":\"/active\",\"value\":false},{\"op\":\"replace\",\"path\":\"/active\",\"value\":true},"
+                + "{\"op\":\"test\",\"path\":\"/level\",\"value\":3},{\"op\":\"replace\",\"path\":\"/level\",\"value\":-3},"
+                + "{\"op\":\"test\",\"path\":\"/flags\",\"value\":1},{\"op\":\"replace\",\"path\":\"/flags\",\"value\":2},"
+                + "{\"op\":\"test\",\"path\":\"/grade\",\"value\":\"A\"},{\"op\":\"replace\",\"path\":\"/grade\",\"value\":\"B\"},"
+                + "{\"op\":\"test\",\"path\":\"/note\",\"value\":\"a\\\"b\"},{\"op\":\"remove\",\"path\":\"/note\"},"
+                + "{\"op\":\"add\",\"path\":\"/score\",\"value\":7}]", patch.toString());
+
+        patch.setLength(0);
+        writer.finish();
+        assertEquals("[]", patch.toString());
+    }
+
+    @Test
+    void shouldRoundTripBinaryChangeLog() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryChangeLogWriter writer = new BinaryChangeLogWriter(new DataOutputStream(bytes));
+        ObjectDiffer<Sample> differ = ObjectDiffer.forClass(Sample.class);
+        differ.diff(oldSample, newSample, writer);
+        writer.endRecord();
+        differ.diff(newSample, oldSample, writer);
+        writer.endRecord();
+
+        BinaryChangeLogReader reader = new BinaryChangeLogReader(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        FieldChange.Collector first = new FieldChange.Collector();
+        FieldChange.Collector second = new FieldChange.Collector();
+        assertTrue(reader.readRecord(first));
+        assertTrue(reader.readRecord(second));
+        assertFalse(reader.readRecord(new FieldChange.Collector()));
+
+        assertEquals(differ.changes(oldSample, newSample).toString(), first.getChanges().toString());
+        assertEquals(differ.changes(newSample, oldSample).toString(), second.getChanges().toString());
+        assertEquals(short.class, first.getChanges().get(5).getType());
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class GeneratedRowMapperTest {
+
+    private static final String URL = "jdbc:h2:mem:rowMapper;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String QUERY = "com.mkl.mybatis.mybatisDemo.UserMapper.queryUserBySchoolName";
+
+    private static SqlSessionFactory defaultFactory;
+    private static SqlSessionFactory generatedFactory;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE `user` (id INT NOT NULL AUTO_INCREMENT, name VARCHAR(64), schoolName VARCHAR(64), PRIMARY KEY (id))");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO `user` (id, name, schoolName) VALUES (?, ?, ?)")) {
+                for (int i = 1; i <= 50; i++) {
+                    insert.setInt(1, i);
+                    insert.setString(2, i % 7 == 0 ? null : "user" + i);
+                    insert.setString(3, i % 5 == 0 ? null : "School" + i % 3);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+        defaultFactory = build("");
+        generatedFactory = build("User");
+    }
+
+    private static SqlSessionFactory build(String types) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("jdbc.driver", "org.h2.Driver");
+        properties.setProperty("jdbc.url", URL);
+        properties.setProperty("jdbc.username", "sa");
+        properties.setProperty("jdbc.password", "");
+        properties.setProperty("generatedRowMapper.types", types);
+        try (Reader reader = Resources.getResourceAsReader("mybatis-config.xml")) {
+            SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(reader, properties);
+            // 比较的是映射结果，不能让二级缓存直接返回上一次的列表
+            factory.getConfiguration().setCacheEnabled(false);
+            return factory;
+        }
+    }
+
+    private static GeneratedRowMapperPlugin plugin(SqlSessionFactory factory) {
+        for (Interceptor interceptor : factory.getConfiguration().getInterceptors()) {
+            if (interceptor instanceof GeneratedRowMapperPlugin) {
+                return (GeneratedRowMapperPlugin) interceptor;
+            }
+        }
+        throw new IllegalStateException("plugin not configured");
+    }
+
+    private static List<User> select(SqlSessionFactory factory, User filter) {
+        try (SqlSession session = factory.openSession()) {
+            return session.selectList(QUERY, filter);
+        }
+    }
+
+    private static void assertSameUsers(List<User> expected, List<User> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            assertEquals(expected.get(i).getSchoolName(), actual.get(i).getSchoolName());
+        }
+    }
+
+    @Test
+    void shouldMapSameUsersAsDefaultMapping() {
+        long before = plugin(generatedFactory).getMappedRows();
+
+        List<User> expected = select(defaultFactory, new User(null, null));
+        List<User> actual = select(generatedFactory, new User(null, null));
+
+        assertEquals(50, expected.size());
+        assertSameUsers(expected, actual);
+        assertNull(actual.get(6).getName());
+        assertNull(actual.get(4).getSchoolName());
+        assertEquals(50, plugin(generatedFactory).getMappedRows() - before);
+        assertEquals(0, plugin(defaultFactory).getMappedRows());
+
+        User filter = new User(null, null);
+        filter.setSchoolName("School1");
+        assertSameUsers(select(defaultFactory, filter), select(generatedFactory, filter));
+    }
+
+    @Test
+    void shouldStopResultHandlerEarly() {
+        List<User> users = new ArrayList<>();
+        try (SqlSession session = generatedFactory.openSession()) {
+            session.select(QUERY, new User(null, null), context -> {
+                users.add((User) context.getResultObject());
+                if (context.getResultCount() == 3) {
+                    context.stop();
+                }
+            });
+        }
+
+        assertEquals(3, users.size());
+        assertEquals(Integer.valueOf(3), users.get(2).getId());
+    }
+
+    @Test
+    void shouldFallBackToDefaultMappingWithRowBounds() {
+        GeneratedRowMapperPlugin plugin = plugin(generatedFactory);
+        long before = plugin.getMappedRows();
+
+        List<User> users;
+        try (SqlSession session = generatedFactory.openSession()) {
+            users = session.selectList(QUERY, new User(null, null), new RowBounds(10, 5));
+        }
+
+        assertEquals(5, users.size());
+        assertEquals(Integer.valueOf(11), users.get(0).getId());
+        assertEquals(before, plugin.getMappedRows());
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObjectDifferTest {
+
+    static class Product extends Book {
+        private static int created;
+        private long stock;
+        private boolean onSale;
+        private char grade;
+        private float discount;
+
+        Product(String name, double price, long stock, boolean onSale, char grade, float discount) {
+            super(name, price);
+            this.stock = stock;
+            this.onSale = onSale;
+            this.grade = grade;
+            this.discount = discount;
+            created++;
+        }
+    }
+
+    static class RenamedBook extends Book {
+        // 隐藏了Book.name
+        private String name;
+
+        RenamedBook(String name, String displayName, double price) {
+            super(name, price);
+            this.name = displayName;
+        }
+    }
+
+    @Test
+    void shouldMatchReflectiveDiff() {
+        User oldUser = new User(1, "yee");
+        User newUser = new User(1, "yeecode");
+        assertEquals(ReflectionStudy.diffObj(oldUser, newUser), ObjectDiffer.diffObj(oldUser, newUser));
+
+        Book oldBook = new Book("语文", 15.7);
+        Book newBook = new Book("语文", 18.7);
+        assertEquals(ReflectionStudy.diffObj(oldBook, newBook), ObjectDiffer.diffObj(oldBook, newBook));
+        assertEquals("from15.7to18.7", ObjectDiffer.diffObj(oldBook, newBook).get("price"));
+
+        assertTrue(ObjectDiffer.diffObj(oldUser, oldBook).isEmpty());
+    }
+
+    @Test
+    void shouldDiffInheritedAndPrimitiveFields() {
+        Product oldProduct = new Product("数学", 20.0, 10L, false, 'A', 0.5f);
+        Product newProduct = new Product(null, 20.0, 12L, true, 'A', 0.5f);
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put("name", "from数学tonull");
+        expected.put("stock", "from10to12");
+        expected.put("onSale", "fromfalsetotrue");
+        assertEquals(expected, ObjectDiffer.diffObj(oldProduct, newProduct));
+    }
+
+    @Test
+    void shouldTreatNaNAsEqualLikeDoubleEquals() {
+        Book oldBook = new Book("语文", Double.NaN);
+        Book newBook = new Book("语文", Double.NaN);
+        assertEquals(0, ObjectDiffer.forClass(Book.class).diff(oldBook, newBook, (fieldName, oldValue, newValue) -> {
+            throw new AssertionError(fieldName);
+        }));
+        assertEquals(ReflectionStudy.diffObj(oldBook, newBook), ObjectDiffer.diffObj(oldBook, newBook));
+    }
+
+    @Test
+    void shouldCacheDifferPerClass() {
+        assertSame(ObjectDiffer.forClass(User.class), ObjectDiffer.forClass(User.class));
+        assertSame(Book.class, ObjectDiffer.forClass(Book.class).getType());
+    }
+
+    @Test
+    void shouldSkipSuperclassFieldShadowedBySubclass() {
+        RenamedBook oldBook = new RenamedBook("语文", "语文上册", 15.7);
+        RenamedBook newBook = new RenamedBook("数学", "语文下册", 15.7);
+
+        List<String> fieldNames = new ArrayList<>();
+        assertEquals(1, ObjectDiffer.forClass(RenamedBook.class).diff(oldBook, newBook,
+                (fieldName, oldValue, newValue) -> fieldNames.add(fieldName + ":" + oldValue + "->" + newValue)));
+        assertEquals(Collections.singletonList("name:语文上册->语文下册"), fieldNames);
+
+        StringBuilder patch = new StringBuilder();
+        JsonPatchWriter patchWriter = new JsonPatchWriter(patch);
+        ObjectDiffer.forClass(RenamedBook.class).diff(oldBook, newBook, patchWriter);
+        patchWriter.finish();
+        assertEquals("[{\"op\":\"replace\",\"path\":\"/name\",\"value\":\"语文下册\"}]", patch.toString());
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TinyLfuCacheTest {
+
+    private static TinyLfuCache cache(int maximumSize, long expireAfterWriteMillis) {
+        TinyLfuCache cache = new TinyLfuCache("test");
+        cache.setMaximumSize(maximumSize);
+        cache.setExpireAfterWriteMillis(expireAfterWriteMillis);
+        cache.initialize();
+        return cache;
+    }
+
+    @Test
+    void shouldKeepHotEntriesDuringScan() {
+        TinyLfuCache cache = cache(100, 0);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                if (cache.getObject("hot" + i) == null) {
+                    cache.putObject("hot" + i, i);
+                }
+            }
+        }
+        // 大量只出现一次的查询，LRU会把热点全部挤出去
+        for (int i = 0; i < 5000; i++) {
+            cache.getObject("cold" + i);
+            cache.putObject("cold" + i, i);
+        }
+
+        int hotLeft = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.getObject("hot" + i) != null) {
+                hotLeft++;
+            }
+        }
+        assertTrue(hotLeft >= 45, "留下的热点: " + hotLeft);
+        assertEquals(100, cache.getSize());
+        assertTrue(cache.getStats().getEvictionCount() >= 4900);
+    }
+
+    @Test
+    void shouldExpireAfterWrite() throws InterruptedException {
+        TinyLfuCache cache = cache(10, 50);
+        cache.putObject("key", "value");
+        assertEquals("value", cache.getObject("key"));
+        Thread.sleep(80);
+        assertNull(cache.getObject("key"));
+
+        TinyLfuCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getExpirationCount());
+        assertEquals(0.5, stats.getHitRate());
+        assertEquals(0, stats.getSize());
+    }
+
+    @Test
+    void shouldDropExpiredEntriesBeforeEvictingFreshOnes() throws InterruptedException {
+        TinyLfuCache cache = cache(10, 50);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10; i++) {
+                if (cache.getObject("hot" + i) == null) {
+                    cache.putObject("hot" + i, i);
+                }
+            }
+        }
+        Thread.sleep(80);
+        // 过期的热点不再占用容量
+        assertEquals(0, cache.getSize());
+        assertEquals(10, cache.getStats().getExpirationCount());
+
+        for (int i = 0; i < 10; i++) {
+            cache.putObject("hot" + i, i);
+        }
+        Thread.sleep(80);
+        // 访问频率比新数据高，但是已经过期，应该先移除它们而不是淘汰新数据
+        for (int i = 0; i < 10; i++) {
+            cache.putObject("fresh" + i, i);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, cache.getObject("fresh" + i));
+        }
+        TinyLfuCache.Stats stats = cache.getStats();
+        assertEquals(0, stats.getEvictionCount());
+        assertEquals(20, stats.getExpirationCount());
+        assertEquals(10, stats.getSize());
+    }
+
+    @Test
+    void shouldEstimateMemoryOfCachedResults() {
+        TinyLfuCache cache = cache(10, 0);
+        long empty = cache.getStats().getEstimatedBytes();
+        cache.putObject("users", Arrays.asList(new User(1, "yee"), new User(2, "yeecode")));
+        long withUsers = cache.getStats().getEstimatedBytes();
+        // 列表、两个User、Integer和String都要算进去
+        assertTrue(withUsers - empty > 2 * TinyLfuCache.estimateSize(new User(1, null)) + 88);
+
+        cache.clear();
+        assertEquals(empty, cache.getStats().getEstimatedBytes());
+        assertNull(cache.getObject("users"));
+    }
+
+}
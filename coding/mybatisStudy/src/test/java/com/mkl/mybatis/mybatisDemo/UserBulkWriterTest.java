@@ -0,0 +1,123 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class UserBulkWriterTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        UserTable.clear(sqlSessionFactory, jdbcTemplate);
+    }
+
+    private static User user(Integer id, String name, String schoolName) {
+        User user = new User(id, name);
+        user.setSchoolName(schoolName);
+        return user;
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM `user`", Integer.class);
+    }
+
+    @Test
+    void shouldInsertInBatches() {
+        UserBulkWriter.Report report = new UserBulkWriter(sqlSessionFactory, transactionManager)
+                .batchSize(1000)
+                .rowsPerStatement(150)
+                .write(IntStream.rangeClosed(1, 10500).mapToObj(i -> user(i, "user" + i, "School " + i % 10)));
+
+        assertEquals(10500, report.getRows());
+        assertEquals(10500, report.getAffectedRows());
+        assertEquals(11, report.getBatches());
+        assertTrue(report.getRowsPerSecond() > 0);
+        assertEquals(10500, count());
+        assertEquals("user42", jdbcTemplate.queryForObject("SELECT name FROM `user` WHERE id = 42", String.class));
+    }
+
+    @Test
+    void shouldUpsertExistingRows() {
+        User selectedBefore = user(null, null, "Sunny School");
+        new UserBulkWriter(sqlSessionFactory, transactionManager)
+                .write(Stream.of(user(1, "yee", "Sunny School"), user(2, "yeecode", "Sunny School")));
+        assertEquals(2, userMapper.queryUserBySchoolName(selectedBefore).size());
+
+        try (UserBulkWriter writer = new UserBulkWriter(sqlSessionFactory, transactionManager).upsert().rowsPerStatement(2)) {
+            writer.add(user(2, "yeecode", "Rainy School"));
+            writer.add(user(3, "mkl", "Sunny School"));
+            writer.add(user(null, "generated", "Rainy School"));
+        }
+
+        assertEquals(4, count());
+        assertEquals("Rainy School", jdbcTemplate.queryForObject("SELECT schoolName FROM `user` WHERE id = 2", String.class));
+        // 写入经过MyBatis，二级缓存已经清空
+        List<User> sunny = userMapper.queryUserBySchoolName(selectedBefore);
+        assertEquals(2, sunny.size());
+        assertEquals("mkl", sunny.get(1).getName());
+    }
+
+    @Test
+    void shouldRollBackOnlyTheFailedBatch() {
+        UserBulkWriter writer = new UserBulkWriter(sqlSessionFactory, transactionManager).batchSize(100).rowsPerStatement(30);
+        // 第二批里有重复的id
+        Stream<User> users = IntStream.range(0, 250).mapToObj(i -> user(i == 150 ? 120 : i, "user" + i, null));
+        assertThrows(DataAccessException.class, () -> writer.write(users));
+
+        assertEquals(100, count());
+        assertEquals(100, writer.getReport().getRows());
+        assertEquals(1, writer.getReport().getBatches());
+    }
+
+    @Test
+    void shouldCommitBatchesIndependentlyOfCallerTransaction() {
+        TransactionTemplate outer = new TransactionTemplate(transactionManager);
+        outer.execute(status -> {
+            new UserBulkWriter(sqlSessionFactory, transactionManager)
+                    .batchSize(2)
+                    .write(Stream.of(user(1, "yee", null), user(2, "yeecode", null), user(3, "mkl", null)));
+            // 调用方的事务回滚，已经提交的批次保留
+            status.setRollbackOnly();
+            return null;
+        });
+        assertEquals(3, count());
+
+        // 某一批失败也不会把调用方的事务标记为只能回滚
+        outer.execute(status -> {
+            UserBulkWriter writer = new UserBulkWriter(sqlSessionFactory, transactionManager);
+            assertThrows(DataAccessException.class, () -> writer.write(Stream.of(user(1, "duplicate", null))));
+            assertFalse(status.isRollbackOnly());
+            return null;
+        });
+        assertEquals(3, count());
+    }
+
+}
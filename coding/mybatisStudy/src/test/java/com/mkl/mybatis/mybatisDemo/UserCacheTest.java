@@ -0,0 +1,98 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        UserTable.clear(sqlSessionFactory, jdbcTemplate);
+        jdbcTemplate.update("INSERT INTO `user` (id, name, schoolName) VALUES (1, 'yee', 'Sunny School'), (2, 'yeecode', 'Sunny School')");
+    }
+
+    private static List<String> describe(List<User> users) {
+        return users.stream().map(user -> user.getId() + ":" + user.getName()).collect(Collectors.toList());
+    }
+
+    private static User sunnySchool() {
+        User userParam = new User(null, null);
+        userParam.setSchoolName("Sunny School");
+        return userParam;
+    }
+
+    @Test
+    void shouldServeRepeatedQueriesFromCache() throws Exception {
+        TinyLfuCache cache = TinyLfuCache.lookup(sqlSessionFactory.getConfiguration(), UserMapper.class.getName());
+        long hits = cache.getStats().getHitCount();
+
+        List<User> first = userMapper.queryUserBySchoolName(sunnySchool());
+        List<User> second = userMapper.queryUserBySchoolName(sunnySchool());
+        assertEquals(describe(first), describe(second));
+        assertEquals(hits + 1, cache.getStats().getHitCount());
+
+        String body = mockMvc.perform(get("/users/cache-stats"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode stats = objectMapper.readTree(body);
+        assertTrue(stats.get("hitRate").asDouble() > 0);
+        assertTrue(stats.get("estimatedBytes").asLong() > 0);
+    }
+
+    @Test
+    void shouldNotShareCachedListBetweenCallers() {
+        List<User> first = userMapper.queryUserBySchoolName(sunnySchool());
+        first.clear();
+        List<User> second = userMapper.queryUserBySchoolName(sunnySchool());
+        assertEquals(2, second.size());
+        second.remove(0);
+        assertEquals(2, userMapper.queryUserBySchoolName(sunnySchool()).size());
+    }
+
+    @Test
+    void shouldInvalidateOnUpdate() {
+        assertEquals(2, userMapper.queryUserBySchoolName(sunnySchool()).size());
+
+        User moved = new User(2, "yeecode");
+        moved.setSchoolName("Rainy School");
+        assertEquals(1, userMapper.updateUser(moved));
+
+        List<User> users = userMapper.queryUserBySchoolName(sunnySchool());
+        assertEquals(1, users.size());
+        assertEquals("yee", users.get(0).getName());
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @BeforeEach
+    void setUp() {
+        UserTable.clear(sqlSessionFactory, jdbcTemplate);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            rows.add(new Object[]{i, "user" + i, i % 4 == 0 ? "Sunny School" : "Rainy School"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO `user` (id, name, schoolName) VALUES (?, ?, ?)", rows);
+    }
+
+    @Test
+    void shouldStreamRowsToHandler() {
+        User userParam = new User(null, null);
+        userParam.setSchoolName("Sunny School");
+        int[] count = {0};
+        userMapper.streamUserBySchoolName(userParam, context -> {
+            assertEquals("Sunny School", context.getResultObject().getSchoolName());
+            count[0]++;
+        });
+        assertEquals(250, count[0]);
+        assertEquals(250, userMapper.queryUserBySchoolName(userParam).size());
+    }
+
+    @Test
+    void shouldExportNdjson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/users/export").param("schoolName", "Sunny School"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(250, lines.length);
+        assertEquals("{\"id\":4,\"name\":\"user4\",\"schoolName\":\"Sunny School\"}", lines[0]);
+        assertTrue(body.endsWith("\n"));
+    }
+
+    @Test
+    void shouldExportAllUsersWithoutFilter() throws Exception {
+        MvcResult result = mockMvc.perform(get("/users/export")).andReturn();
+        String body = mockMvc.perform(asyncDispatch(result)).andReturn().getResponse().getContentAsString();
+        assertEquals(1000, body.split("\n").length);
+    }
+
+}
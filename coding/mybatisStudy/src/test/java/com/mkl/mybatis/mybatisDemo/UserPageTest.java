@@ -0,0 +1,115 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserPageTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        UserTable.clear(sqlSessionFactory, jdbcTemplate);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= 105; i++) {
+            rows.add(new Object[]{i, "user" + i, i % 2 == 0 ? "Sunny School" : "Rainy School"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO `user` (id, name, schoolName) VALUES (?, ?, ?)", rows);
+    }
+
+    @Test
+    void shouldWalkAllPagesInIdOrder() {
+        List<Integer> ids = new ArrayList<>();
+        int pages = 0;
+        String token = null;
+        do {
+            UserPage page = UserPage.query(userMapper, "Sunny School", token, 10);
+            page.getUsers().forEach(user -> ids.add(user.getId()));
+            token = page.getNextPageToken();
+            pages++;
+        } while (token != null);
+
+        assertEquals(6, pages);
+        assertEquals(52, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(2 * (i + 1), ids.get(i));
+        }
+    }
+
+    @Test
+    void shouldEndWithoutTokenWhenPageIsExactlyFull() {
+        UserPage page = UserPage.query(userMapper, null, null, 105);
+        assertEquals(105, page.getUsers().size());
+        assertNull(page.getNextPageToken());
+    }
+
+    @Test
+    void shouldRejectTokenFromAnotherQuery() {
+        String token = UserPage.query(userMapper, "Sunny School", null, 10).getNextPageToken();
+        assertThrows(IllegalArgumentException.class, () -> UserPage.query(userMapper, "Rainy School", token, 10));
+        assertThrows(IllegalArgumentException.class, () -> UserPage.query(userMapper, "Rainy School", "not-a-token", 10));
+    }
+
+    @Test
+    void shouldRejectPageSizeOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> UserPage.query(userMapper, null, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> UserPage.query(userMapper, null, null, -1));
+        assertThrows(IllegalArgumentException.class, () -> UserPage.query(userMapper, null, null, UserPage.MAX_PAGE_SIZE + 1));
+        assertThrows(IllegalArgumentException.class, () -> UserPage.query(userMapper, null, null, Integer.MAX_VALUE));
+        assertEquals(105, UserPage.query(userMapper, null, null, UserPage.MAX_PAGE_SIZE).getUsers().size());
+    }
+
+    @Test
+    void shouldPageThroughEndpoint() throws Exception {
+        String body = mockMvc.perform(get("/users").param("pageSize", "100"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode first = objectMapper.readTree(body);
+        assertEquals(100, first.get("users").size());
+
+        body = mockMvc.perform(get("/users").param("pageSize", "100").param("pageToken", first.get("nextPageToken").asText()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode second = objectMapper.readTree(body);
+        assertEquals(5, second.get("users").size());
+        assertEquals(101, second.get("users").get(0).get("id").asInt());
+        assertEquals(true, second.get("nextPageToken").isNull());
+
+        mockMvc.perform(get("/users").param("pageToken", "broken")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users").param("pageSize", "0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users").param("pageSize", String.valueOf(Integer.MAX_VALUE))).andExpect(status().isBadRequest());
+    }
+
+}
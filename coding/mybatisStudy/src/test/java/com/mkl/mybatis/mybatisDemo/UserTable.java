@@ -0,0 +1,22 @@
+package com.mkl.mybatis.mybatisDemo;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 用到user表的测试共用的准备工作
+ */
+final class UserTable {
+
+    private UserTable() {
+    }
+
+    /**
+     * 清空user表。测试直接用JDBC改数据，不会经过MyBatis清空二级缓存，这里一起清空
+     */
+    static void clear(SqlSessionFactory sqlSessionFactory, JdbcTemplate jdbcTemplate) {
+        sqlSessionFactory.getConfiguration().getCache(UserMapper.class.getName()).clear();
+        jdbcTemplate.update("DELETE FROM `user`");
+    }
+
+}